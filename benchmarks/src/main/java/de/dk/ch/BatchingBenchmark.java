@@ -0,0 +1,69 @@
+package de.dk.ch;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares sending small messages directly with sending them through a {@link BatchingSender}.
+ * The underlying sender burns a fixed amount of CPU per call to stand in for the syscall and flush
+ * a real transport pays for every write.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingBenchmark {
+   @Param({"1000"})
+   private long writeCost;
+
+   @Param({"64"})
+   private int batchSize;
+
+   private Channel<String> direct;
+   private Channel<String> batched;
+
+   @Setup
+   public void setUp() throws ClosedException {
+      Sender transport = this::write;
+      this.direct = openChannel(transport);
+      this.batched = openChannel(new BatchingSender(transport, batchSize, 1000));
+   }
+
+   private static Channel<String> openChannel(Sender sender) throws ClosedException {
+      Channel<String> channel = new Channel<>(0, sender, null);
+      channel.setState(ChannelState.OPEN);
+      return channel;
+   }
+
+   private void write(Serializable msg) {
+      Blackhole.consumeCPU(writeCost);
+   }
+
+   @Benchmark
+   public void direct() throws Exception {
+      direct.send("payload");
+   }
+
+   @Benchmark
+   public void batched() throws Exception {
+      batched.send("payload");
+   }
+}
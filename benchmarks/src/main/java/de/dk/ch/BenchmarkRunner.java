@@ -0,0 +1,30 @@
+package de.dk.ch;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar.
+ * Accepts the usual JMH command line options and always attaches the gc profiler,
+ * so every run reports the allocation rate next to the throughput.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class BenchmarkRunner {
+   private BenchmarkRunner() {
+
+   }
+
+   public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+      Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+                                            .addProfiler(GCProfiler.class)
+                                            .build();
+      new Runner(options).run();
+   }
+}
@@ -0,0 +1,64 @@
+package de.dk.ch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>Multiplexer.close()</code> with a varying number of live channels.
+ * Closing a multiplexer can only be done once, so every invocation gets
+ * a freshly populated pair of multiplexers and is measured as a single shot.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class CloseBenchmark {
+   @Param({"1", "1000", "100000"})
+   private int channelCount;
+
+   private Multiplexer multiplexer;
+
+   @Setup(Level.Invocation)
+   public void setUp() throws ClosedException {
+      ChannelHandler<String> handlerA = ChannelHandler.of(String.class, (channel, initialMsg) -> {});
+      ChannelHandler<String> handlerB = ChannelHandler.of(String.class, (channel, initialMsg) -> {});
+      Multiplexer[] pair = LoopbackSender.connectedPair(new ChannelHandler<?>[] {handlerA},
+                                                        new ChannelHandler<?>[] {handlerB});
+      this.multiplexer = pair[0];
+      for (long id = 0; id < channelCount; id++) {
+         addOpenChannel(pair[0], id, handlerA);
+         addOpenChannel(pair[1], id, handlerB);
+      }
+   }
+
+   private static void addOpenChannel(Multiplexer multiplexer,
+                                      long id,
+                                      ChannelHandler<?> handler) throws ClosedException {
+      Channel<String> channel = new Channel<>(id, multiplexer.getSender(), multiplexer);
+      channel.setState(ChannelState.OPEN);
+      multiplexer.addChannel(channel, handler);
+   }
+
+   @Benchmark
+   public Multiplexer close() {
+      multiplexer.close();
+      return multiplexer;
+   }
+}
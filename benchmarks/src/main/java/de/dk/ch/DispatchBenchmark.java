@@ -0,0 +1,82 @@
+package de.dk.ch;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the per packet cost of redirecting a received <code>PayloadPacket</code> to its channel.
+ * The <code>reflective</code> benchmark reproduces the former dispatch via <code>Method.invoke</code>
+ * as the baseline for the direct dispatch.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+   private Multiplexer requester;
+   private Multiplexer receiver;
+   private Channel<String> channel;
+   private PayloadPacket packet;
+
+   private Blackhole blackhole;
+
+   @Setup
+   public void setUp(Blackhole blackhole) throws Exception {
+      this.blackhole = blackhole;
+      ChannelHandler<String> handler = ChannelHandler.of(String.class, this::accept);
+      Multiplexer[] pair = LoopbackSender.connectedPair(new ChannelHandler<?>[0],
+                                                        new ChannelHandler<?>[] {handler});
+      this.requester = pair[0];
+      this.receiver = pair[1];
+      long id = requester.establishNewChannel(String.class, 1000)
+                         .getId();
+
+      this.packet = new PayloadPacket(id, "payload");
+   }
+
+   private void accept(Channel<String> channel, Optional<String> initialMessage) {
+      this.channel = channel;
+      channel.addListener(blackhole::consume);
+   }
+
+   @Benchmark
+   public void reflective() throws Exception {
+      Method receiveMethod = Channel.class.getDeclaredMethod("receive", PayloadPacket.class);
+      receiveMethod.invoke(channel, packet);
+   }
+
+   @Benchmark
+   public void direct() throws ClosedException {
+      channel.receive(packet);
+   }
+
+   @Benchmark
+   public void multiplexerReceive() {
+      receiver.receive(packet);
+   }
+
+   @TearDown
+   public void tearDown() {
+      requester.close();
+      receiver.close();
+   }
+}
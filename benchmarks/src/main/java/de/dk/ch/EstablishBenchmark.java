@@ -0,0 +1,102 @@
+package de.dk.ch;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the <code>establishNewChannel</code> handshake (NEW, OK, OK) over a loopback link.
+ * Every established channel is closed again, so the channel tables do not grow during a run.
+ * <code>openAsyncBurst</code> opens {@value #BURST} channels at once without a thread per request.
+ * <code>establishBatch</code> requests {@value #BURST} channels with one batch in one round trip.
+ * <code>poolLeaseAndRelease</code> takes an open channel from a {@link ChannelPool} and returns it (RESET).
+ * <code>pipelinedSendAndClose</code> sends a message right behind the request of a pipelined channel (NEW, OK).
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EstablishBenchmark {
+   static final int BURST = 1000;
+
+   private Multiplexer requester;
+   private Multiplexer receiver;
+   private ChannelPool<String> pool;
+
+   @Setup
+   public void setUp() {
+      ChannelHandler<String> handler = ChannelHandler.of(String.class, (channel, initialMsg) -> {});
+      Multiplexer[] pair = LoopbackSender.connectedPair(new ChannelHandler<?>[0],
+                                                        new ChannelHandler<?>[] {handler});
+      this.requester = pair[0];
+      this.receiver = pair[1];
+      this.pool = new ChannelPool<>(requester, String.class, 4);
+   }
+
+   @Benchmark
+   public Channel<String> establishAndClose() throws Exception {
+      Channel<String> channel = requester.establishNewChannel(String.class, 1000);
+      channel.close();
+      return channel;
+   }
+
+   @Benchmark
+   public Channel<String> poolLeaseAndRelease() throws Exception {
+      Channel<String> channel = pool.lease(1000);
+      pool.release(channel);
+      return channel;
+   }
+
+   @Benchmark
+   public Channel<String> pipelinedSendAndClose() throws Exception {
+      Channel<String> channel = requester.openPipelined(String.class, null, null);
+      channel.send("msg");
+      channel.close();
+      return channel;
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BURST)
+   public void openAsyncBurst() throws Exception {
+      CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+      for (int i = 0; i < BURST; i++)
+         futures[i] = requester.openAsync(String.class, null, Duration.ofSeconds(1));
+
+      for (CompletableFuture<?> future : futures)
+         ((Channel<?>) future.get()).close();
+   }
+
+   @Benchmark
+   @OperationsPerInvocation(BURST)
+   public void establishBatch() throws Exception {
+      for (CompletableFuture<Channel<String>> future : requester.establishNewChannels(String.class,
+                                                                                    BURST,
+                                                                                    Duration.ofSeconds(1)))
+         future.get().close();
+   }
+
+   @TearDown
+   public void tearDown() {
+      pool.close();
+      requester.close();
+      receiver.close();
+   }
+}
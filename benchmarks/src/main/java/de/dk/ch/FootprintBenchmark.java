@@ -0,0 +1,104 @@
+package de.dk.ch;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the channel table of the multiplexer with the former layout of two
+ * <code>ConcurrentHashMap&lt;Long, ...&gt;</code>s (channels and their handlers).
+ * The <code>fill</code> benchmarks build a table of <code>channels</code> entries once per operation,
+ * the <code>gc.alloc.rate.norm</code> of the gc profiler divided by <code>channels</code> is the heap
+ * allocated per channel (including the garbage of growing the table).
+ * The <code>lookup</code> benchmarks measure the lookup of a received packet's channel.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FootprintBenchmark {
+   @Param({"1000", "1000000"})
+   private int channels;
+
+   private Object[] values;
+
+   @Setup
+   public void setUp() {
+      this.values = new Object[channels];
+      for (int i = 0; i < channels; i++)
+         values[i] = new Object();
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SingleShotTime)
+   public Object fillBoxedMaps() {
+      Map<Long, Object> channelMap = new ConcurrentHashMap<>();
+      Map<Long, Object> handlerMap = new ConcurrentHashMap<>();
+      for (int i = 0; i < channels; i++) {
+         channelMap.put((long) i, values[i]);
+         handlerMap.put((long) i, values[i]);
+      }
+      return new Object[] {channelMap, handlerMap};
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.SingleShotTime)
+   public Object fillLongTable() {
+      LongTable<Object> table = new LongTable<>();
+      for (int i = 0; i < channels; i++)
+         table.put(i, values[i]);
+
+      return table;
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   public Object lookupBoxedMap(Filled filled) {
+      return filled.map.get(filled.nextKey());
+   }
+
+   @Benchmark
+   @BenchmarkMode(Mode.Throughput)
+   public Object lookupLongTable(Filled filled) {
+      return filled.table.get(filled.nextKey());
+   }
+
+   @State(Scope.Thread)
+   public static class Filled {
+      private final Map<Long, Object> map = new ConcurrentHashMap<>();
+      private final LongTable<Object> table = new LongTable<>();
+      private int size;
+      private long key;
+
+      @Setup(Level.Trial)
+      public void setUp(FootprintBenchmark benchmark) {
+         this.size = benchmark.channels;
+         for (int i = 0; i < size; i++) {
+            map.put((long) i, benchmark.values[i]);
+            table.put(i, benchmark.values[i]);
+         }
+      }
+
+      long nextKey() {
+         key = key + 1 == size ? 0 : key + 1;
+         return key;
+      }
+   }
+}
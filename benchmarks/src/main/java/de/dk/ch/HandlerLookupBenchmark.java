@@ -0,0 +1,82 @@
+package de.dk.ch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resolution of the channel handler for the type of a new channel request.
+ * <code>exactType</code> hits a handler registered for the requested type,
+ * <code>deepSubtype</code> has to resolve the handler of a supertype five levels up and
+ * <code>deepInterface</code> the handler of an interface implemented five levels up.
+ * Resolved handlers are cached per type, so all three should cost one lookup.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerLookupBenchmark {
+   private Multiplexer multiplexer;
+
+   @Setup
+   public void setUp() {
+      ChannelHandler<Level0> handler = ChannelHandler.of(Level0.class, (channel, initialMsg) -> {});
+      ChannelHandler<String> stringHandler = ChannelHandler.of(String.class, (channel, initialMsg) -> {});
+      ChannelHandler<Marker> markerHandler = ChannelHandler.of(Marker.class, (channel, initialMsg) -> {});
+      this.multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(),
+                                         new LoopbackSender(),
+                                         handler,
+                                         stringHandler,
+                                         markerHandler);
+   }
+
+   @Benchmark
+   public ChannelHandler<?> exactType() {
+      return multiplexer.getHandlerFor(String.class);
+   }
+
+   @Benchmark
+   public ChannelHandler<?> deepSubtype() {
+      return multiplexer.getHandlerFor(Level5.class);
+   }
+
+   @Benchmark
+   public ChannelHandler<?> deepInterface() {
+      return multiplexer.getHandlerFor(Marked5.class);
+   }
+
+   @TearDown
+   public void tearDown() {
+      multiplexer.close();
+   }
+
+   public static class Level0 {}
+   public static class Level1 extends Level0 {}
+   public static class Level2 extends Level1 {}
+   public static class Level3 extends Level2 {}
+   public static class Level4 extends Level3 {}
+   public static class Level5 extends Level4 {}
+
+   public static interface Marker {}
+   public static class Marked0 implements Marker {}
+   public static class Marked1 extends Marked0 {}
+   public static class Marked2 extends Marked1 {}
+   public static class Marked3 extends Marked2 {}
+   public static class Marked4 extends Marked3 {}
+   public static class Marked5 extends Marked4 {}
+}
@@ -0,0 +1,51 @@
+package de.dk.ch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the id generators with 64 threads generating ids of one shared generator.
+ * <code>simple</code> increments one shared counter per id,
+ * <code>partitioned</code> touches the shared counter once per block of ids.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class IdGeneratorBenchmark {
+   private IDGenerator simple;
+   private IDGenerator partitioned;
+
+   @Setup
+   public void setUp() {
+      this.simple = new SimpleIterativeIdGenerator();
+      this.partitioned = new PartitionedIdGenerator(false);
+   }
+
+   @Benchmark
+   public long simple() {
+      return simple.nextId();
+   }
+
+   @Benchmark
+   public long partitioned() {
+      return partitioned.nextId();
+   }
+}
@@ -0,0 +1,52 @@
+package de.dk.ch;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the delivery of a received message to the listeners of a channel.
+ * The gc profiler of the {@link BenchmarkRunner} should report no allocation per delivered message.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerChainBenchmark {
+   @Param({"1", "4"})
+   private int listeners;
+
+   private Channel<String> channel;
+   private PayloadPacket packet;
+
+   @Setup
+   public void setUp(Blackhole blackhole) throws Exception {
+      this.channel = new Channel<>(1, msg -> {}, null);
+      channel.setState(ChannelState.OPEN);
+      for (int i = 0; i < listeners; i++)
+         channel.addListener(blackhole::consume);
+
+      this.packet = new PayloadPacket(1, "payload");
+   }
+
+   @Benchmark
+   public void receive() throws ClosedException {
+      channel.receive(packet);
+   }
+}
@@ -0,0 +1,45 @@
+package de.dk.ch;
+
+import java.io.Serializable;
+
+/**
+ * An in-memory sender, that hands every message synchronously to the receiver on the other end.
+ * Two connected loopback senders behave like a zero latency link between two multiplexers.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class LoopbackSender implements Sender {
+   private Receiver target;
+
+   public LoopbackSender() {
+
+   }
+
+   /**
+    * Creates two multiplexers that are connected through loopback senders.
+    *
+    * @param handlersA The channel handlers of the first multiplexer
+    * @param handlersB The channel handlers of the second multiplexer
+    *
+    * @return An array of length 2 containing the connected multiplexers
+    */
+   public static Multiplexer[] connectedPair(ChannelHandler<?>[] handlersA, ChannelHandler<?>[] handlersB) {
+      LoopbackSender senderA = new LoopbackSender();
+      LoopbackSender senderB = new LoopbackSender();
+      Multiplexer a = new Multiplexer(new SimpleIterativeIdGenerator(true), senderA, handlersA);
+      Multiplexer b = new Multiplexer(new SimpleIterativeIdGenerator(false), senderB, handlersB);
+      senderA.connect(b);
+      senderB.connect(a);
+      return new Multiplexer[] {a, b};
+   }
+
+   public void connect(Receiver target) {
+      this.target = target;
+   }
+
+   @Override
+   public void send(Serializable msg) {
+      target.receive(msg);
+   }
+}
@@ -0,0 +1,82 @@
+package de.dk.ch;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures <code>Channel.send</code>.
+ * <code>loopback</code> delivers every message to a listener of the remote channel,
+ * <code>discarding</code> measures the send path alone with a sender that drops every message.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendBenchmark {
+   private static final String MSG = "payload";
+
+   private Multiplexer requester;
+   private Multiplexer receiver;
+   private Channel<String> loopbackChannel;
+   private Channel<String> discardingChannel;
+
+   private Blackhole blackhole;
+
+   @Setup
+   public void setUp(Blackhole blackhole) throws Exception {
+      this.blackhole = blackhole;
+      ChannelHandler<String> handler = ChannelHandler.of(String.class, this::accept);
+      Multiplexer[] pair = LoopbackSender.connectedPair(new ChannelHandler<?>[0],
+                                                        new ChannelHandler<?>[] {handler});
+      this.requester = pair[0];
+      this.receiver = pair[1];
+      this.loopbackChannel = requester.establishNewChannel(String.class, 1000);
+
+      Sender discarding = SendBenchmark::discard;
+      this.discardingChannel = new Channel<>(0, discarding, null);
+      discardingChannel.setState(ChannelState.OPEN);
+   }
+
+   private static void discard(Serializable msg) {
+      // Nothing to do here
+   }
+
+   private void accept(Channel<String> channel, Optional<String> initialMessage) {
+      channel.addListener(blackhole::consume);
+   }
+
+   @Benchmark
+   public void loopback() throws Exception {
+      loopbackChannel.send(MSG);
+   }
+
+   @Benchmark
+   public void discarding() throws Exception {
+      discardingChannel.send(MSG);
+   }
+
+   @TearDown
+   public void tearDown() {
+      requester.close();
+      receiver.close();
+   }
+}
@@ -0,0 +1,70 @@
+package de.dk.ch;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>Channel.send</code> of several producer threads sharing one open channel.
+ * The sender drops every message and is thread-safe, so the throughput only depends on the channel itself.
+ * The total throughput should grow with the number of threads.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SendScalingBenchmark {
+   private static final String MSG = "payload";
+
+   private Channel<String> channel;
+
+   @Setup
+   public void setUp() throws Exception {
+      this.channel = new Channel<>(0, SendScalingBenchmark::discard, null);
+      channel.setState(ChannelState.OPEN);
+   }
+
+   private static void discard(Serializable msg) {
+      // Nothing to do here
+   }
+
+   @Benchmark
+   @Threads(1)
+   public void producers1() throws Exception {
+      channel.send(MSG);
+   }
+
+   @Benchmark
+   @Threads(2)
+   public void producers2() throws Exception {
+      channel.send(MSG);
+   }
+
+   @Benchmark
+   @Threads(4)
+   public void producers4() throws Exception {
+      channel.send(MSG);
+   }
+
+   @Benchmark
+   @Threads(8)
+   public void producers8() throws Exception {
+      channel.send(MSG);
+   }
+}
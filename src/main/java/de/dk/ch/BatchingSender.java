@@ -0,0 +1,292 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sender, that sits in front of another sender and coalesces the packets of all channels
+ * into {@link PacketBatch}es, so many small messages cost only one send of the underlying sender.
+ * A batch is sent when it is full, when the linger time after its first packet expired
+ * or when it is flushed explicitly, e.g. by {@link Multiplexer#flush()}.
+ * The packets keep the order in which they were sent, so the order of each channel is preserved.
+ * Control packets ({@link ChannelPacket}s) are latency sensitive, they are sent at once
+ * together with the packets collected before them.
+ * A batch, whose linger time expired, is sent by a worker thread, not by the shared scheduler thread.
+ * The lock of this sender is not held while a batch is sent through the underlying sender.
+ * The batches are sent one after another by one thread. Other threads wait for their turn,
+ * except for the I/O thread of the underlying transport, e.g. the event loop of a {@link NioConnection}.
+ * It only queues its batch, which is sent by the thread, that is sending, so it never waits for a thread,
+ * that waits for the transport.
+ * A batch, that could not be sent, is dropped. The failure is thrown to the thread, that sent the batch,
+ * so a caller, that sends its message again, does not send it twice.
+ * The batches queued behind it stay queued until the next send or flush.
+ * If sending a batch after the linger time fails, no caller can be told, the failure is reported
+ * to the linger failure handler instead. A multiplexer sending through a <code>BatchingSender</code>,
+ * directly or through a <code>FairScheduler</code> in front of it, sets itself as that handler and closes.
+ *
+ * A {@link FairScheduler} can sit in front of a <code>BatchingSender</code>, the batches are filled in its order.
+ * A <code>BatchingSender</code> in front of a <code>FairScheduler</code> is not supported,
+ * the scheduler sends the batches as control packets without interleaving the channels.
+ *
+ * <pre>
+ * Multiplexer multiplexer = new Multiplexer(idGenerator, new BatchingSender(sender, 64, 200), handlers);
+ * NioConnection connection = ...;
+ * Sender sender = new FairScheduler(new BatchingSender(connection, 64, 200));
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class BatchingSender implements Sender, Flushable, Closeable {
+   private static final Logger log = LoggerFactory.getLogger(BatchingSender.class);
+
+   private final Sender target;
+   private final int maxBatchSize;
+   private final long lingerMicros;
+   // Tells whether the calling thread is the I/O thread of the target, that must never wait
+   private final BooleanSupplier ioThread;
+
+   private List<Packet> batch;
+   // The batches and other messages, that are ready to be sent in order
+   private final Queue<Serializable> ready = new ArrayDeque<>();
+   // The thread sending the queued batches, it must not wait for itself
+   private Thread sending;
+   private ScheduledFuture<?> lingerTimeout;
+   // Advanced by each flush, so a linger timeout, that already expired for a flushed batch, is ignored
+   private long lingerGeneration;
+   private volatile Consumer<? super IOException> lingerFailureHandler;
+
+   /**
+    * Creates a new batching sender.
+    *
+    * @param target The sender to send the batches with
+    * @param maxBatchSize The maximum number of packets of a batch
+    * @param lingerMicros The maximum time in microseconds a packet waits for more packets to fill its batch.
+    * 0 to only send full or explicitly flushed batches
+    *
+    * @throws IllegalArgumentException If <code>maxBatchSize</code> is smaller than 1
+    * or <code>lingerMicros</code> is negative
+    */
+   public BatchingSender(Sender target, int maxBatchSize, long lingerMicros) throws IllegalArgumentException {
+      this(target, maxBatchSize, lingerMicros, NioConnection.ioThreadOf(target));
+   }
+
+   /**
+    * Creates a new batching sender.
+    *
+    * @param target The sender to send the batches with
+    * @param maxBatchSize The maximum number of packets of a batch
+    * @param lingerMicros The maximum time in microseconds a packet waits for more packets to fill its batch.
+    * 0 to only send full or explicitly flushed batches
+    * @param ioThread Tells whether the calling thread is the I/O thread of the target.
+    * That thread never waits for another thread sending a batch.
+    *
+    * @throws IllegalArgumentException If <code>maxBatchSize</code> is smaller than 1
+    * or <code>lingerMicros</code> is negative
+    */
+   public BatchingSender(Sender target,
+                         int maxBatchSize,
+                         long lingerMicros,
+                         BooleanSupplier ioThread) throws IllegalArgumentException {
+      if (maxBatchSize < 1)
+         throw new IllegalArgumentException("The maximum batch size must be at least 1: " + maxBatchSize);
+      if (lingerMicros < 0)
+         throw new IllegalArgumentException("The linger time must not be negative: " + lingerMicros);
+
+      this.target = Objects.requireNonNull(target);
+      this.maxBatchSize = maxBatchSize;
+      this.lingerMicros = lingerMicros;
+      this.ioThread = Objects.requireNonNull(ioThread);
+      this.batch = new ArrayList<>(maxBatchSize);
+   }
+
+   @Override
+   public void send(Serializable msg) throws IOException {
+      synchronized (this) {
+         if (!(msg instanceof Packet)) {
+            detach();
+            ready.offer(msg);
+         } else {
+            batch.add((Packet) msg);
+            if (batch.size() < maxBatchSize && !(msg instanceof ChannelPacket)) {
+               if (batch.size() == 1 && lingerMicros > 0)
+                  scheduleLinger();
+
+               return;
+            }
+            detach();
+         }
+      }
+      sendReady();
+   }
+
+   private void scheduleLinger() {
+      long generation = lingerGeneration;
+      Runnable flush = () -> lingerExpired(generation);
+      lingerTimeout = SharedScheduler.get().schedule(() -> SharedScheduler.worker().execute(flush),
+                                                     lingerMicros,
+                                                     TimeUnit.MICROSECONDS);
+   }
+
+   /**
+    * Sends the packets collected so far.
+    * If the batch could not be sent, it is dropped.
+    *
+    * @throws IOException If an I/O error occurs while sending the batch
+    */
+   @Override
+   public void flush() throws IOException {
+      synchronized (this) {
+         detach();
+      }
+      sendReady();
+   }
+
+   /**
+    * Closes the current batch and queues it to be sent.
+    * Must be called with the lock of this sender.
+    */
+   private void detach() {
+      lingerGeneration++;
+      if (lingerTimeout != null) {
+         lingerTimeout.cancel(false);
+         lingerTimeout = null;
+      }
+      if (batch.isEmpty())
+         return;
+
+      // The batch is replaced before it is sent, the sending thread is told, if it fails
+      ready.offer(batch.size() == 1 ? batch.get(0) : new PacketBatch(batch));
+      this.batch = new ArrayList<>(maxBatchSize);
+   }
+
+   /**
+    * Sends the queued batches in their order, unless the I/O thread of the target finds another thread sending.
+    * Other threads wait until the sending thread is done, so they cannot queue batches without limit.
+    */
+   private void sendReady() throws IOException {
+      synchronized (this) {
+         if (!awaitTurn())
+            return;
+
+         sending = Thread.currentThread();
+      }
+
+      try {
+         while (true) {
+            Serializable next;
+            synchronized (this) {
+               next = ready.poll();
+               if (next == null)
+                  break;
+            }
+            target.send(next);
+         }
+      } finally {
+         synchronized (this) {
+            sending = null;
+            notifyAll();
+         }
+      }
+
+      if (target instanceof Flushable)
+         ((Flushable) target).flush();
+   }
+
+   /**
+    * Waits until no other thread is sending.
+    * Must be called with the lock of this sender.
+    *
+    * @return <code>true</code> if there are queued batches to be sent by the calling thread
+    */
+   private boolean awaitTurn() throws InterruptedIOException {
+      // The sending thread itself, e.g. receiving an answer through the target, sends the batch with the others
+      if (sending != null && (sending == Thread.currentThread() || ioThread.getAsBoolean()))
+         return false;
+
+      while (sending != null) {
+         try {
+            wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a batch.");
+         }
+      }
+      return !ready.isEmpty();
+   }
+
+   private void lingerExpired(long generation) {
+      synchronized (this) {
+         if (generation != lingerGeneration)
+            return;
+
+         detach();
+      }
+
+      IOException failure;
+      try {
+         sendReady();
+         return;
+      } catch (IOException e) {
+         failure = e;
+      }
+
+      // The handler is called without holding the lock, it may send through this sender again
+      Consumer<? super IOException> handler = this.lingerFailureHandler;
+      if (handler == null)
+         log.warn("Could not send batch after the linger time expired.", failure);
+      else
+         handler.accept(failure);
+   }
+
+   /**
+    * Set the handler of the failures to send a batch after its linger time expired.
+    * The handler is called by the worker thread, that sent the batch.
+    *
+    * @param lingerFailureHandler The handler or <code>null</code> to only log the failures
+    */
+   public void setLingerFailureHandler(Consumer<? super IOException> lingerFailureHandler) {
+      this.lingerFailureHandler = lingerFailureHandler;
+   }
+
+   public Consumer<? super IOException> getLingerFailureHandler() {
+      return lingerFailureHandler;
+   }
+
+   /**
+    * Sends the packets collected so far.
+    *
+    * @throws IOException If an I/O error occurs while sending the batch
+    */
+   @Override
+   public void close() throws IOException {
+      flush();
+   }
+
+   public Sender getTarget() {
+      return target;
+   }
+
+   public int getMaxBatchSize() {
+      return maxBatchSize;
+   }
+
+   public long getLingerMicros() {
+      return lingerMicros;
+   }
+}
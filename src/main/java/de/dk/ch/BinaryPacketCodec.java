@@ -0,0 +1,484 @@
+package de.dk.ch;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * A compact packet codec with a fixed binary frame layout:
+ * <pre>
+ * +--------+-------------------+------------------+-------------+
+ * | kind   | channelId         | length           | body        |
+ * | 1 byte | zigzag varint     | varint           | length bytes|
+ * +--------+-------------------+------------------+-------------+
+ * </pre>
+ * Control packets without any further information consist of the header only.
+ * Payloads of type <code>byte[]</code> and <code>String</code> are written as they are,
+ * all other payloads are converted by the {@link PayloadSerializer} of this codec.
+ * No packet is written with the java serialization.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class BinaryPacketCodec implements PacketCodec {
+   static final byte KIND_PAYLOAD = 0;
+   static final byte KIND_NEW = 1;
+   static final byte KIND_OK = 2;
+   static final byte KIND_REFUSED = 3;
+   static final byte KIND_CLOSE = 4;
+   static final byte KIND_CLOSE_MSG = 5;
+   static final byte KIND_ACCEPTED = 6;
+   static final byte KIND_WINDOW_UPDATE = 7;
+   static final byte KIND_BATCH = 8;
+   static final byte KIND_RESET = 9;
+   static final byte KIND_FRAGMENT = 10;
+   static final byte KIND_PING = 11;
+   static final byte KIND_PONG = 12;
+
+   private static final byte PAYLOAD_NULL = 0;
+   private static final byte PAYLOAD_BYTES = 1;
+   private static final byte PAYLOAD_STRING = 2;
+   private static final byte PAYLOAD_SERIALIZED = 3;
+
+   // Flags of a NEW frame
+   private static final int FLAG_PIPELINED = 1;
+   private static final int FLAG_COMPRESSIONS = 2;
+   // Flags of a FRAGMENT frame
+   private static final int FLAG_LAST = 1;
+   private static final int FLAG_COMPRESSED = 2;
+
+   private static final byte EXCEPTION_NONE = 0;
+   private static final byte EXCEPTION_DECLINED = 1;
+   private static final byte EXCEPTION_OTHER = 2;
+
+   private static final int MAX_VARINT_SIZE = 5;
+   private static final int MAX_VARLONG_SIZE = 10;
+   private static final int MAX_HEADER_SIZE = 1 + MAX_VARLONG_SIZE + MAX_VARINT_SIZE;
+
+   private final PayloadSerializer serializer;
+   private final ClassLoader classLoader;
+   private final Map<String, Class<?>> types = new ConcurrentHashMap<>();
+
+   /**
+    * Creates a new binary packet codec.
+    *
+    * @param serializer The serializer for payloads that are neither <code>byte[]</code> nor <code>String</code>
+    * @param classLoader The class loader to resolve the types of new channel requests with
+    */
+   public BinaryPacketCodec(PayloadSerializer serializer, ClassLoader classLoader) {
+      this.serializer = Objects.requireNonNull(serializer);
+      this.classLoader = classLoader;
+   }
+
+   /**
+    * Creates a new binary packet codec.
+    *
+    * @param serializer The serializer for payloads that are neither <code>byte[]</code> nor <code>String</code>
+    */
+   public BinaryPacketCodec(PayloadSerializer serializer) {
+      this(serializer, BinaryPacketCodec.class.getClassLoader());
+   }
+
+   /**
+    * Creates a new binary packet codec, that serializes payloads with the java serialization.
+    */
+   public BinaryPacketCodec() {
+      this(new JavaPayloadSerializer());
+   }
+
+   @Override
+   public ByteBuffer encode(Packet packet) throws IOException {
+      FrameWriter writer = new FrameWriter();
+      byte kind;
+      if (packet instanceof PayloadPacket) {
+         kind = KIND_PAYLOAD;
+         PayloadPacket payload = (PayloadPacket) packet;
+         writePayload(writer, payload.getPayload(), payload.getSerialized(serializer));
+      } else if (packet instanceof FragmentPacket) {
+         kind = KIND_FRAGMENT;
+         FragmentPacket fragment = (FragmentPacket) packet;
+         writer.writeByte(fragment.getEncoding());
+         writer.writeVarLong((fragment.isLast() ? FLAG_LAST : 0) | (fragment.isCompressed() ? FLAG_COMPRESSED : 0));
+         writer.writeBytes(fragment.getData());
+      } else if (packet instanceof NewChannelRequestPacket) {
+         kind = KIND_NEW;
+         NewChannelRequestPacket request = (NewChannelRequestPacket) packet;
+         writer.writeString(request.getType().getName());
+         writer.writeVarLong(request.getWindow());
+         writer.writeVarLong(request.getWeight());
+         List<String> compressions = request.getCompressions();
+         writer.writeVarLong((request.isPipelined() ? FLAG_PIPELINED : 0)
+                             | (compressions.isEmpty() ? 0 : FLAG_COMPRESSIONS));
+         if (!compressions.isEmpty()) {
+            writer.writeVarLong(compressions.size());
+            for (String compression : compressions)
+               writer.writeString(compression);
+         }
+         writePayload(writer, request.getInitialMessage().orElse(null), null);
+      } else if (packet instanceof ChannelRefusedPacket) {
+         kind = KIND_REFUSED;
+         writeRefused(writer, (ChannelRefusedPacket) packet);
+      } else if (packet instanceof PacketBatch) {
+         kind = KIND_BATCH;
+         for (Packet p : ((PacketBatch) packet).getPackets())
+            writer.writeBytes(encode(p));
+      } else if (packet instanceof ChannelAcceptedPacket) {
+         kind = KIND_ACCEPTED;
+         ChannelAcceptedPacket accepted = (ChannelAcceptedPacket) packet;
+         writer.writeVarLong(accepted.getWindow());
+         // The compression is only written if one was chosen
+         if (accepted.getCompression() != null)
+            writer.writeString(accepted.getCompression());
+      } else if (packet instanceof WindowUpdatePacket) {
+         kind = KIND_WINDOW_UPDATE;
+         writer.writeVarLong(((WindowUpdatePacket) packet).getCredit());
+      } else if (packet instanceof PingPacket) {
+         PingPacket ping = (PingPacket) packet;
+         kind = ping.getPacketType() == ChannelPacketType.PING ? KIND_PING : KIND_PONG;
+         writer.writeVarLong(zigzag(ping.getTimestamp()));
+      } else if (packet instanceof CloseChannelPacket) {
+         kind = KIND_CLOSE_MSG;
+         writer.writeString(((CloseChannelPacket) packet).getMsg());
+      } else if (packet instanceof ChannelPacket) {
+         kind = kindOf(((ChannelPacket) packet).getPacketType());
+      } else {
+         throw new IOException("Unknown packet type: " + packet.getClass().getName());
+      }
+
+      return writer.toFrame(kind, packet.channelId);
+   }
+
+   private static byte kindOf(ChannelPacketType type) throws IOException {
+      switch (type) {
+      case OK:
+         return KIND_OK;
+      case CLOSE:
+         return KIND_CLOSE;
+      case RESET:
+         return KIND_RESET;
+      default:
+         throw new IOException("ChannelPacket of type " + type + " without the matching packet class.");
+      }
+   }
+
+   /**
+    * @param serialized The payload, that has already been serialized by the serializer of this codec, or <code>null</code>
+    */
+   private void writePayload(FrameWriter writer, Object payload, byte[] serialized) throws IOException {
+      if (payload == null) {
+         writer.writeByte(PAYLOAD_NULL);
+      } else if (payload instanceof byte[]) {
+         writer.writeByte(PAYLOAD_BYTES);
+         writer.writeBytes((byte[]) payload);
+      } else if (payload instanceof String) {
+         writer.writeByte(PAYLOAD_STRING);
+         writer.writeBytes(((String) payload).getBytes(UTF_8));
+      } else {
+         writer.writeByte(PAYLOAD_SERIALIZED);
+         writer.writeBytes(serialized != null ? serialized : serializer.serialize(payload));
+      }
+   }
+
+   private static void writeRefused(FrameWriter writer, ChannelRefusedPacket packet) {
+      Exception exception = packet.getException();
+      if (exception == null)
+         writer.writeByte(EXCEPTION_NONE);
+      else if (exception instanceof ChannelDeclinedException)
+         writer.writeByte(EXCEPTION_DECLINED);
+      else
+         writer.writeByte(EXCEPTION_OTHER);
+
+      writer.writeString(packet.getMsg());
+      if (exception != null)
+         writer.writeString(exception.getMessage());
+   }
+
+   @Override
+   public Packet decode(ByteBuffer buffer) throws IOException {
+      int start = buffer.position();
+      if (!buffer.hasRemaining())
+         return null;
+
+      byte kind = buffer.get(start);
+      int idSize = varSize(buffer, start + 1, MAX_VARLONG_SIZE);
+      if (idSize < 0)
+         return null;
+
+      int lengthSize = varSize(buffer, start + 1 + idSize, MAX_VARINT_SIZE);
+      if (lengthSize < 0)
+         return null;
+
+      buffer.position(start + 1);
+      long channelId = unzigzag(readVarLong(buffer));
+      long length = readVarLong(buffer);
+      if (length < 0 || length > Integer.MAX_VALUE)
+         throw new IOException("Corrupt frame with invalid length " + length);
+
+      if (buffer.remaining() < length) {
+         buffer.position(start);
+         return null;
+      }
+
+      int end = buffer.position() + (int) length;
+      ByteBuffer body = buffer.duplicate();
+      body.limit(end);
+      buffer.position(end);
+      return decodeBody(kind, channelId, body);
+   }
+
+   private Packet decodeBody(byte kind, long channelId, ByteBuffer body) throws IOException {
+      switch (kind) {
+      case KIND_PAYLOAD:
+         return new PayloadPacket(channelId, readPayload(body));
+      case KIND_NEW:
+         Class<?> type = resolve(readString(body));
+         int window = (int) readVarLong(body);
+         int weight = (int) readVarLong(body);
+         long flags = readVarLong(body);
+         List<String> compressions = null;
+         if ((flags & FLAG_COMPRESSIONS) != 0) {
+            int count = (int) readVarLong(body);
+            compressions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+               compressions.add(readString(body));
+         }
+         return new NewChannelRequestPacket(channelId,
+                                            type,
+                                            readPayload(body),
+                                            window,
+                                            weight,
+                                            (flags & FLAG_PIPELINED) != 0,
+                                            compressions);
+      case KIND_OK:
+         return new ChannelPacket(channelId, ChannelPacketType.OK);
+      case KIND_REFUSED:
+         return readRefused(channelId, body);
+      case KIND_CLOSE:
+         return new ChannelPacket(channelId, ChannelPacketType.CLOSE);
+      case KIND_RESET:
+         return new ChannelPacket(channelId, ChannelPacketType.RESET);
+      case KIND_CLOSE_MSG:
+         return new CloseChannelPacket(channelId, readString(body));
+      case KIND_ACCEPTED:
+         int acceptedWindow = (int) readVarLong(body);
+         return new ChannelAcceptedPacket(channelId, acceptedWindow, body.hasRemaining() ? readString(body) : null);
+      case KIND_WINDOW_UPDATE:
+         return new WindowUpdatePacket(channelId, (int) readVarLong(body));
+      case KIND_BATCH:
+         return readBatch(body);
+      case KIND_PING:
+         return new PingPacket(ChannelPacketType.PING, unzigzag(readVarLong(body)));
+      case KIND_PONG:
+         return new PingPacket(ChannelPacketType.PONG, unzigzag(readVarLong(body)));
+      case KIND_FRAGMENT:
+         byte encoding = body.get();
+         long fragmentFlags = readVarLong(body);
+         byte[] data = new byte[body.remaining()];
+         body.get(data);
+         return new FragmentPacket(channelId,
+                                   encoding,
+                                   (fragmentFlags & FLAG_LAST) != 0,
+                                   (fragmentFlags & FLAG_COMPRESSED) != 0,
+                                   data);
+      default:
+         throw new IOException("Corrupt frame of unknown kind " + kind);
+      }
+   }
+
+   private PacketBatch readBatch(ByteBuffer body) throws IOException {
+      List<Packet> packets = new ArrayList<>();
+      while (body.hasRemaining()) {
+         Packet packet = decode(body);
+         if (packet == null)
+            throw new IOException("Corrupt batch with a truncated frame");
+
+         packets.add(packet);
+      }
+      return new PacketBatch(packets);
+   }
+
+   private Object readPayload(ByteBuffer body) throws IOException {
+      byte encoding = body.get();
+      switch (encoding) {
+      case PAYLOAD_NULL:
+         return null;
+      case PAYLOAD_BYTES:
+         byte[] bytes = new byte[body.remaining()];
+         body.get(bytes);
+         return bytes;
+      case PAYLOAD_STRING:
+         return readString(body, body.remaining());
+      case PAYLOAD_SERIALIZED:
+         if (body.hasArray())
+            return serializer.deserialize(body.array(), body.arrayOffset() + body.position(), body.remaining());
+
+         byte[] data = new byte[body.remaining()];
+         body.get(data);
+         return serializer.deserialize(data, 0, data.length);
+      default:
+         throw new IOException("Corrupt payload with unknown encoding " + encoding);
+      }
+   }
+
+   private static ChannelRefusedPacket readRefused(long channelId, ByteBuffer body) throws IOException {
+      byte exceptionType = body.get();
+      String msg = readString(body);
+      switch (exceptionType) {
+      case EXCEPTION_NONE:
+         return new ChannelRefusedPacket(channelId, msg);
+      case EXCEPTION_DECLINED:
+         return new ChannelRefusedPacket(channelId, msg, new ChannelDeclinedException(readString(body)));
+      case EXCEPTION_OTHER:
+         return new ChannelRefusedPacket(channelId, msg, new IOException(readString(body)));
+      default:
+         throw new IOException("Corrupt ChannelRefusedPacket with unknown exception type " + exceptionType);
+      }
+   }
+
+   private Class<?> resolve(String typeName) throws IOException {
+      Class<?> type = types.get(typeName);
+      if (type != null)
+         return type;
+
+      try {
+         type = Class.forName(typeName, false, classLoader);
+      } catch (ClassNotFoundException e) {
+         throw new IOException("Unknown type of new channel request: " + typeName, e);
+      }
+      types.put(typeName, type);
+      return type;
+   }
+
+   private static String readString(ByteBuffer body) throws IOException {
+      int length = (int) readVarLong(body) - 1;
+      if (length < 0)
+         return null;
+
+      if (length > body.remaining())
+         throw new IOException("Corrupt string of length " + length);
+
+      return readString(body, length);
+   }
+
+   private static String readString(ByteBuffer body, int length) {
+      if (!body.hasArray()) {
+         byte[] bytes = new byte[length];
+         body.get(bytes);
+         return new String(bytes, UTF_8);
+      }
+
+      int offset = body.arrayOffset() + body.position();
+      body.position(body.position() + length);
+      return new String(body.array(), offset, length, UTF_8);
+   }
+
+   private static int varSize(ByteBuffer buffer, int index, int maxSize) throws IOException {
+      for (int i = 0; i < maxSize; i++) {
+         if (index + i >= buffer.limit())
+            return -1;
+
+         if ((buffer.get(index + i) & 0x80) == 0)
+            return i + 1;
+      }
+      throw new IOException("Corrupt frame with a varint longer than " + maxSize + " bytes");
+   }
+
+   private static long readVarLong(ByteBuffer buffer) throws IOException {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         if (!buffer.hasRemaining())
+            throw new IOException("Corrupt frame with a truncated varint");
+
+         byte b = buffer.get();
+         value |= (long) (b & 0x7F) << shift;
+         if ((b & 0x80) == 0)
+            return value;
+      }
+      throw new IOException("Corrupt frame with a varint longer than " + MAX_VARLONG_SIZE + " bytes");
+   }
+
+   private static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+   }
+
+   private static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   /**
+    * Collects the body of a frame behind enough space for the largest possible header,
+    * so the header can be placed right in front of the body without copying it.
+    */
+   private static class FrameWriter {
+      private byte[] buffer = new byte[64];
+      private int size = MAX_HEADER_SIZE;
+
+      private void ensureCapacity(int additional) {
+         if (size + additional > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+      }
+
+      void writeByte(byte b) {
+         ensureCapacity(1);
+         buffer[size++] = b;
+      }
+
+      void writeBytes(byte[] bytes) {
+         ensureCapacity(bytes.length);
+         System.arraycopy(bytes, 0, buffer, size, bytes.length);
+         size += bytes.length;
+      }
+
+      void writeBytes(ByteBuffer bytes) {
+         ensureCapacity(bytes.remaining());
+         int length = bytes.remaining();
+         bytes.get(buffer, size, length);
+         size += length;
+      }
+
+      void writeVarLong(long value) {
+         ensureCapacity(MAX_VARLONG_SIZE);
+         size = putVarLong(buffer, size, value);
+      }
+
+      void writeString(String string) {
+         if (string == null) {
+            writeVarLong(0);
+            return;
+         }
+         byte[] bytes = string.getBytes(UTF_8);
+         writeVarLong(bytes.length + 1L);
+         writeBytes(bytes);
+      }
+
+      ByteBuffer toFrame(byte kind, long channelId) {
+         int bodyLength = size - MAX_HEADER_SIZE;
+         byte[] header = new byte[MAX_HEADER_SIZE];
+         header[0] = kind;
+         int headerSize = putVarLong(header, 1, zigzag(channelId));
+         headerSize = putVarLong(header, headerSize, bodyLength);
+
+         int start = MAX_HEADER_SIZE - headerSize;
+         System.arraycopy(header, 0, buffer, start, headerSize);
+         return ByteBuffer.wrap(buffer, start, headerSize + bodyLength);
+      }
+
+      private static int putVarLong(byte[] target, int index, long value) {
+         while ((value & ~0x7FL) != 0) {
+            target[index++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+         }
+         target[index++] = (byte) value;
+         return index;
+      }
+   }
+}
@@ -0,0 +1,37 @@
+package de.dk.ch;
+
+/**
+ * Counts the bytes, that a transport wrote and read for the packets of a receiver.
+ * A transport, that encodes the packets, reports the size of each encoded packet to its byte counter,
+ * e.g. a {@link NioConnection} to the metrics of its multiplexer:
+ *
+ * <pre>
+ * loop.listen(address, connection -&gt; {
+ *    Multiplexer multiplexer = new Multiplexer(idGenerator, connection, handlers);
+ *    connection.setByteCounter(multiplexer.getMetrics());
+ *    return multiplexer;
+ * });
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see MultiplexerMetrics
+ */
+public interface ByteCounter {
+   /**
+    * Called by a transport, that encoded a packet to be sent.
+    *
+    * @param packet The encoded packet
+    * @param bytes The size of the encoded packet
+    */
+   public void bytesSent(Packet packet, int bytes);
+
+   /**
+    * Called by a transport, that decoded a received packet.
+    *
+    * @param packet The decoded packet
+    * @param bytes The size of the encoded packet
+    */
+   public void bytesReceived(Packet packet, int bytes);
+}
@@ -3,16 +3,29 @@ package de.dk.ch;
 import static de.dk.ch.ChannelState.CLOSED;
 import static de.dk.ch.ChannelState.OPEN;
 import static de.dk.ch.ChannelState.OPENING;
+import static de.dk.ch.FragmentPacket.ENCODING_BYTES;
+import static de.dk.ch.FragmentPacket.ENCODING_SERIALIZED;
+import static de.dk.ch.FragmentPacket.ENCODING_STRING;
+import static de.dk.ch.Tracer.TRACER;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.dk.ch.ChannelListener.ChannelListenerChain;
 import de.dk.ch.ChannelPacket.ChannelPacketType;
 
 /**
@@ -25,14 +38,53 @@ import de.dk.ch.ChannelPacket.ChannelPacketType;
  */
 public class Channel<T> {
    private static final Logger log = LoggerFactory.getLogger(Channel.class);
+   private static final int MAX_DRAIN_BATCH = 64;
+   @SuppressWarnings("rawtypes")
+   private static final Delivery RESET = new Delivery<>(null);
+   @SuppressWarnings("rawtypes")
+   private static final AtomicReferenceFieldUpdater<Channel, ChannelState> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(Channel.class, ChannelState.class, "state");
 
    private final long id;
-   private final ChannelListenerChain<T> listeners = new ChannelListenerChain<>();
+   private final ListenerChain<T> listeners = new ListenerChain<>();
    private final Sender sender;
    private final Multiplexer multiplexer;
-   private Queue<T> preSentMessages = new LinkedList<>();
+   // Messages sent while opening, guarded by the lock of this channel
+   private List<T> earlyData = new ArrayList<>();
+   // A pipelined channel and the accepting side of a flow controlled channel are limited
+   private volatile int earlyDataLimit = Integer.MAX_VALUE;
+   // The accepting side must never wait on the thread, that would open it, it fails instead
+   private volatile boolean earlyDataWait = true;
+   private volatile boolean pipelined;
+   private volatile ChannelRefusedException refusal;
+   private final AtomicInteger consumed = new AtomicInteger();
+   private volatile SendWindow sendWindow;
+   private volatile int receiveWindow;
+   private volatile int weight = ChannelOptions.DEFAULT_WEIGHT;
 
-   private ChannelState state = OPENING;
+   private final Queue<Delivery<T>> inbox = new ConcurrentLinkedQueue<>();
+   private final AtomicBoolean drainScheduled = new AtomicBoolean();
+   private final Runnable drainTask = this::drain;
+   private volatile Executor executor;
+   private volatile ChannelHandler<?> handler;
+   private volatile Compression compression;
+   // Only created if the channel metrics of the multiplexer are enabled
+   private volatile ChannelMetrics metrics;
+
+   // Keeps the fragments of concurrently sent payloads apart
+   private final Object fragmentLock = new Object();
+   // Keeps the order of the early data of a pipelined channel, that is sent without holding the lock of this channel
+   private final Object earlySendLock = new Object();
+   // The fragments of the payload, that is being received, guarded by the lock of the reassembly
+   private final Object reassemblyLock = new Object();
+   private byte[] reassembly;
+   private int reassembled;
+
+   private volatile ChannelState state = OPENING;
+   private volatile CloseReason closeReason;
+   // The clock of the multiplexer when a message was last sent or received
+   private volatile long lastActivity;
+   private volatile long idleTimeout = -1;
 
    /**
     * Creates a new channel with the given id, sender and the multiplexer that manages this channel.
@@ -48,26 +100,146 @@ public class Channel<T> {
       this.id = id;
       this.sender = Objects.requireNonNull(sender);
       this.multiplexer = multiplexer;
+      touch();
    }
 
    /**
     * This method is usually called by the multiplexer when a packet with this channelId arrived.
     * This method can manually be called to fake an arrival of a packet for this channel.
+    * If this channel has an executor, the message is queued and delivered to the listeners by the executor,
+    * otherwise the listeners are called by the calling thread.
     *
     * @param packet The arrived packet
     *
     * @throws IllegalArgumentException If the packet has not the same <code>channelId</code> as this channel
     * @throws ClosedException If this channel has already been closed
+    *
+    * @see #setExecutor(Executor)
     */
    @SuppressWarnings("unchecked")
-   public synchronized void receive(PayloadPacket packet) throws IllegalArgumentException,
-                                                                 ClosedException {
+   public void receive(PayloadPacket packet) throws IllegalArgumentException,
+                                                    ClosedException {
       if (packet.channelId != this.id)
          throw new IllegalArgumentException("Packet ID does not match this channel id");
 
       ensureNotClosed();
-      synchronized (listeners) {
-         listeners.received((T) packet.getPayload());
+      touch();
+      Executor executor = this.executor;
+      if (executor == null) {
+         deliver((T) packet.getPayload());
+         return;
+      }
+
+      inbox.offer(new Delivery<>((T) packet.getPayload()));
+      scheduleDrain(executor);
+   }
+
+   private void scheduleDrain(Executor executor) {
+      if (!drainScheduled.compareAndSet(false, true))
+         return;
+
+      try {
+         executor.execute(drainTask);
+      } catch (RuntimeException e) {
+         drainScheduled.set(false);
+         throw e;
+      }
+   }
+
+   private void drain() {
+      try {
+         for (int i = 0; i < MAX_DRAIN_BATCH; i++) {
+            Delivery<T> delivery = inbox.poll();
+            if (delivery == null)
+               break;
+
+            try {
+               if (delivery == RESET)
+                  listeners.reset();
+               else
+                  deliver(delivery.msg);
+            } catch (RuntimeException e) {
+               log.error("A listener of channel with the id " + id + " threw an exception.", e);
+            }
+         }
+      } finally {
+         drainScheduled.set(false);
+      }
+
+      // Messages, that arrived while draining or exceeded the batch, are delivered by a new drain task,
+      // so channels sharing the executor take turns.
+      Executor executor = this.executor;
+      if (!inbox.isEmpty() && executor != null)
+         scheduleDrain(executor);
+   }
+
+   private void deliver(T msg) {
+      Object trace = TRACER.listenerStarted();
+      // The listeners are only timed for the metrics
+      ChannelMetrics metrics = this.metrics;
+      long start = metrics == null ? 0 : System.nanoTime();
+      try {
+         listeners.received(msg);
+      } finally {
+         if (metrics != null)
+            dispatched(metrics, System.nanoTime() - start);
+         if (trace != null)
+            TRACER.listenerFinished(trace, id);
+
+         messageConsumed();
+      }
+   }
+
+   private void dispatched(ChannelMetrics metrics, long nanos) {
+      metrics.dispatched(nanos);
+      if (multiplexer != null)
+         multiplexer.getMetrics().dispatched(nanos);
+   }
+
+   /**
+    * Called by the multiplexer when the other side reset this channel.
+    * The listeners are notified in order with the received messages.
+    *
+    * @see ChannelListener#reset()
+    */
+   @SuppressWarnings("unchecked")
+   void resetReceived() {
+      Executor executor = this.executor;
+      if (executor == null) {
+         listeners.reset();
+         return;
+      }
+
+      inbox.offer(RESET);
+      scheduleDrain(executor);
+   }
+
+   /**
+    * Removes the listeners of this channel and tells the other side, that a new conversation begins.
+    *
+    * @throws ClosedException If this channel has already been closed
+    * @throws IOException If an I/O error occurs while sending the reset
+    *
+    * @see ChannelPool
+    */
+   void reset() throws ClosedException, IOException {
+      listeners.clear();
+      send(new ChannelPacket(id, ChannelPacketType.RESET));
+   }
+
+   private void messageConsumed() {
+      int window = receiveWindow;
+      if (window <= 0)
+         return;
+
+      int consumed = this.consumed.incrementAndGet();
+      if (consumed < Math.max(1, window / 2) || !this.consumed.compareAndSet(consumed, 0))
+         return;
+
+      try {
+         sender.send(new WindowUpdatePacket(id, consumed));
+      } catch (IOException e) {
+         log.warn("Could not grant credit for channel " + id, e);
       }
    }
 
@@ -76,23 +248,301 @@ public class Channel<T> {
     * Objects can only be sent if this channels state is <code>OPEN</code>.
     * If the channel is in <code>OPENING</code> state the messages will be queued until it is opened.
     * Queued messages will be sent when the channel has been opened.
-    * If the channel never opens, e.g. the request gets declined, the queued messages will never be delivered.
-    * Therefore it is recommended to send messages in <code>OPEN</code> state.
+    * A channel opened with {@link Multiplexer#openPipelined(Class, Object, ChannelOptions)}
+    * sends them at once instead, but keeps them until the other side accepted the channel.
+    * A pipelined channel keeps at most {@link ChannelOptions#setEarlyDataLimit(int) earlyDataLimit} messages,
+    * further senders wait for the channel to open as long as the send timeout of the multiplexer.
+    * If the channel never opens, e.g. the request gets declined, the kept messages are not delivered.
+    * The sender gets them back with the <code>ChannelRefusedException</code>, this channel throws from then on.
+    * If the channel is flow controlled and the other side did not grant enough credit,
+    * this method blocks until credit is granted or the send timeout of the multiplexer is reached.
+    * The messages sent while the channel is opening take their credit, when it opens.
+    * The accepting side of a flow controlled channel keeps at most the granted window while opening,
+    * further messages fail at once, the channel cannot open while its handler waits.
+    * An open channel can be used by several threads at once without locking.
+    * A message sent concurrently with {@link #close()} may arrive after the channel has been closed.
+    * The other side remembers the ids of its recently closed channels and drops such a message.
     *
     * @param object The object to be sent
     *
+    * @throws ChannelRefusedException If this channel could not be opened
     * @throws ClosedException If this channel has already been closed
+    * @throws FlowControlException If no credit to send was granted
+    * or the early data was not accepted within the send timeout
     * @throws IOException If an I/O error occurs while sending the object
+    *
+    * @see Multiplexer#setInitialWindow(int)
     */
-   public synchronized void send(T object) throws ClosedException, IOException {
+   public void send(T object) throws ClosedException, FlowControlException, IOException {
       ensureNotClosed();
-      if (state == OPEN)
-         sender.send(new PayloadPacket(id, object));
-      else if (state == OPENING)
-         preSentMessages.offer(object);
+      // An open channel is not locked, so concurrent senders do not serialize here.
+      // The lock only guards the queue of an opening channel.
+      while (true) {
+         ChannelState state = this.state;
+         if (state == OPEN) {
+            // Waiting for credit must not hold the lock of this channel,
+            // otherwise the messages, that would grant the credit, could not be received.
+            // A sender, that found the channel opening, waits for credit as well.
+            SendWindow window = this.sendWindow;
+            if (window != null)
+               window.acquire();
+
+            sendPayload(object);
+            return;
+         }
+         if (state == CLOSED)
+            throw closedException();
+
+         if (pipelined) {
+            if (sendEarly(object))
+               return;
+
+            continue;
+         }
+
+         synchronized (this) {
+            if (this.state == OPENING && awaitEarlyDataSpace()) {
+               earlyData.add(object);
+               return;
+            }
+         }
+      }
    }
 
-   protected synchronized void send(ChannelPacket packet) throws IOException, ClosedException {
+   /**
+    * Sends a message through this opening pipelined channel and keeps it as early data.
+    * The lock of this channel is not held while sending. A sender, that waits for the transport,
+    * would otherwise block the thread, that receives the acceptance of this channel and wants to open it.
+    *
+    * @return <code>true</code> if the message has been sent,
+    * <code>false</code> if the channel is no longer opening
+    */
+   private boolean sendEarly(T object) throws IOException {
+      synchronized (earlySendLock) {
+         synchronized (this) {
+            if (state != OPENING || !awaitEarlyDataSpace())
+               return false;
+
+            // The message is kept before it is sent, so its credit is taken, if the channel opens meanwhile
+            earlyData.add(object);
+         }
+
+         try {
+            sendPayload(object);
+         } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+               // No other early data has been added since, the early send lock is still held
+               if (earlyData != null)
+                  earlyData.remove(earlyData.size() - 1);
+            }
+            throw e;
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Waits until the early data of this opening channel has space for another message.
+    * Must be called with the lock of this channel.
+    *
+    * @return <code>true</code> if there is space and the channel is still opening,
+    * <code>false</code> if the state of the channel changed while waiting
+    */
+   private boolean awaitEarlyDataSpace() throws FlowControlException, InterruptedIOException {
+      long timeout = multiplexer == null ? -1 : multiplexer.getSendTimeout();
+      long deadline = System.currentTimeMillis() + timeout;
+      while (state == OPENING && earlyData.size() >= earlyDataLimit) {
+         long remaining = timeout < 0 ? 0 : deadline - System.currentTimeMillis();
+         if (!earlyDataWait || (timeout >= 0 && remaining <= 0))
+            throw new FlowControlException("The early data of the opening channel " + id + " is full.");
+
+         try {
+            wait(remaining);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the channel to open.");
+         }
+      }
+      return state == OPENING;
+   }
+
+   private void sendPayload(T object) throws IOException {
+      int fragmentSize = multiplexer == null ? 0 : multiplexer.getFragmentSize();
+      Compression compression = this.compression;
+      if ((fragmentSize <= 0 && compression == null) || object == null) {
+         sendPacket(new PayloadPacket(id, object));
+         return;
+      }
+
+      // Payloads smaller than the threshold are not compressed, the ratio does not pay off
+      int threshold = compression == null ? Integer.MAX_VALUE : multiplexer.getCompressionThreshold();
+      int limit = fragmentSize <= 0 ? threshold : Math.min(threshold, fragmentSize + 1);
+      byte encoding;
+      byte[] data;
+      if (object instanceof byte[]) {
+         encoding = ENCODING_BYTES;
+         data = (byte[]) object;
+      } else if (object instanceof String) {
+         // A string, that can neither exceed the fragment size nor reach the threshold, is not encoded here
+         if (((String) object).length() * 3 < limit) {
+            sendPacket(new PayloadPacket(id, object));
+            return;
+         }
+         encoding = ENCODING_STRING;
+         data = ((String) object).getBytes(UTF_8);
+      } else {
+         encoding = ENCODING_SERIALIZED;
+         PayloadSerializer serializer = multiplexer.getPayloadSerializer();
+         data = serializer.serialize(object);
+         // A small payload keeps its serialized form, so a codec with the same serializer does not serialize it again
+         if (data.length < limit) {
+            sendPacket(new PayloadPacket(id, object, serializer, data));
+            return;
+         }
+      }
+
+      if (data.length < limit) {
+         sendPacket(new PayloadPacket(id, object));
+         return;
+      }
+
+      boolean compressed = false;
+      if (data.length >= threshold) {
+         byte[] compressedData = compression.compress(data);
+         // Incompressible data, e.g. an already compressed blob, is sent as it is
+         if (compressedData.length < data.length) {
+            data = compressedData;
+            compressed = true;
+         }
+      }
+
+      int size = fragmentSize <= 0 ? Math.max(data.length, 1) : fragmentSize;
+      synchronized (fragmentLock) {
+         for (int offset = 0; offset < data.length || offset == 0; offset += size) {
+            // The other side closes the channel, if the payload exceeds its reassembly limit
+            if (offset > 0 && state == CLOSED)
+               throw closedException();
+
+            int end = Math.min(data.length, offset + size);
+            byte[] fragment = offset == 0 && end == data.length ? data : Arrays.copyOfRange(data, offset, end);
+            sendPacket(new FragmentPacket(id, encoding, end == data.length, compressed, fragment));
+         }
+      }
+   }
+
+   private void sendPacket(Packet packet) throws IOException {
+      sender.send(packet);
+      ChannelMetrics metrics = this.metrics;
+      if (metrics != null)
+         metrics.packetSent();
+
+      touch();
+   }
+
+   /**
+    * Records the activity of this channel.
+    * The clock of the multiplexer is coarse, so this channel only writes, if the clock moved on.
+    */
+   void touch() {
+      if (multiplexer == null)
+         return;
+
+      long now = multiplexer.getClock();
+      if (lastActivity != now)
+         lastActivity = now;
+   }
+
+   long getLastActivity() {
+      return lastActivity;
+   }
+
+   /**
+    * This method is called by the multiplexer when a fragment of a large payload arrived.
+    * The payload is received, when its last fragment arrived.
+    * If the fragments exceed the maximum reassembly size of the multiplexer, this channel is closed.
+    *
+    * @param fragment The arrived fragment
+    *
+    * @throws IllegalArgumentException If the fragment has not the same <code>channelId</code> as this channel
+    * @throws ClosedException If this channel has already been closed
+    * @throws IOException If the payload could not be deserialized
+    *
+    * @see Multiplexer#setMaxReassemblySize(int)
+    */
+   void receive(FragmentPacket fragment) throws IllegalArgumentException, ClosedException, IOException {
+      if (fragment.channelId != this.id)
+         throw new IllegalArgumentException("Packet ID does not match this channel id");
+
+      ensureNotClosed();
+      touch();
+      byte[] data;
+      int length;
+      int max = multiplexer == null ? Multiplexer.DEFAULT_MAX_REASSEMBLY_SIZE : multiplexer.getMaxReassemblySize();
+      synchronized (reassemblyLock) {
+         byte[] chunk = fragment.getData();
+         if (reassembled + chunk.length > max) {
+            reassembly = null;
+            reassembled = 0;
+            log.error("The fragments of a payload of channel " + id + " exceed " + max + " bytes, closing the channel.");
+            close();
+            return;
+         }
+
+         if (reassembly == null && fragment.isLast()) {
+            // A payload of a single fragment needs no reassembly
+            data = chunk;
+            length = chunk.length;
+         } else {
+            if (reassembly == null || reassembled + chunk.length > reassembly.length) {
+               int capacity = Math.max(reassembly == null ? chunk.length * 2 : reassembly.length * 2,
+                                       reassembled + chunk.length);
+               reassembly = Arrays.copyOf(reassembly == null ? new byte[0] : reassembly, Math.min(capacity, max));
+            }
+            System.arraycopy(chunk, 0, reassembly, reassembled, chunk.length);
+            reassembled += chunk.length;
+            if (!fragment.isLast())
+               return;
+
+            data = reassembly;
+            length = reassembled;
+            reassembly = null;
+            reassembled = 0;
+         }
+      }
+
+      if (fragment.isCompressed()) {
+         Compression compression = this.compression;
+         if (compression == null)
+            throw new IOException("Compressed payload received through channel " + id + " without a compression.");
+
+         try {
+            data = compression.decompress(data, 0, length, max);
+         } catch (IOException e) {
+            log.error("Could not decompress a payload of channel " + id + ", closing the channel.", e);
+            close();
+            return;
+         }
+         length = data.length;
+      }
+      receive(new PayloadPacket(id, decode(fragment.getEncoding(), data, length)));
+   }
+
+   private Object decode(byte encoding, byte[] data, int length) throws IOException {
+      switch (encoding) {
+      case ENCODING_BYTES:
+         return length == data.length ? data : Arrays.copyOf(data, length);
+      case ENCODING_STRING:
+         return new String(data, 0, length, UTF_8);
+      case ENCODING_SERIALIZED:
+         PayloadSerializer serializer = multiplexer == null ? new JavaPayloadSerializer()
+                                                            : multiplexer.getPayloadSerializer();
+         return serializer.deserialize(data, 0, length);
+      default:
+         throw new IOException("Fragment of channel " + id + " with unknown encoding " + encoding);
+      }
+   }
+
+   protected void send(ChannelPacket packet) throws IOException, ClosedException {
       ensureNotClosed();
       sender.send(packet);
    }
@@ -105,23 +555,38 @@ public class Channel<T> {
     * @throws InterruptedException If the calling thread is interrupted while waiting
     */
    public synchronized void waitToOpen(long timeout) throws InterruptedException {
-      wait(timeout);
+      if (state == OPENING)
+         wait(timeout);
    }
 
    private void ensureNotClosed() throws ClosedException {
       if (isClosed())
-         throw new ClosedException("This channel has already been closed.");
+         throw closedException();
+   }
+
+   private ClosedException closedException() {
+      ChannelRefusedException refusal = this.refusal;
+      if (refusal != null)
+         return refusal;
+
+      return new ClosedException("This channel has already been closed.");
    }
 
    private void sendQueuedMessages() {
+      SendWindow window = this.sendWindow;
       try {
-         while (!preSentMessages.isEmpty())
-            send(preSentMessages.poll());
+         for (T msg : earlyData) {
+            if (window != null)
+               window.consume();
 
+            // The early data of a pipelined channel has already been sent, it only costs its credit
+            if (!pipelined)
+               sendPayload(msg);
+         }
       } catch (IllegalArgumentException | IOException e) {
          log.warn("Could not send prequeued messages");
       }
-      preSentMessages = null;
+      earlyData = null;
    }
 
    /**
@@ -131,9 +596,7 @@ public class Channel<T> {
     * @param listener The listener to be added to this channel
     */
    public void addListener(ChannelListener<T> listener) {
-      synchronized (listeners) {
-         listeners.add(listener);
-      }
+      listeners.add(listener);
    }
 
    /**
@@ -142,9 +605,7 @@ public class Channel<T> {
     * @param listener The listener to be removed
     */
    public void removeListener(ChannelListener<T> listener) {
-      synchronized (listeners) {
-         listeners.remove(listener);
-      }
+      listeners.remove(listener);
    }
 
    /**
@@ -153,34 +614,257 @@ public class Channel<T> {
     *
     * @throws IOException If an I/O error occurs while closing the channel
     */
-   public synchronized void close() throws IOException {
-      if (state == CLOSED)
+   public void close() throws IOException {
+      close(CloseReason.LOCAL);
+   }
+
+   /**
+    * Closes this channel for the given <code>reason</code>.
+    *
+    * @param reason The reason to close this channel
+    *
+    * @throws IOException If an I/O error occurs while closing the channel
+    */
+   void close(CloseReason reason) throws IOException {
+      if (!closeState(reason))
          return;
 
       try {
-         send(new ChannelPacket(id, ChannelPacketType.CLOSE));
+         sender.send(new ChannelPacket(id, ChannelPacketType.CLOSE));
       } finally {
-         state = CLOSED;
-
+         stateChanged();
          if (multiplexer != null)
             multiplexer.channelClosed(this);
       }
    }
 
-   protected synchronized void setState(ChannelState state) throws ClosedException {
-      if (state == this.state)
-         return;
+   private boolean closeState(CloseReason reason) {
+      ChannelState state;
+      do {
+         state = this.state;
+         if (state == CLOSED)
+            return false;
+      } while (!STATE.compareAndSet(this, state, CLOSED));
+
+      this.closeReason = reason;
+      closeWindow();
+      return true;
+   }
 
-      if (this.state == ChannelState.CLOSED)
-         throw new ClosedException("Channel has already been closed.");
+   private void closeWindow() {
+      SendWindow window = this.sendWindow;
+      if (window != null)
+         window.close();
+   }
+
+   /**
+    * Called by the multiplexer when the other side closed this channel.
+    */
+   void remoteClosed() {
+      if (closeState(CloseReason.REMOTE))
+         stateChanged();
+   }
 
-      this.state = state;
+   protected void setState(ChannelState state) throws ClosedException {
       if (state == OPEN) {
-         sendQueuedMessages();
+         open();
+         return;
+      }
+
+      while (true) {
+         ChannelState current = this.state;
+         if (current == state)
+            return;
+
+         if (current == CLOSED)
+            throw new ClosedException("Channel has already been closed.");
+
+         if (STATE.compareAndSet(this, current, state)) {
+            if (state == CLOSED) {
+               this.closeReason = CloseReason.LOCAL;
+               closeWindow();
+            }
+
+            stateChanged();
+            return;
+         }
+      }
+   }
+
+   private synchronized void open() throws ClosedException {
+      if (state == OPEN)
+         return;
+      if (state == CLOSED)
+         throw closedException();
+
+      // The queued messages are sent while the channel is still opening,
+      // so no sender can overtake them. Senders, that see the opening state, wait for the lock.
+      sendQueuedMessages();
+      if (STATE.compareAndSet(this, OPENING, OPEN))
+         notifyAll();
+   }
+
+   /**
+    * Called when this channel could not be opened.
+    * Closes this channel without notifying the other side, that never opened it.
+    * The messages sent while opening are handed to the sender with the <code>ChannelRefusedException</code>.
+    *
+    * @param cause The reason why the channel could not be opened
+    */
+   synchronized void refused(Throwable cause) {
+      if (state != OPENING)
+         return;
+
+      List<T> undelivered = earlyData == null ? Collections.emptyList() : earlyData;
+      this.refusal = new ChannelRefusedException("The channel " + id + " could not be opened.", cause, undelivered);
+      this.earlyData = null;
+      if (STATE.compareAndSet(this, OPENING, CLOSED)) {
+         this.closeReason = CloseReason.REFUSED;
+         closeWindow();
          notifyAll();
       }
    }
 
+   private synchronized void stateChanged() {
+      notifyAll();
+   }
+
+   /**
+    * Set the number of messages this channel is willing to receive, before it grants the other side more credit.
+    *
+    * @param window The receive window or 0 to not grant any credit
+    */
+   void setReceiveWindow(int window) {
+      this.receiveWindow = window;
+   }
+
+   /**
+    * Enable the flow control of the messages sent through this channel.
+    *
+    * @param credit The initial credit granted by the other side
+    * @param timeout The maximum time in milliseconds to wait for credit.
+    * 0 to fail immediately, a negative value to wait indefinitely
+    */
+   void setSendWindow(int credit, long timeout) {
+      this.sendWindow = new SendWindow(credit, timeout);
+   }
+
+   /**
+    * Set the executor, that delivers the received messages to the listeners of this channel.
+    * The messages are delivered one after another in the order they were received,
+    * but not by the thread that received them, so a slow listener does not stall the other channels.
+    * The credit of a flow controlled channel is granted after a message has been delivered.
+    *
+    * @param executor The executor to deliver the messages with or <code>null</code>
+    * to deliver them on the receiving thread
+    *
+    * @see Multiplexer#setExecutor(Executor)
+    * @see ChannelOptions#setExecutor(Executor)
+    */
+   public void setExecutor(Executor executor) {
+      this.executor = executor;
+      if (executor != null && !inbox.isEmpty())
+         scheduleDrain(executor);
+   }
+
+   public Executor getExecutor() {
+      return executor;
+   }
+
+   /**
+    * Set the handler, that is notified when this channel has been closed.
+    * The handler is kept with the channel, so the multiplexer needs only one table entry per channel.
+    *
+    * @param handler The handler of this channel
+    */
+   void setHandler(ChannelHandler<?> handler) {
+      this.handler = handler;
+   }
+
+   ChannelHandler<?> getHandler() {
+      return handler;
+   }
+
+   void setWeight(int weight) {
+      this.weight = weight;
+   }
+
+   /**
+    * Set the compression of the payloads of this channel, that has been negotiated with the other side.
+    *
+    * @param compression The compression or <code>null</code> to not compress the payloads
+    */
+   void setCompression(Compression compression) {
+      this.compression = compression;
+   }
+
+   /**
+    * Get the compression of the payloads of this channel.
+    *
+    * @return The compression, that has been negotiated with the other side,
+    * or <code>null</code> if the payloads are not compressed
+    *
+    * @see ChannelOptions#setCompression(String...)
+    */
+   public Compression getCompression() {
+      return compression;
+   }
+
+   synchronized int getEarlyDataSize() {
+      return earlyData == null ? 0 : earlyData.size();
+   }
+
+   /**
+    * Get the metrics of this channel.
+    *
+    * @return The live metrics of this channel or <code>null</code>,
+    * if the channel metrics of its multiplexer were disabled, when this channel was established
+    *
+    * @see Multiplexer#getMetrics()
+    * @see Multiplexer#setChannelMetricsEnabled(boolean)
+    */
+   public ChannelMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * Record the metrics of this channel.
+    *
+    * @param typeMetrics The metrics of the type of this channel, that count into the metrics of this channel
+    */
+   void enableMetrics(ChannelMetrics typeMetrics) {
+      this.metrics = new ChannelMetrics(typeMetrics);
+   }
+
+   /**
+    * Set the maximum number of messages, that are kept while this channel is opening.
+    *
+    * @param limit The early data limit
+    * @param wait <code>true</code> to let further senders wait for the channel to open,
+    * <code>false</code> to let them fail at once
+    */
+   void setEarlyDataLimit(int limit, boolean wait) {
+      this.earlyDataLimit = limit;
+      this.earlyDataWait = wait;
+   }
+
+   /**
+    * Let this opening channel send its messages without waiting for the other side to accept it.
+    *
+    * @param pipelined <code>true</code> to send the messages at once
+    */
+   void setPipelined(boolean pipelined) {
+      this.pipelined = pipelined;
+   }
+
+   void windowUpdate(int credit) {
+      SendWindow window = this.sendWindow;
+      if (window == null)
+         log.warn("Credit for channel " + id + " received, but the channel is not flow controlled.");
+      else
+         window.release(credit);
+   }
+
    public Iterable<ChannelListener<T>> getListeners() {
       return listeners;
    }
@@ -194,19 +878,55 @@ public class Channel<T> {
     * @return <code>true</code> if this channel is closed.
     * <code>false</code> otherwise
     */
-   public synchronized boolean isClosed() {
+   public boolean isClosed() {
       return state == CLOSED;
    }
 
+   /**
+    * Get the reason why this channel has been closed.
+    * The reason is set before the handler of this channel is notified.
+    *
+    * @return The close reason or <code>null</code> if this channel has not been closed
+    */
+   public CloseReason getCloseReason() {
+      return closeReason;
+   }
+
+   /**
+    * Set the idle timeout of this channel, that overrides the idle timeout of the multiplexer.
+    *
+    * @param idleTimeout The idle timeout in milliseconds, 0 to never close this channel for being idle,
+    * or a negative value to use the idle timeout of the multiplexer
+    */
+   void setIdleTimeout(long idleTimeout) {
+      this.idleTimeout = idleTimeout;
+   }
+
+   long getIdleTimeout() {
+      return idleTimeout;
+   }
+
    /**
     * Get the state of this channel.
     *
     * @return The state of this channel
     */
-   public synchronized ChannelState getState() {
+   public ChannelState getState() {
       return state;
    }
 
+   /**
+    * Get the scheduling weight of this channel.
+    *
+    * @return The weight of this channel
+    *
+    * @see ChannelOptions#setWeight(int)
+    * @see FairScheduler
+    */
+   public int getWeight() {
+      return weight;
+   }
+
    /**
     * Get the id of this channel.
     *
@@ -245,4 +965,14 @@ public class Channel<T> {
    public String toString() {
       return "channel { id=" + id + ", state=" + state + " }";
    }
-}
\ No newline at end of file
+
+   // Wraps the messages, because the inbox cannot hold null messages.
+   // The RESET delivery marks a reset in the order of the messages.
+   private static class Delivery<T> {
+      private final T msg;
+
+      Delivery(T msg) {
+         this.msg = msg;
+      }
+   }
+}
@@ -0,0 +1,51 @@
+package de.dk.ch;
+
+import static de.dk.ch.ChannelPacket.ChannelPacketType.OK;
+
+/**
+ * The answer to a {@link NewChannelRequestPacket} if the request has been accepted.
+ * Carries the initial window of the accepting side.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class ChannelAcceptedPacket extends ChannelPacket {
+   private static final long serialVersionUID = -5018153424466361735L;
+
+   private final int window;
+   private final String compression;
+
+   public ChannelAcceptedPacket(long channelId, int window, String compression) {
+      super(channelId, OK);
+      this.window = window;
+      this.compression = compression;
+   }
+
+   public ChannelAcceptedPacket(long channelId, int window) {
+      this(channelId, window, null);
+   }
+
+   /**
+    * Get the number of messages the accepting side is willing to receive
+    * before it grants more credit with a {@link WindowUpdatePacket}.
+    *
+    * @return The initial window of the accepting side or 0 if the accepting side does not use flow control
+    */
+   public int getWindow() {
+      return window;
+   }
+
+   /**
+    * Get the compression, that the accepting side has chosen from the proposed ones.
+    *
+    * @return The name of the compression or <code>null</code> if the payloads are not compressed
+    */
+   public String getCompression() {
+      return compression;
+   }
+
+   @Override
+   public String toString() {
+      return "ChannelAcceptedPacket {channelID=" + channelId + ", window=" + window + "}";
+   }
+}
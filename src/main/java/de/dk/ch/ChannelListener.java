@@ -17,8 +17,26 @@ public interface ChannelListener<T> {
     */
    public void received(T msg);
 
+   /**
+    * Called when the other side reset the channel, e.g. because it returned the channel to a {@link ChannelPool}.
+    * The messages received after the reset belong to a new conversation, state kept for the channel
+    * should be cleared. The reset is delivered in order with the messages of the channel.
+    */
+   public default void reset() {
+
+   }
+
+   /**
+    * A list of listeners, that passes the messages to all of its listeners.
+    *
+    * @deprecated Channels no longer keep their listeners in this chain, they use a copy-on-write chain,
+    * that passes a message without allocating or locking. This class is kept as the <code>LinkedList</code>
+    * it always was for code, that uses it on its own, and will be removed in a future version.
+    * Attach the listeners with {@link Channel#addListener(ChannelListener)} instead.
+    */
+   @Deprecated
    public static class ChannelListenerChain<T> extends LinkedList<ChannelListener<T>>
-                                                       implements ChannelListener<T> {
+                                               implements ChannelListener<T> {
       private static final long serialVersionUID = 1L;
 
       @Override
@@ -28,5 +46,13 @@ public interface ChannelListener<T> {
          for (ChannelListener<T> l : listeners)
             l.received(packet);
       }
+
+      @Override
+      public void reset() {
+         @SuppressWarnings("unchecked")
+         ChannelListener<T>[] listeners = toArray(new ChannelListener[size()]);
+         for (ChannelListener<T> l : listeners)
+            l.reset();
+      }
    }
-}
\ No newline at end of file
+}
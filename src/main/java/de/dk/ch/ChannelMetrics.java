@@ -0,0 +1,139 @@
+package de.dk.ch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a single channel or of all the channels of one type.
+ * The counters are striped, so concurrent senders of a channel do not contend on them.
+ * Only the payloads of a channel are counted per channel, its control packets are counted by the multiplexer.
+ * The metrics of a channel count into the metrics of its type as well.
+ * They are only recorded, if the channel metrics of the multiplexer are enabled.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Channel#getMetrics()
+ * @see Multiplexer#setChannelMetricsEnabled(boolean)
+ * @see MultiplexerMetrics#getChannelTypeMetrics()
+ */
+public final class ChannelMetrics {
+   private final LongAdder packetsSent = new LongAdder();
+   private final LongAdder packetsReceived = new LongAdder();
+   private final LongAdder bytesSent = new LongAdder();
+   private final LongAdder bytesReceived = new LongAdder();
+   private final LongAdder dispatches = new LongAdder();
+   private final LongAdder dispatchNanos = new LongAdder();
+   // The metrics of the type of the channel or null
+   private final ChannelMetrics typeMetrics;
+
+   ChannelMetrics() {
+      this(null);
+   }
+
+   /**
+    * @param typeMetrics The metrics of the type of the channel, that count everything this channel counts
+    */
+   ChannelMetrics(ChannelMetrics typeMetrics) {
+      this.typeMetrics = typeMetrics;
+   }
+
+   /**
+    * Creates a copy of the current values, that does not change anymore.
+    */
+   ChannelMetrics copy() {
+      ChannelMetrics copy = new ChannelMetrics();
+      copy.packetsSent.add(getPacketsSent());
+      copy.packetsReceived.add(getPacketsReceived());
+      copy.bytesSent.add(getBytesSent());
+      copy.bytesReceived.add(getBytesReceived());
+      copy.dispatches.add(getDispatches());
+      copy.dispatchNanos.add(getDispatchTotalNanos());
+      return copy;
+   }
+
+   void packetSent() {
+      packetsSent.increment();
+      if (typeMetrics != null)
+         typeMetrics.packetSent();
+   }
+
+   void packetReceived() {
+      packetsReceived.increment();
+      if (typeMetrics != null)
+         typeMetrics.packetReceived();
+   }
+
+   void bytesSent(int bytes) {
+      bytesSent.add(bytes);
+      if (typeMetrics != null)
+         typeMetrics.bytesSent(bytes);
+   }
+
+   void bytesReceived(int bytes) {
+      bytesReceived.add(bytes);
+      if (typeMetrics != null)
+         typeMetrics.bytesReceived(bytes);
+   }
+
+   void dispatched(long nanos) {
+      dispatches.increment();
+      dispatchNanos.add(nanos);
+      if (typeMetrics != null)
+         typeMetrics.dispatched(nanos);
+   }
+
+   /**
+    * @return The number of payload packets and fragments sent through the channel
+    */
+   public long getPacketsSent() {
+      return packetsSent.sum();
+   }
+
+   /**
+    * @return The number of payload packets and fragments received through the channel
+    */
+   public long getPacketsReceived() {
+      return packetsReceived.sum();
+   }
+
+   /**
+    * @return The number of encoded bytes of the payloads sent
+    *
+    * @see MultiplexerMetricsMXBean#getBytesSent()
+    */
+   public long getBytesSent() {
+      return bytesSent.sum();
+   }
+
+   /**
+    * @return The number of encoded bytes of the payloads received
+    *
+    * @see MultiplexerMetricsMXBean#getBytesReceived()
+    */
+   public long getBytesReceived() {
+      return bytesReceived.sum();
+   }
+
+   /**
+    * @return The number of messages delivered to the listeners of the channel
+    */
+   public long getDispatches() {
+      return dispatches.sum();
+   }
+
+   /**
+    * @return The total time in nanoseconds the listeners of the channel took for the messages
+    */
+   public long getDispatchTotalNanos() {
+      return dispatchNanos.sum();
+   }
+
+   @Override
+   public String toString() {
+      return "ChannelMetrics { packetsSent=" + getPacketsSent()
+             + ", packetsReceived=" + getPacketsReceived()
+             + ", bytesSent=" + getBytesSent()
+             + ", bytesReceived=" + getBytesReceived()
+             + ", dispatches=" + getDispatches() + " }";
+   }
+}
@@ -0,0 +1,147 @@
+package de.dk.ch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Options for a channel, that are chosen when the channel is established.
+ *
+ * <pre>
+ * multiplexer.establishNewChannel(Foo.class, timeout, null, new ChannelOptions().setWeight(8));
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#establishNewChannel(Class, long, Object, ChannelOptions)
+ */
+public class ChannelOptions {
+   /**
+    * The weight of a channel, that has been established without options.
+    */
+   public static final int DEFAULT_WEIGHT = 1;
+   /**
+    * The number of messages, that a pipelined channel keeps while it is opening, if no other limit has been set.
+    */
+   public static final int DEFAULT_EARLY_DATA_LIMIT = 1024;
+
+   private int weight = DEFAULT_WEIGHT;
+   private int earlyDataLimit = DEFAULT_EARLY_DATA_LIMIT;
+   private Executor executor;
+   private List<String> compression = Collections.emptyList();
+
+   public ChannelOptions() {
+
+   }
+
+   /**
+    * Set the scheduling weight of the channel.
+    * If the sender of the multiplexer is a {@link FairScheduler}, a channel with weight <code>n</code>
+    * may send <code>n</code> packets for each packet of a channel with weight 1
+    * while both channels have packets waiting.
+    * The other side of the channel takes the weight as a hint for its direction,
+    * it chooses its own weight up to its maximum.
+    *
+    * @param weight The weight of the channel
+    *
+    * @return These options
+    *
+    * @throws IllegalArgumentException If <code>weight</code> is smaller than 1
+    *
+    * @see Multiplexer#setMaxRemoteWeight(int)
+    * @see Multiplexer#setWeight(Class, int)
+    */
+   public ChannelOptions setWeight(int weight) throws IllegalArgumentException {
+      if (weight < 1)
+         throw new IllegalArgumentException("The weight of a channel must be at least 1: " + weight);
+
+      this.weight = weight;
+      return this;
+   }
+
+   public int getWeight() {
+      return weight;
+   }
+
+   /**
+    * Set the executor, that delivers the received messages to the listeners of the channel.
+    * This executor overrides the executor of the multiplexer for this channel.
+    * It only applies to the side, that establishes the channel.
+    *
+    * @param executor The executor of the channel or <code>null</code> to use the executor of the multiplexer
+    *
+    * @return These options
+    *
+    * @see Channel#setExecutor(Executor)
+    */
+   public ChannelOptions setExecutor(Executor executor) {
+      this.executor = executor;
+      return this;
+   }
+
+   public Executor getExecutor() {
+      return executor;
+   }
+
+   /**
+    * Set the maximum number of messages, that a channel opened with
+    * {@link Multiplexer#openPipelined(Class, Object, ChannelOptions)} keeps while it is opening.
+    * It has sent these messages already, but keeps them to hand them back if the other side refuses the channel.
+    * Senders wait for the channel to open while the limit is reached.
+    * The messages take their credit, when the channel opens, so a flow controlled channel sends
+    * at most this many messages beyond the window, that the other side granted.
+    * Other channels are not limited, the messages sent while they are opening are queued.
+    * The accepting side of a flow controlled channel keeps at most the granted window.
+    *
+    * @param earlyDataLimit The maximum number of messages sent before the channel is open
+    *
+    * @return These options
+    *
+    * @throws IllegalArgumentException If <code>earlyDataLimit</code> is smaller than 1
+    */
+   public ChannelOptions setEarlyDataLimit(int earlyDataLimit) throws IllegalArgumentException {
+      if (earlyDataLimit < 1)
+         throw new IllegalArgumentException("The early data limit must be at least 1: " + earlyDataLimit);
+
+      this.earlyDataLimit = earlyDataLimit;
+      return this;
+   }
+
+   public int getEarlyDataLimit() {
+      return earlyDataLimit;
+   }
+
+   /**
+    * Propose compressions for the payloads of the channel.
+    * The other side chooses the first one, that it knows, or none.
+    * The chosen compression applies to both directions of the channel.
+    * Payloads smaller than the compression threshold of the multiplexer are not compressed.
+    *
+    * @param names The names of the proposed compressions, the preferred one first.
+    * None to not compress the payloads (default)
+    *
+    * @return These options
+    *
+    * @see Multiplexer#addCompression(Compression)
+    * @see Multiplexer#setCompressionThreshold(int)
+    * @see DeflateCompression#NAME
+    */
+   public ChannelOptions setCompression(String... names) {
+      this.compression = Collections.unmodifiableList(Arrays.asList(names.clone()));
+      return this;
+   }
+
+   public List<String> getCompression() {
+      return compression;
+   }
+
+   @Override
+   public String toString() {
+      return "ChannelOptions { weight=" + weight
+             + ", executor=" + executor
+             + ", earlyDataLimit=" + earlyDataLimit
+             + ", compression=" + compression + " }";
+   }
+}
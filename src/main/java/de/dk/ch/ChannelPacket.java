@@ -29,6 +29,10 @@ public class ChannelPacket extends Packet {
       NEW,
       OK,
       REFUSED,
-      CLOSE;
+      CLOSE,
+      WINDOW_UPDATE,
+      RESET,
+      PING,
+      PONG;
    }
 }
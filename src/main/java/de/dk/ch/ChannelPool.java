@@ -0,0 +1,289 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of open channels of one type, that are leased for a short conversation and returned afterwards.
+ * Leasing an idle channel costs neither a handshake nor the callbacks of the <code>ChannelHandler</code>s.
+ * The pool keeps at least <code>minIdle</code> channels open and opens new ones in the background,
+ * when channels are leased. Up to <code>maxIdle</code> returned channels are kept,
+ * those beyond <code>minIdle</code> are closed after they have been idle for the idle timeout.
+ *
+ * Returning a channel removes its listeners and resets it. The other side is told by a reset packet,
+ * that is delivered to the listeners of its channel in order with the messages (see {@link ChannelListener#reset()}).
+ *
+ * <pre>
+ * ChannelPool&lt;Request&gt; pool = new ChannelPool&lt;&gt;(multiplexer, Request.class, 8, 32, Duration.ofMinutes(1), null);
+ * Channel&lt;Request&gt; channel = pool.lease(timeout);
+ * try {
+ *    channel.send(request);
+ * } finally {
+ *    pool.release(channel);
+ * }
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#establishNewChannels(Class, int, Duration, ChannelOptions)
+ */
+public class ChannelPool<T> implements Closeable {
+   private static final Logger log = LoggerFactory.getLogger(ChannelPool.class);
+   private static final Duration OPEN_TIMEOUT = Duration.ofSeconds(30);
+
+   private final Multiplexer multiplexer;
+   private final Class<T> type;
+   private final int minIdle;
+   private final int maxIdle;
+   private final long idleTimeout;
+   private final ChannelOptions options;
+
+   // The most recently returned channel first, the channels idle the longest are evicted from the end
+   private final Deque<Idle<T>> idle = new ArrayDeque<>();
+   private int opening;
+   private boolean closed = false;
+   private ScheduledFuture<?> evictor;
+
+   /**
+    * Creates a new pool and opens its first <code>minIdle</code> channels in the background.
+    *
+    * @param multiplexer The multiplexer to open the channels with
+    * @param type The type of the channels
+    * @param minIdle The number of channels, that are kept open
+    * @param maxIdle The maximum number of returned channels, that are kept open
+    * @param idleTimeout The time after which an idle channel beyond <code>minIdle</code> is closed
+    * or <code>null</code> to keep them open
+    * @param options The options of the channels or <code>null</code> for the default options
+    *
+    * @throws IllegalArgumentException If <code>minIdle</code> is negative or greater than <code>maxIdle</code>
+    * @throws NullPointerException If <code>multiplexer</code> or <code>type</code> is <code>null</code>
+    */
+   public ChannelPool(Multiplexer multiplexer,
+                      Class<T> type,
+                      int minIdle,
+                      int maxIdle,
+                      Duration idleTimeout,
+                      ChannelOptions options) throws IllegalArgumentException, NullPointerException {
+      if (minIdle < 0 || minIdle > maxIdle)
+         throw new IllegalArgumentException("Invalid pool size: minIdle=" + minIdle + ", maxIdle=" + maxIdle);
+
+      this.multiplexer = Objects.requireNonNull(multiplexer);
+      this.type = Objects.requireNonNull(type);
+      this.minIdle = minIdle;
+      this.maxIdle = maxIdle;
+      this.idleTimeout = idleTimeout == null ? -1 : idleTimeout.toMillis();
+      this.options = options;
+      if (this.idleTimeout >= 0) {
+         long period = Math.max(1, this.idleTimeout / 2);
+         this.evictor = SharedScheduler.get()
+                                       .scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+      }
+      refill();
+   }
+
+   /**
+    * Creates a new pool, that keeps <code>size</code> channels open.
+    *
+    * @param multiplexer The multiplexer to open the channels with
+    * @param type The type of the channels
+    * @param size The number of channels, that are kept open
+    *
+    * @throws IllegalArgumentException If <code>size</code> is negative
+    * @throws NullPointerException If <code>multiplexer</code> or <code>type</code> is <code>null</code>
+    */
+   public ChannelPool(Multiplexer multiplexer, Class<T> type, int size) throws IllegalArgumentException,
+                                                                              NullPointerException {
+      this(multiplexer, type, size, size, null, null);
+   }
+
+   /**
+    * Leases an open channel. If no channel is idle, a new channel is established.
+    * The channel should be returned with {@link #release(Channel)} after the conversation.
+    *
+    * @param timeout The timeout in milliseconds to establish a new channel
+    *
+    * @return An open channel
+    *
+    * @throws IOException If an I/O error occurs while establishing a new channel
+    * @throws ClosedException If this pool or the multiplexer has already been closed
+    * @throws ChannelDeclinedException If the "other side" refuses to open the channel
+    * @throws InterruptedException If the thread is interrupted while waiting for the channel to be established
+    * @throws TimeoutException If the <code>timeout</code> is reached before a new channel could be established
+    */
+   public Channel<T> lease(long timeout) throws IOException,
+                                                ClosedException,
+                                                ChannelDeclinedException,
+                                                InterruptedException,
+                                                TimeoutException {
+      Channel<T> channel = pollIdle();
+      refill();
+      if (channel != null)
+         return channel;
+
+      return multiplexer.establishNewChannel(type, timeout, null, options);
+   }
+
+   private synchronized Channel<T> pollIdle() throws ClosedException {
+      if (closed)
+         throw new ClosedException("The channel pool has already been closed.");
+
+      // Channels, that have been closed by the other side meanwhile, are dropped
+      for (Idle<T> entry = idle.pollFirst(); entry != null; entry = idle.pollFirst()) {
+         if (!entry.channel.isClosed())
+            return entry.channel;
+      }
+      return null;
+   }
+
+   /**
+    * Returns a leased channel to this pool.
+    * The listeners of the channel are removed and the other side is told, that the conversation ended.
+    * A closed channel is dropped. If the pool already keeps <code>maxIdle</code> channels, the channel is closed.
+    *
+    * @param channel The leased channel
+    */
+   public void release(Channel<T> channel) {
+      if (channel.isClosed()) {
+         refill();
+         return;
+      }
+
+      try {
+         channel.reset();
+      } catch (IOException e) {
+         log.warn("Could not reset channel " + channel.getId() + ", closing it.", e);
+         close(channel);
+         refill();
+         return;
+      }
+
+      synchronized (this) {
+         if (!closed && idle.size() < maxIdle) {
+            idle.addFirst(new Idle<>(channel, System.currentTimeMillis()));
+            return;
+         }
+      }
+      close(channel);
+   }
+
+   private void refill() {
+      int missing;
+      synchronized (this) {
+         missing = closed ? 0 : minIdle - idle.size() - opening;
+         if (missing <= 0)
+            return;
+
+         opening += missing;
+      }
+
+      List<CompletableFuture<Channel<T>>> futures;
+      try {
+         futures = multiplexer.establishNewChannels(type, missing, OPEN_TIMEOUT, options);
+      } catch (ClosedException e) {
+         synchronized (this) {
+            opening -= missing;
+         }
+         return;
+      }
+      for (CompletableFuture<Channel<T>> future : futures)
+         future.whenComplete(this::opened);
+   }
+
+   private void opened(Channel<T> channel, Throwable failure) {
+      if (failure != null)
+         log.warn("Could not open a channel for the pool of " + type.getName(), failure);
+
+      synchronized (this) {
+         opening--;
+         if (channel != null && !closed) {
+            idle.addLast(new Idle<>(channel, System.currentTimeMillis()));
+            return;
+         }
+      }
+      if (channel != null)
+         close(channel);
+   }
+
+   private void evict() {
+      List<Channel<T>> evicted = new ArrayList<>();
+      long deadline = System.currentTimeMillis() - idleTimeout;
+      synchronized (this) {
+         while (idle.size() > minIdle && idle.peekLast().since <= deadline)
+            evicted.add(idle.pollLast().channel);
+      }
+      // Closing sends, which may block, so it is done off the scheduler thread
+      if (!evicted.isEmpty())
+         SharedScheduler.worker().execute(() -> evicted.forEach(ChannelPool::close));
+   }
+
+   private static void close(Channel<?> channel) {
+      try {
+         channel.close();
+      } catch (IOException e) {
+         log.warn("Could not close channel " + channel.getId(), e);
+      }
+   }
+
+   /**
+    * Get the number of idle channels of this pool.
+    *
+    * @return The number of channels, that can be leased without establishing a new channel
+    */
+   public synchronized int getIdleCount() {
+      return idle.size();
+   }
+
+   public Class<T> getType() {
+      return type;
+   }
+
+   /**
+    * Closes this pool and its idle channels. Leased channels are closed, when they are returned.
+    */
+   @Override
+   public void close() {
+      List<Idle<T>> channels;
+      synchronized (this) {
+         if (closed)
+            return;
+
+         closed = true;
+         channels = new ArrayList<>(idle);
+         idle.clear();
+      }
+      if (evictor != null)
+         evictor.cancel(false);
+
+      for (Idle<T> entry : channels)
+         close(entry.channel);
+   }
+
+   @Override
+   public String toString() {
+      return "ChannelPool { type=" + type.getName() + ", minIdle=" + minIdle + ", maxIdle=" + maxIdle + " }";
+   }
+
+   private static class Idle<T> {
+      private final Channel<T> channel;
+      private final long since;
+
+      Idle(Channel<T> channel, long since) {
+         this.channel = channel;
+         this.since = since;
+      }
+   }
+}
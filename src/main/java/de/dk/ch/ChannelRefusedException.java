@@ -0,0 +1,35 @@
+package de.dk.ch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by a channel, that could not be opened, e.g. because the other side refused it.
+ * Carries the messages, that were sent through the channel before, but have not been delivered.
+ * The caller can resend them through another channel.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Channel#send(Object)
+ * @see Multiplexer#openPipelined(Class, Object, ChannelOptions)
+ */
+public class ChannelRefusedException extends ClosedException {
+   private static final long serialVersionUID = -2630462787460307917L;
+
+   private final transient List<?> undelivered;
+
+   public ChannelRefusedException(String message, Throwable cause, List<?> undelivered) {
+      super(message, cause);
+      this.undelivered = Collections.unmodifiableList(undelivered);
+   }
+
+   /**
+    * Get the messages, that were sent through the channel, but have not been delivered.
+    *
+    * @return The undelivered messages in the order they were sent
+    */
+   public List<?> getUndelivered() {
+      return undelivered;
+   }
+}
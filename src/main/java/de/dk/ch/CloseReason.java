@@ -0,0 +1,30 @@
+package de.dk.ch;
+
+/**
+ * The reason why a {@link Channel} has been closed.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Channel#getCloseReason()
+ */
+public enum CloseReason {
+   /**
+    * The channel has been closed by this side, e.g. by {@link Channel#close()} or by closing its multiplexer.
+    */
+   LOCAL,
+   /**
+    * The channel has been closed by the other side.
+    */
+   REMOTE,
+   /**
+    * The channel has been closed by this side, because no message was sent or received for the idle timeout.
+    *
+    * @see Multiplexer#setIdleTimeout(long)
+    */
+   IDLE,
+   /**
+    * The channel could not be opened, e.g. because the request was declined or timed out.
+    */
+   REFUSED;
+}
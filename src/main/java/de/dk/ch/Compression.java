@@ -0,0 +1,51 @@
+package de.dk.ch;
+
+import java.io.IOException;
+
+/**
+ * A compression codec for the payloads of a channel.
+ * The codec of a channel is negotiated, when the channel is established. The requesting side proposes
+ * the codecs of {@link ChannelOptions#setCompression(String...)}, the accepting side chooses the first one,
+ * that has been added to its multiplexer by {@link Multiplexer#addCompression(Compression)}.
+ * One instance is shared by all channels using the codec, so an implementation must be thread-safe.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see DeflateCompression
+ */
+public interface Compression {
+   /**
+    * Get the name, by which the codec is negotiated. Both sides must use the same name for the same codec.
+    *
+    * @return The name of the codec
+    */
+   public String getName();
+
+   /**
+    * Compresses the given <code>data</code>.
+    *
+    * @param data The data to be compressed
+    *
+    * @return The compressed data
+    *
+    * @throws IOException If the data could not be compressed
+    */
+   public byte[] compress(byte[] data) throws IOException;
+
+   /**
+    * Decompresses data, that has been compressed by {@link #compress(byte[])}.
+    * The data comes from the other side, so an implementation must not allocate more than <code>maxSize</code>
+    * bytes, whatever size the data claims.
+    *
+    * @param data The array of the compressed data
+    * @param offset The offset of the compressed data in the array
+    * @param length The length of the compressed data
+    * @param maxSize The maximum size of the decompressed data
+    *
+    * @return The decompressed data
+    *
+    * @throws IOException If the data is corrupt or decompresses to more than <code>maxSize</code> bytes
+    */
+   public byte[] decompress(byte[] data, int offset, int length, int maxSize) throws IOException;
+}
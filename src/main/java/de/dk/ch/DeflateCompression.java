@@ -0,0 +1,127 @@
+package de.dk.ch;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The deflate compression of <code>java.util.zip</code>.
+ * Each thread reuses its own <code>Deflater</code>, <code>Inflater</code> and buffer,
+ * so a message costs no allocation besides the resulting array.
+ * The compressed data starts with the length of the uncompressed data,
+ * so it is decompressed right into an array of the exact size.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class DeflateCompression implements Compression {
+   /**
+    * The name of the deflate compression.
+    */
+   public static final String NAME = "deflate";
+
+   private static final int HEADER_SIZE = 4;
+   // A larger buffer is not kept by the thread after the message
+   private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+   private final ThreadLocal<Deflater> deflater;
+   private final ThreadLocal<Inflater> inflater = ThreadLocal.withInitial(() -> new Inflater());
+   private final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[8192]);
+
+   /**
+    * Creates a new deflate compression with the given compression <code>level</code>.
+    *
+    * @param level The compression level from 0 to 9 or -1 for the default level
+    *
+    * @throws IllegalArgumentException If the <code>level</code> is invalid
+    *
+    * @see Deflater#setLevel(int)
+    */
+   public DeflateCompression(int level) throws IllegalArgumentException {
+      if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+         throw new IllegalArgumentException("Invalid compression level: " + level);
+
+      this.deflater = ThreadLocal.withInitial(() -> new Deflater(level));
+   }
+
+   /**
+    * Creates a new deflate compression with the default compression level.
+    */
+   public DeflateCompression() {
+      this(Deflater.DEFAULT_COMPRESSION);
+   }
+
+   @Override
+   public String getName() {
+      return NAME;
+   }
+
+   @Override
+   public byte[] compress(byte[] data) throws IOException {
+      Deflater deflater = this.deflater.get();
+      deflater.reset();
+      deflater.setInput(data);
+      deflater.finish();
+
+      byte[] buffer = this.buffer.get();
+      int size = HEADER_SIZE;
+      while (!deflater.finished()) {
+         if (size == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            if (buffer.length <= MAX_RETAINED_BUFFER)
+               this.buffer.set(buffer);
+         }
+         size += deflater.deflate(buffer, size, buffer.length - size);
+      }
+
+      byte[] compressed = Arrays.copyOf(buffer, size);
+      compressed[0] = (byte) (data.length >>> 24);
+      compressed[1] = (byte) (data.length >>> 16);
+      compressed[2] = (byte) (data.length >>> 8);
+      compressed[3] = (byte) data.length;
+      return compressed;
+   }
+
+   @Override
+   public byte[] decompress(byte[] data, int offset, int length, int maxSize) throws IOException {
+      if (length < HEADER_SIZE)
+         throw new IOException("Corrupt compressed data of length " + length);
+
+      int size = (data[offset] & 0xFF) << 24
+               | (data[offset + 1] & 0xFF) << 16
+               | (data[offset + 2] & 0xFF) << 8
+               | (data[offset + 3] & 0xFF);
+      if (size < 0)
+         throw new IOException("Corrupt compressed data of size " + size);
+      // The size is checked before it is allocated, a forged header must not exhaust the memory
+      if (size > maxSize)
+         throw new IOException("The compressed data claims " + size + " bytes, more than " + maxSize);
+
+      Inflater inflater = this.inflater.get();
+      inflater.reset();
+      inflater.setInput(data, offset + HEADER_SIZE, length - HEADER_SIZE);
+      byte[] decompressed = new byte[size];
+      try {
+         int inflated = 0;
+         while (inflated < size) {
+            int n = inflater.inflate(decompressed, inflated, size - inflated);
+            if (n == 0 && (inflater.finished() || inflater.needsInput()))
+               break;
+
+            inflated += n;
+         }
+         if (inflated != size)
+            throw new IOException("Corrupt compressed data, " + inflated + " of " + size + " bytes decompressed");
+      } catch (DataFormatException e) {
+         throw new IOException("Corrupt compressed data", e);
+      }
+      return decompressed;
+   }
+
+   @Override
+   public String toString() {
+      return "DeflateCompression";
+   }
+}
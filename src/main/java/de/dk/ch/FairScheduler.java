@@ -0,0 +1,349 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A sender, that sits in front of another sender and interleaves the packets of the channels
+ * by deficit round robin, so a bulk transfer through one channel does not delay the other channels.
+ * Each channel has a weight (see {@link ChannelOptions#setWeight(int)}). While several channels have packets
+ * waiting, a channel with weight <code>n</code> gets <code>n</code> packets sent per round.
+ * The packets of one channel keep their order.
+ *
+ * Control packets ({@link ChannelPacket}s) always jump the queue,
+ * except for the packets closing or resetting a channel, which are sent after the packets queued before them
+ * for that channel.
+ *
+ * A packet is queued only while another thread is sending through the underlying sender.
+ * The thread, that finds the scheduler idle, sends the waiting packets in their scheduled order
+ * until no packet is left. If that fails, the <code>IOException</code> is thrown to that thread
+ * and the packet, that failed, and the remaining packets stay queued until the next send or flush.
+ * A channel queues at most <code>maxQueued</code> packets, further senders of that channel wait,
+ * so the flow control of the channels still reaches the threads sending through them.
+ * Control packets never wait. Neither does the I/O thread of the underlying transport,
+ * e.g. the event loop of a {@link NioConnection}, it queues over the limit.
+ * The thread sending the queued packets may wait for that transport and only the I/O thread can release it.
+ *
+ * <pre>
+ * Multiplexer multiplexer = new Multiplexer(idGenerator, new FairScheduler(sender), handlers);
+ * multiplexer.establishNewChannel(Bulk.class, timeout, null, new ChannelOptions().setWeight(1));
+ * multiplexer.establishNewChannel(Interactive.class, timeout, null, new ChannelOptions().setWeight(16));
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see ChannelOptions
+ */
+public class FairScheduler implements Sender, Flushable, Closeable {
+   /**
+    * The number of packets a channel queues at most, if no other limit has been set.
+    */
+   public static final int DEFAULT_MAX_QUEUED = 256;
+
+   private final Sender target;
+   private final int maxQueued;
+   // Tells whether the calling thread is the I/O thread of the target, that must never wait
+   private final BooleanSupplier ioThread;
+
+   private final Deque<Serializable> control = new ArrayDeque<>();
+   private final Map<Long, ChannelQueue> queues = new HashMap<>();
+   private final Queue<ChannelQueue> active = new ArrayDeque<>();
+   private boolean draining = false;
+   // The thread sending the queued packets, it must not wait for itself
+   private Thread drainer;
+
+   /**
+    * Creates a new fair scheduler, that queues at most {@value #DEFAULT_MAX_QUEUED} packets per channel.
+    *
+    * @param target The sender to send the scheduled packets with
+    */
+   public FairScheduler(Sender target) {
+      this(target, DEFAULT_MAX_QUEUED);
+   }
+
+   /**
+    * Creates a new fair scheduler.
+    *
+    * @param target The sender to send the scheduled packets with
+    * @param maxQueued The maximum number of packets a channel queues, before its senders wait
+    *
+    * @throws IllegalArgumentException If <code>maxQueued</code> is smaller than 1
+    */
+   public FairScheduler(Sender target, int maxQueued) throws IllegalArgumentException {
+      this(target, maxQueued, NioConnection.ioThreadOf(target));
+   }
+
+   /**
+    * Creates a new fair scheduler.
+    *
+    * @param target The sender to send the scheduled packets with
+    * @param maxQueued The maximum number of packets a channel queues, before its senders wait
+    * @param ioThread Tells whether the calling thread is the I/O thread of the target.
+    * That thread never waits for the queue of a channel.
+    *
+    * @throws IllegalArgumentException If <code>maxQueued</code> is smaller than 1
+    */
+   public FairScheduler(Sender target, int maxQueued, BooleanSupplier ioThread) throws IllegalArgumentException {
+      if (maxQueued < 1)
+         throw new IllegalArgumentException("A channel must queue at least one packet: " + maxQueued);
+
+      this.target = Objects.requireNonNull(target);
+      this.maxQueued = maxQueued;
+      this.ioThread = Objects.requireNonNull(ioThread);
+   }
+
+   /**
+    * Set the weight of the channel with the given <code>channelId</code>.
+    * Channels, that have not been registered, have the weight {@link ChannelOptions#DEFAULT_WEIGHT}.
+    * The multiplexer registers its channels automatically.
+    *
+    * @param channelId The id of the channel
+    * @param weight The weight of the channel
+    *
+    * @throws IllegalArgumentException If <code>weight</code> is smaller than 1
+    */
+   public synchronized void register(long channelId, int weight) throws IllegalArgumentException {
+      if (weight < 1)
+         throw new IllegalArgumentException("The weight of a channel must be at least 1: " + weight);
+
+      ChannelQueue queue = queues.get(channelId);
+      if (queue == null) {
+         queues.put(channelId, new ChannelQueue(channelId, weight));
+      } else {
+         queue.weight = weight;
+         queue.unregistered = false;
+      }
+   }
+
+   /**
+    * Forgets the channel with the given <code>channelId</code>.
+    * Packets of the channel, that are still queued, are sent nevertheless.
+    * The multiplexer unregisters its channels, when they are closed.
+    *
+    * @param channelId The id of the channel
+    */
+   public synchronized void unregister(long channelId) {
+      ChannelQueue queue = queues.get(channelId);
+      if (queue == null)
+         return;
+
+      if (queue.packets.isEmpty())
+         queues.remove(channelId);
+      else
+         queue.unregistered = true;
+   }
+
+   @Override
+   public void send(Serializable msg) throws IOException {
+      synchronized (this) {
+         awaitQueueSpace(msg);
+         enqueue(msg);
+         if (draining)
+            return;
+
+         startDraining();
+      }
+      drain();
+   }
+
+   private void startDraining() {
+      draining = true;
+      drainer = Thread.currentThread();
+   }
+
+   private void stopDraining() {
+      draining = false;
+      drainer = null;
+      notifyAll();
+   }
+
+   private void awaitQueueSpace(Serializable msg) throws InterruptedIOException {
+      if (!(msg instanceof Packet) || msg instanceof ChannelPacket || msg instanceof PacketBatch)
+         return;
+      // The I/O thread may be the only one, that can release the draining thread
+      if (ioThread.getAsBoolean())
+         return;
+
+      long channelId = ((Packet) msg).channelId;
+      while (draining && drainer != Thread.currentThread()) {
+         ChannelQueue queue = queues.get(channelId);
+         if (queue == null || queue.packets.size() < maxQueued)
+            return;
+
+         try {
+            wait();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the queue of channel " + channelId);
+         }
+      }
+   }
+
+   private void enqueue(Serializable msg) {
+      if (!(msg instanceof Packet) || msg instanceof PacketBatch) {
+         control.offer(msg);
+         return;
+      }
+
+      Packet packet = (Packet) msg;
+      ChannelQueue queue = queues.get(packet.channelId);
+      if (msg instanceof ChannelPacket) {
+         ChannelPacket.ChannelPacketType type = ((ChannelPacket) msg).getPacketType();
+         boolean ordered = type == ChannelPacket.ChannelPacketType.CLOSE || type == ChannelPacket.ChannelPacketType.RESET;
+         if (type == ChannelPacket.ChannelPacketType.CLOSE && queue != null) {
+            // A closed channel is forgotten as soon as its queue is empty
+            queue.unregistered = true;
+            if (queue.packets.isEmpty())
+               queues.remove(packet.channelId);
+         }
+         if (!ordered || queue == null || queue.packets.isEmpty()) {
+            control.offer(msg);
+            return;
+         }
+      }
+
+      if (queue == null) {
+         queue = new ChannelQueue(packet.channelId, ChannelOptions.DEFAULT_WEIGHT);
+         // A channel, that has not been registered, is forgotten as soon as its queue is empty
+         queue.unregistered = true;
+         queues.put(packet.channelId, queue);
+      }
+      queue.packets.offer(packet);
+      if (!queue.active) {
+         queue.active = true;
+         active.offer(queue);
+      }
+   }
+
+   private void drain() throws IOException {
+      while (true) {
+         Serializable next;
+         synchronized (this) {
+            next = next();
+            if (next == null) {
+               stopDraining();
+               return;
+            }
+         }
+         try {
+            target.send(next);
+         } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+               // The failed packet is sent first again, so it keeps its place before the packets of its channel
+               control.offerFirst(next);
+               stopDraining();
+            }
+            throw e;
+         }
+      }
+   }
+
+   private Serializable next() {
+      Serializable msg = control.poll();
+      if (msg != null)
+         return msg;
+
+      ChannelQueue queue = active.peek();
+      if (queue == null)
+         return null;
+
+      if (queue.deficit == 0)
+         queue.deficit = queue.weight;
+
+      Packet packet = queue.packets.poll();
+      if (queue.packets.size() == maxQueued - 1)
+         notifyAll();
+
+      queue.deficit--;
+      if (queue.packets.isEmpty()) {
+         active.poll();
+         queue.active = false;
+         queue.deficit = 0;
+         if (queue.unregistered)
+            queues.remove(queue.channelId);
+      } else if (queue.deficit == 0) {
+         active.offer(active.poll());
+      }
+      return packet;
+   }
+
+   /**
+    * Sends the queued packets and flushes the underlying sender.
+    *
+    * @throws IOException If an I/O error occurs while sending the packets
+    */
+   @Override
+   public void flush() throws IOException {
+      boolean drain;
+      synchronized (this) {
+         drain = !draining;
+         if (drain)
+            startDraining();
+      }
+      if (drain)
+         drain();
+
+      if (target instanceof Flushable)
+         ((Flushable) target).flush();
+   }
+
+   /**
+    * Sends the queued packets and flushes the underlying sender.
+    *
+    * @throws IOException If an I/O error occurs while sending the packets
+    */
+   @Override
+   public void close() throws IOException {
+      flush();
+   }
+
+   /**
+    * Get the number of packets waiting to be sent.
+    *
+    * @return The number of queued packets
+    */
+   public synchronized int getQueuedCount() {
+      int count = control.size();
+      for (ChannelQueue queue : active)
+         count += queue.packets.size();
+
+      return count;
+   }
+
+   synchronized int getChannelQueueCount() {
+      return queues.size();
+   }
+
+   public int getMaxQueued() {
+      return maxQueued;
+   }
+
+   public Sender getTarget() {
+      return target;
+   }
+
+   private static class ChannelQueue {
+      private final long channelId;
+      private final Queue<Packet> packets = new ArrayDeque<>();
+      private int weight;
+      private int deficit;
+      private boolean active;
+      private boolean unregistered;
+
+      ChannelQueue(long channelId, int weight) {
+         this.channelId = channelId;
+         this.weight = weight;
+      }
+   }
+}
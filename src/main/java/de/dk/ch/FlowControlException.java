@@ -0,0 +1,21 @@
+package de.dk.ch;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that a message could not be sent through a channel,
+ * because the other side did not grant enough credit in time.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#setInitialWindow(int)
+ * @see Multiplexer#setSendTimeout(long)
+ */
+public class FlowControlException extends IOException {
+   private static final long serialVersionUID = -3364861393305585416L;
+
+   public FlowControlException(String message) {
+      super(message);
+   }
+}
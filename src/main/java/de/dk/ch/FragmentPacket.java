@@ -0,0 +1,78 @@
+package de.dk.ch;
+
+/**
+ * A part of a payload, that is sent as bytes, because it was too large to be sent as one packet
+ * or because it has been compressed.
+ * The fragments of a payload are sent one after another through the channel, the last one is marked.
+ * Packets of other channels may be sent between them.
+ * The receiving channel reassembles the payload from the fragments.
+ * A compressed payload is sent as fragments, even if it fits into one.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#setFragmentSize(int)
+ * @see Compression
+ */
+public class FragmentPacket extends Packet {
+   private static final long serialVersionUID = -1906307522633810468L;
+
+   /**
+    * The payload is a <code>byte[]</code>, the fragments carry its bytes.
+    */
+   public static final byte ENCODING_BYTES = 0;
+   /**
+    * The payload is a <code>String</code>, the fragments carry its UTF-8 bytes.
+    */
+   public static final byte ENCODING_STRING = 1;
+   /**
+    * The fragments carry the payload serialized by the {@link PayloadSerializer} of the multiplexer.
+    */
+   public static final byte ENCODING_SERIALIZED = 2;
+
+   private final byte encoding;
+   private final boolean last;
+   private final boolean compressed;
+   private final byte[] data;
+
+   public FragmentPacket(long channelId, byte encoding, boolean last, boolean compressed, byte[] data) {
+      super(channelId);
+      this.encoding = encoding;
+      this.last = last;
+      this.compressed = compressed;
+      this.data = data;
+   }
+
+   public FragmentPacket(long channelId, byte encoding, boolean last, byte[] data) {
+      this(channelId, encoding, last, false, data);
+   }
+
+   public byte getEncoding() {
+      return encoding;
+   }
+
+   public boolean isLast() {
+      return last;
+   }
+
+   /**
+    * Whether the data of the fragments has been compressed with the compression of the channel.
+    * The whole payload is compressed before it is split into fragments.
+    *
+    * @return <code>true</code> if the payload is compressed
+    *
+    * @see Compression
+    */
+   public boolean isCompressed() {
+      return compressed;
+   }
+
+   public byte[] getData() {
+      return data;
+   }
+
+   @Override
+   public String toString() {
+      return "FragmentPacket { channelID=" + channelId + ", size=" + data.length + ", last=" + last + " }";
+   }
+}
@@ -0,0 +1,243 @@
+package de.dk.ch;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer for many timeouts, that are usually cancelled before they expire.
+ * The timeouts are kept in a wheel of buckets, each bucket holds the timeouts expiring in one tick,
+ * so scheduling and cancelling a timeout costs a constant time, independent of the number of timeouts.
+ * A timeout expires up to one tick late.
+ * The wheel is turned by the shared scheduler thread and only while it holds timeouts.
+ * Only that thread touches the buckets, scheduled and cancelled timeouts are handed over by queues.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see SharedScheduler
+ */
+class HashedWheelTimer {
+   private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+   private final long tickNanos;
+   private final Bucket[] wheel;
+   private final int mask;
+   private final long start = System.nanoTime();
+
+   private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+   private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger size = new AtomicInteger();
+   private final AtomicBoolean turning = new AtomicBoolean();
+   private volatile ScheduledFuture<?> ticker;
+   // Only accessed by the ticking thread
+   private long tick = -1;
+
+   /**
+    * Creates a new timer.
+    *
+    * @param tickMillis The duration of a tick in milliseconds
+    * @param wheelSize The number of buckets, rounded up to a power of 2
+    *
+    * @throws IllegalArgumentException If <code>tickMillis</code> or <code>wheelSize</code> is smaller than 1
+    */
+   HashedWheelTimer(long tickMillis, int wheelSize) throws IllegalArgumentException {
+      if (tickMillis < 1)
+         throw new IllegalArgumentException("The tick must be at least a millisecond: " + tickMillis);
+      if (wheelSize < 1 || wheelSize > 1 << 30)
+         throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+
+      this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+      int buckets = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+      this.wheel = new Bucket[buckets];
+      for (int i = 0; i < buckets; i++)
+         wheel[i] = new Bucket();
+
+      this.mask = buckets - 1;
+   }
+
+   /**
+    * Schedules the <code>task</code> to run on the shared scheduler thread after the <code>delay</code>.
+    * The task must be short and must not block.
+    *
+    * @param task The task to run when the timeout expires
+    * @param delayMillis The delay in milliseconds
+    *
+    * @return The timeout to cancel the task with
+    */
+   Timeout schedule(Runnable task, long delayMillis) {
+      Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+      size.incrementAndGet();
+      scheduled.offer(timeout);
+      if (turning.compareAndSet(false, true))
+         startTurning();
+
+      return timeout;
+   }
+
+   private void startTurning() {
+      long tickMillis = TimeUnit.NANOSECONDS.toMillis(tickNanos);
+      this.ticker = SharedScheduler.get().scheduleAtFixedRate(this::turn, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+   }
+
+   private void turn() {
+      long now = (System.nanoTime() - start) / tickNanos;
+      if (tick < 0)
+         tick = now - 1;
+
+      transferScheduled();
+      removeCancelled();
+      // A late tick catches up with all the buckets it missed
+      while (tick < now) {
+         tick++;
+         expire(wheel[(int) (tick & mask)]);
+      }
+
+      if (size.get() > 0)
+         return;
+
+      // The wheel stops when it is empty, a timeout scheduled meanwhile turns it again
+      ScheduledFuture<?> ticker = this.ticker;
+      if (ticker != null)
+         ticker.cancel(false);
+
+      this.tick = -1;
+      turning.set(false);
+      if (size.get() > 0 && turning.compareAndSet(false, true))
+         startTurning();
+   }
+
+   private void transferScheduled() {
+      for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+         if (timeout.state.get() != Timeout.PENDING)
+            continue;
+
+         // A timeout expiring within the current tick goes into the next bucket
+         long deadline = Math.max((timeout.deadline - start + tickNanos - 1) / tickNanos, tick + 1);
+         timeout.rounds = (deadline - tick - 1) / wheel.length;
+         wheel[(int) (deadline & mask)].add(timeout);
+      }
+   }
+
+   private void removeCancelled() {
+      for (Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+         if (timeout.bucket != null)
+            timeout.bucket.remove(timeout);
+      }
+   }
+
+   private void expire(Bucket bucket) {
+      Timeout timeout = bucket.head;
+      while (timeout != null) {
+         Timeout next = timeout.next;
+         if (timeout.rounds > 0) {
+            timeout.rounds--;
+         } else {
+            bucket.remove(timeout);
+            timeout.expire();
+         }
+         timeout = next;
+      }
+   }
+
+   /**
+    * Get the number of timeouts, that neither expired nor were cancelled.
+    *
+    * @return The number of pending timeouts
+    */
+   int size() {
+      return size.get();
+   }
+
+   /**
+    * A scheduled task of the timer.
+    */
+   class Timeout {
+      private static final int PENDING = 0;
+      private static final int CANCELLED = 1;
+      private static final int EXPIRED = 2;
+
+      private final Runnable task;
+      private final long deadline;
+      private final AtomicInteger state = new AtomicInteger(PENDING);
+
+      // Only accessed by the ticking thread
+      private long rounds;
+      private Bucket bucket;
+      private Timeout previous;
+      private Timeout next;
+
+      private Timeout(Runnable task, long deadline) {
+         this.task = task;
+         this.deadline = deadline;
+      }
+
+      /**
+       * Cancels the task of this timeout, if it has not run yet.
+       *
+       * @return <code>true</code> if the task will not run
+       */
+      boolean cancel() {
+         if (!state.compareAndSet(PENDING, CANCELLED))
+            return false;
+
+         size.decrementAndGet();
+         cancelled.offer(this);
+         return true;
+      }
+
+      private void expire() {
+         if (!state.compareAndSet(PENDING, EXPIRED))
+            return;
+
+         size.decrementAndGet();
+         try {
+            task.run();
+         } catch (RuntimeException e) {
+            log.error("A timeout task threw an exception.", e);
+         }
+      }
+   }
+
+   // A doubly linked list, so a cancelled timeout is removed at once
+   private static class Bucket {
+      private Timeout head;
+      private Timeout tail;
+
+      void add(Timeout timeout) {
+         timeout.bucket = this;
+         timeout.previous = tail;
+         if (tail == null)
+            head = timeout;
+         else
+            tail.next = timeout;
+
+         tail = timeout;
+      }
+
+      void remove(Timeout timeout) {
+         if (timeout.bucket != this)
+            return;
+
+         if (timeout.previous == null)
+            head = timeout.next;
+         else
+            timeout.previous.next = timeout.next;
+
+         if (timeout.next == null)
+            tail = timeout.previous;
+         else
+            timeout.next.previous = timeout.previous;
+
+         timeout.bucket = null;
+         timeout.previous = null;
+         timeout.next = null;
+      }
+   }
+}
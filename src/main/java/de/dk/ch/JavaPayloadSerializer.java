@@ -0,0 +1,51 @@
+package de.dk.ch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * A payload serializer that uses the java serialization.
+ * Only payloads that implement <code>java.io.Serializable</code> can be serialized.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class JavaPayloadSerializer implements PayloadSerializer {
+   public JavaPayloadSerializer() {
+
+   }
+
+   @Override
+   public byte[] serialize(Object payload) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(payload);
+      }
+      return bytes.toByteArray();
+   }
+
+   @Override
+   public Object deserialize(byte[] data, int offset, int length) throws IOException {
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+         return in.readObject();
+      } catch (ClassNotFoundException e) {
+         throw new IOException("Could not deserialize payload.", e);
+      }
+   }
+
+   @Override
+   public int hashCode() {
+      return getClass().hashCode();
+   }
+
+   /**
+    * All java payload serializers serialize the same way, so they are all equal.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      return obj != null && obj.getClass() == getClass();
+   }
+}
@@ -0,0 +1,81 @@
+package de.dk.ch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A listener, that passes the messages to a chain of listeners.
+ * The listeners are held in a copy-on-write array, adding and removing a listener copies the array.
+ * Passing a message allocates nothing and takes no lock, the listeners see the chain
+ * as it was when the message arrived.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Channel#addListener(ChannelListener)
+ */
+class ListenerChain<T> implements ChannelListener<T>, Iterable<ChannelListener<T>> {
+   private static final ChannelListener<?>[] EMPTY = new ChannelListener<?>[0];
+
+   @SuppressWarnings("unchecked")
+   private volatile ChannelListener<T>[] listeners = (ChannelListener<T>[]) EMPTY;
+
+   @Override
+   public void received(T packet) {
+      ChannelListener<T>[] listeners = this.listeners;
+      if (listeners.length == 1) {
+         listeners[0].received(packet);
+         return;
+      }
+
+      for (ChannelListener<T> l : listeners)
+         l.received(packet);
+   }
+
+   @Override
+   public void reset() {
+      for (ChannelListener<T> l : listeners)
+         l.reset();
+   }
+
+   public synchronized boolean add(ChannelListener<T> listener) {
+      ChannelListener<T>[] listeners = Arrays.copyOf(this.listeners, this.listeners.length + 1);
+      listeners[listeners.length - 1] = listener;
+      this.listeners = listeners;
+      return true;
+   }
+
+   public synchronized boolean remove(ChannelListener<T> listener) {
+      ChannelListener<T>[] listeners = this.listeners;
+      for (int i = 0; i < listeners.length; i++) {
+         if (Objects.equals(listeners[i], listener)) {
+            ChannelListener<T>[] removed = Arrays.copyOf(listeners, listeners.length - 1);
+            System.arraycopy(listeners, i + 1, removed, i, listeners.length - i - 1);
+            this.listeners = removed;
+            return true;
+         }
+      }
+      return false;
+   }
+
+   @SuppressWarnings("unchecked")
+   public synchronized void clear() {
+      this.listeners = (ChannelListener<T>[]) EMPTY;
+   }
+
+   public int size() {
+      return listeners.length;
+   }
+
+   public boolean isEmpty() {
+      return listeners.length == 0;
+   }
+
+   @Override
+   public Iterator<ChannelListener<T>> iterator() {
+      return Collections.unmodifiableList(Arrays.asList(listeners))
+                        .iterator();
+   }
+}
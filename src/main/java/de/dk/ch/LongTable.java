@@ -0,0 +1,203 @@
+package de.dk.ch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A concurrent hash table from primitive <code>long</code> keys to objects with open addressing.
+ * Lookups neither box the key nor take a lock. Changes are serialized by the lock of the table.
+ * The table keeps no entry objects, an entry costs one slot of a <code>long</code> and one slot of a reference array.
+ *
+ * A removed entry leaves a tombstone, that is never reused for another key. When the table runs full
+ * of entries and tombstones, the entries are copied into a new table, that is published as a whole.
+ * A lookup concurrent to a change sees either the state before or after the change.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+class LongTable<V> {
+   private static final int MIN_CAPACITY = 16;
+   private static final Object TOMBSTONE = new Object();
+
+   private volatile Slots slots = new Slots(MIN_CAPACITY);
+   private volatile int size;
+
+   LongTable() {
+
+   }
+
+   private static int capacityFor(int size) {
+      int capacity = MIN_CAPACITY;
+      while (capacity < size * 4 && capacity < (1 << 30))
+         capacity <<= 1;
+
+      return capacity;
+   }
+
+   @SuppressWarnings("unchecked")
+   public V get(long key) {
+      Slots slots = this.slots;
+      for (int i = slots.indexOf(key);; i = (i + 1) & slots.mask) {
+         // The value is read first, it is written after the key
+         Object value = slots.values.get(i);
+         if (value == null)
+            return null;
+         if (value != TOMBSTONE && slots.keys.get(i) == key)
+            return (V) value;
+      }
+   }
+
+   /**
+    * Associates the <code>value</code> with the <code>key</code>.
+    *
+    * @param key The key
+    * @param value The value (must not be <code>null</code>)
+    *
+    * @return The previous value of the <code>key</code> or <code>null</code>
+    */
+   @SuppressWarnings("unchecked")
+   public synchronized V put(long key, V value) {
+      if (value == null)
+         throw new NullPointerException("The value must not be null.");
+
+      Slots slots = this.slots;
+      int i = slots.indexOf(key);
+      for (Object current = slots.values.get(i); current != null; current = slots.values.get(i)) {
+         if (current != TOMBSTONE && slots.keys.get(i) == key) {
+            slots.values.set(i, value);
+            return (V) current;
+         }
+         i = (i + 1) & slots.mask;
+      }
+
+      slots.keys.set(i, key);
+      slots.values.set(i, value);
+      slots.used++;
+      size++;
+      if (slots.used * 2 > slots.values.length())
+         rehash();
+
+      return null;
+   }
+
+   /**
+    * Removes the entry of the <code>key</code>.
+    *
+    * @param key The key
+    *
+    * @return The removed value or <code>null</code> if there was no entry for the <code>key</code>
+    */
+   @SuppressWarnings("unchecked")
+   public synchronized V remove(long key) {
+      int i = slotOf(key);
+      if (i < 0)
+         return null;
+
+      Object value = slots.values.get(i);
+      removeAt(i);
+      return (V) value;
+   }
+
+   /**
+    * Removes the entry of the <code>key</code>, if it is associated with the given <code>value</code>.
+    *
+    * @param key The key
+    * @param value The expected value
+    *
+    * @return <code>true</code> if the entry was removed
+    */
+   public synchronized boolean remove(long key, V value) {
+      int i = slotOf(key);
+      if (i < 0 || slots.values.get(i) != value)
+         return false;
+
+      removeAt(i);
+      return true;
+   }
+
+   private int slotOf(long key) {
+      Slots slots = this.slots;
+      for (int i = slots.indexOf(key);; i = (i + 1) & slots.mask) {
+         Object value = slots.values.get(i);
+         if (value == null)
+            return -1;
+         if (value != TOMBSTONE && slots.keys.get(i) == key)
+            return i;
+      }
+   }
+
+   private void removeAt(int i) {
+      slots.values.set(i, TOMBSTONE);
+      size--;
+      if (slots.values.length() > MIN_CAPACITY && size * 8 < slots.values.length())
+         rehash();
+   }
+
+   private void rehash() {
+      Slots old = this.slots;
+      Slots slots = new Slots(capacityFor(size));
+      for (int i = 0; i < old.values.length(); i++) {
+         Object value = old.values.get(i);
+         if (value == null || value == TOMBSTONE)
+            continue;
+
+         long key = old.keys.get(i);
+         int j = slots.indexOf(key);
+         while (slots.values.get(j) != null)
+            j = (j + 1) & slots.mask;
+
+         slots.keys.set(j, key);
+         slots.values.set(j, value);
+         slots.used++;
+      }
+      this.slots = slots;
+   }
+
+   /**
+    * Get a snapshot of the values of this table.
+    *
+    * @return A new list of the values
+    */
+   @SuppressWarnings("unchecked")
+   public List<V> values() {
+      Slots slots = this.slots;
+      List<V> values = new ArrayList<>(size);
+      for (int i = 0; i < slots.values.length(); i++) {
+         Object value = slots.values.get(i);
+         if (value != null && value != TOMBSTONE)
+            values.add((V) value);
+      }
+      return values;
+   }
+
+   public int size() {
+      return size;
+   }
+
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   private static class Slots {
+      private final AtomicLongArray keys;
+      private final AtomicReferenceArray<Object> values;
+      private final int mask;
+      private final int shift;
+      // Entries and tombstones, only accessed with the lock of the table
+      private int used;
+
+      Slots(int capacity) {
+         this.keys = new AtomicLongArray(capacity);
+         this.values = new AtomicReferenceArray<>(capacity);
+         this.mask = capacity - 1;
+         this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+      }
+
+      int indexOf(long key) {
+         // Fibonacci hashing spreads the consecutive ids over the whole table
+         return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+      }
+   }
+}
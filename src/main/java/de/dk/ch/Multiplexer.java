@@ -1,18 +1,37 @@
 package de.dk.ch;
 
-import static de.dk.util.CollectionUtils.toArray;
+import static de.dk.ch.Tracer.TRACER;
 
+import java.io.Flushable;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+
+import javax.management.JMException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,20 +56,85 @@ import de.dk.ch.ChannelPacket.ChannelPacketType;
  */
 public class Multiplexer implements Receiver {
    private static final Logger log = LoggerFactory.getLogger(Multiplexer.class);
-
-   private static final String RECEIVE_METHOD_NAME = "receive";
-   private static final String NEW_CHANNEL_METHOD_NAME = "newChannelRequested";
-   private static final String CLOSED_METHOD = "channelClosed";
+   // The number of refused and of closed channel ids remembered
+   private static final int MAX_REMEMBERED_IDS = 1024;
+   // A tick of 10 ms and 512 buckets cover requests timing out within about 5 seconds in one round
+   private static final long TIMER_TICK = 10;
+   private static final int TIMER_WHEEL_SIZE = 512;
+   // The longest interval between two sweeps for idle channels
+   private static final long MAX_SWEEP_INTERVAL = 1000;
+   /**
+    * The maximum size in bytes of a fragmented payload, that a channel reassembles, if no other limit has been set.
+    */
+   public static final int DEFAULT_MAX_REASSEMBLY_SIZE = 64 * 1024 * 1024;
+   /**
+    * The size in bytes, from which on payloads are compressed, if no other threshold has been set.
+    */
+   public static final int DEFAULT_COMPRESSION_THRESHOLD = 512;
+   /**
+    * The number of unanswered pings, after which the other side is considered dead, if no other limit has been set.
+    */
+   public static final int DEFAULT_MAX_MISSED_PONGS = 3;
 
    private final IDGenerator idGenerator;
    private final Sender sender;
-   private final Map<Long, Channel<?>> channels = new ConcurrentHashMap<>();
+   // Counts the packets sent by the channels and the multiplexer
+   private final Sender meteredSender;
+   private final MultiplexerMetrics metrics = new MultiplexerMetrics(this);
+   private final LongTable<Channel<?>> channels = new LongTable<>();
    private final Map<Class<?>, ChannelHandler<?>> handlers = new ConcurrentHashMap<>();
-   private final Map<Long, ChannelHandler<?>> channelAssociatedHandlers = new ConcurrentHashMap<>();
-   private final Map<Long, NewChannelRequest<?>> requests = new ConcurrentHashMap<>();
+   private final LongTable<NewChannelRequest<?>> requests = new LongTable<>();
+   // Owns the deadlines of all the requests
+   private final HashedWheelTimer timer = new HashedWheelTimer(TIMER_TICK, TIMER_WHEEL_SIZE);
+   // The ids of the recently refused pipelined channels, their early data is dropped
+   private final Map<Long, Boolean> refusedIds = recentIds();
+   // The ids of the recently closed channels, the messages sent concurrently with closing them are dropped
+   private final Map<Long, Boolean> closedIds = recentIds();
+   // The handler resolved for each requested type, replaced whenever the handlers change
+   private volatile ClassValue<Optional<ChannelHandler<?>>> resolvedHandlers = newResolution();
 
+   private volatile int initialWindow = 0;
+   private volatile long sendTimeout = -1;
+   private volatile Executor executor;
+   private volatile boolean channelMetrics = false;
+   private final Map<Class<?>, Integer> weights = new ConcurrentHashMap<>();
+   private volatile int maxRemoteWeight = ChannelOptions.DEFAULT_WEIGHT;
+   private volatile int fragmentSize = 0;
+   private volatile int maxReassemblySize = DEFAULT_MAX_REASSEMBLY_SIZE;
+   private volatile PayloadSerializer payloadSerializer = new JavaPayloadSerializer();
+   private final Map<String, Compression> compressions = new ConcurrentHashMap<>();
+   private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+   private final RttEstimator rtt = new RttEstimator();
+   // The ping intervals passed since the last pong
+   private final AtomicInteger missedPongs = new AtomicInteger();
+   // Set while a periodic ping is handed off, so a blocking sender does not pile up pings
+   private final AtomicBoolean pinging = new AtomicBoolean();
+   private volatile int maxMissedPongs = DEFAULT_MAX_MISSED_PONGS;
+   private long pingInterval = 0;
+   private volatile ScheduledFuture<?> pinger;
+   // A coarse clock in milliseconds, only advanced by the sweeps, so channels record their activity cheaply
+   private final long start = System.nanoTime();
+   private volatile long clock = 0;
+   private final Map<Class<?>, Long> idleTimeouts = new ConcurrentHashMap<>();
+   private volatile long idleTimeout = 0;
+   private volatile long sweepInterval = 0;
+   private HashedWheelTimer.Timeout sweeper;
+   private volatile LongPredicate sharedIds;
+   // Counts the resets of the sweeper, so a running sweep, that has been replaced, does not schedule itself again
+   private int sweeps = 0;
    private boolean closed = false;
 
+   private static Map<Long, Boolean> recentIds() {
+      return Collections.synchronizedMap(new LinkedHashMap<Long, Boolean>() {
+         private static final long serialVersionUID = 1L;
+
+         @Override
+         protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_REMEMBERED_IDS;
+         }
+      });
+   }
+
    /**
     * Creates a new multiplexer.
     *
@@ -62,59 +146,78 @@ public class Multiplexer implements Receiver {
    public Multiplexer(IDGenerator idGenerator, Sender sender, ChannelHandler<?>... handlers) {
       this.idGenerator = idGenerator;
       this.sender = Objects.requireNonNull(sender);
+      this.meteredSender = msg -> {
+         if (!(msg instanceof Packet)) {
+            sender.send(msg);
+            return;
+         }
+
+         metrics.packetSent((Packet) msg);
+         Object trace = TRACER.sendStarted();
+         sender.send(msg);
+         if (trace != null)
+            TRACER.packetSent(trace, (Packet) msg);
+      };
+      addCompression(new DeflateCompression());
+      // A fair scheduler may sit in front of the batching sender
+      Sender batching = sender instanceof FairScheduler ? ((FairScheduler) sender).getTarget() : sender;
+      if (batching instanceof BatchingSender)
+         ((BatchingSender) batching).setLingerFailureHandler(this::batchFailed);
+
       if (handlers != null) {
          for (ChannelHandler<?> handler : handlers)
             this.handlers.put(handler.getType(), handler);
       }
    }
 
+   /**
+    * Called when a batch of the <code>BatchingSender</code> of this multiplexer could not be sent
+    * after its linger time. The packets of the batch were sent by callers, that already returned,
+    * so this multiplexer cannot deliver them anymore and is closed.
+    */
+   private void batchFailed(IOException cause) {
+      log.error("Could not send a batch of packets, closing the multiplexer.", cause);
+      close();
+   }
+
+   @SuppressWarnings("unchecked")
    private static void invokeNewChannel(ChannelHandler<?> handler,
                                         Channel<?> channel,
-                                        Object initialMsg) throws ChannelDeclinedException,
-                                                                  IOException {
+                                        Optional<?> initialMsg) throws ChannelDeclinedException,
+                                                                       IOException {
       try {
-         Method receiveMethod = ChannelHandler.class.getDeclaredMethod(NEW_CHANNEL_METHOD_NAME, Channel.class, Optional.class);
-         receiveMethod.invoke(handler, channel, initialMsg);
-      } catch (NoSuchMethodException
-               | SecurityException
-               | IllegalAccessException
-               | IllegalArgumentException e) {
-         throw new IOException("Could not invoke newChannelRequest method of the channel handler.", e);
-
-      } catch (InvocationTargetException e) {
-         if (e.getTargetException() instanceof ChannelDeclinedException)
-            throw (ChannelDeclinedException) e.getTargetException();
-         else {
-            log.error("The handler of channel with id " + channel.getId() + " threw an exception.", e);
-            throw new IOException("The channel handler threw an exception handling the NewChannelRequestPacket", e);
-         }
+         ((ChannelHandler<Object>) handler).newChannelRequested((Channel<Object>) channel,
+                                                                (Optional<Object>) initialMsg);
+      } catch (ChannelDeclinedException e) {
+         throw e;
+      } catch (RuntimeException e) {
+         log.error("The handler of channel with id " + channel.getId() + " threw an exception.", e);
+         throw new IOException("The channel handler threw an exception handling the NewChannelRequestPacket", e);
       }
    }
 
+   @SuppressWarnings("unchecked")
    private static void invokeClosed(ChannelHandler<?> handler, Channel<?> channel) {
       try {
-         Method receiveMethod = ChannelHandler.class.getDeclaredMethod(CLOSED_METHOD, Channel.class);
-         receiveMethod.invoke(handler, channel);
-      } catch (NoSuchMethodException
-               | SecurityException
-               | IllegalAccessException
-               | IllegalArgumentException e) {
-         log.error("Could not invoke receive method of channel!", e);
-      } catch (InvocationTargetException e) {
+         ((ChannelHandler<Object>) handler).channelClosed((Channel<Object>) channel);
+      } catch (RuntimeException e) {
          log.error("The handler of channel with id " + channel.getId() + " threw an exception.", e);
       }
    }
 
    private static void redirectPacket(Channel<?> channel, Packet packet) {
+      ChannelMetrics metrics = channel.getMetrics();
+      if (metrics != null)
+         metrics.packetReceived();
+
       try {
-         Method receiveMethod = Channel.class.getDeclaredMethod(RECEIVE_METHOD_NAME, PayloadPacket.class);
-         receiveMethod.invoke(channel, packet);
-      } catch (NoSuchMethodException
-               | SecurityException
-               | IllegalAccessException
-               | IllegalArgumentException e) {
-         log.error("Could not invoke receive method of channel!", e);
-      } catch (InvocationTargetException e) {
+         if (packet instanceof PayloadPacket)
+            channel.receive((PayloadPacket) packet);
+         else if (packet instanceof FragmentPacket)
+            channel.receive((FragmentPacket) packet);
+         else
+            log.error("Could not redirect packet of unknown type to channel: " + packet);
+      } catch (IOException | RuntimeException e) {
          log.error("The receiver of channel with the id " + channel.getId() + " threw an exception.", e);
       }
    }
@@ -145,9 +248,54 @@ public class Multiplexer implements Receiver {
                                                                   ChannelDeclinedException,
                                                                   InterruptedException,
                                                                   TimeoutException {
-      ensureOpen();
-      NewChannelRequest<T> request = createRequest(type, initialMsg);
-      return request.request(timeout);
+      return establishNewChannel(type, timeout, initialMsg, null);
+   }
+
+   /**
+    * Establishes a new channel with the given <code>options</code> to communicate through.
+    * The "other side" will receive a request and the <code>ChannelHandler</code> of the matching <code>type</code>
+    * will receive the request, by the {@link ChannelHandler#newChannelRequested(Channel, Optional)} method getting called.
+    *
+    * @param type The type of the new channel
+    * @param timeout The timeout in milliseconds for the request
+    * @param initialMsg An optional initial message to send with the request
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new established channel.
+    * The channel will be in <code>OPEN</code> state and ready for communication.
+    *
+    * @throws IOException If an I/O error occurs while establishing a new channel
+    * @throws ClosedException if this multiplexer has already been closed
+    * @throws ChannelDeclinedException If the "other side" refuses to open the channel
+    * @throws InterruptedException If the thread is interrupted while waiting for the channel to be established
+    * @throws TimeoutException If the given <code>timeout</code> is reached before a new channel could be established
+    */
+   public <T> Channel<T> establishNewChannel(Class<T> type,
+                                             long timeout,
+                                             T initialMsg,
+                                             ChannelOptions options) throws IOException,
+                                                                            ClosedException,
+                                                                            ChannelDeclinedException,
+                                                                            InterruptedException,
+                                                                            TimeoutException {
+      CompletableFuture<Channel<T>> future = open(type, initialMsg, timeout, options);
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         future.cancel(false);
+         throw e;
+      } catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof ChannelDeclinedException)
+            throw (ChannelDeclinedException) cause;
+         if (cause instanceof TimeoutException)
+            throw (TimeoutException) cause;
+         if (cause instanceof IOException)
+            throw (IOException) cause;
+
+         throw new IOException("Could not establish a channel of type " + type.getName(), cause);
+      }
    }
 
    /**
@@ -178,7 +326,7 @@ public class Multiplexer implements Receiver {
    }
 
    /**
-    * Asynchronously establishes a new channel in a background thread.
+    * Asynchronously establishes a new channel.
     * The "other side" will receive a request and the <code>ChannelHandler</code> of the matching <code>type</code>
     * will receive the request, by the {@link ChannelHandler#newChannelRequested(Channel, Optional)} method getting called.
     *
@@ -191,15 +339,31 @@ public class Multiplexer implements Receiver {
     * @throws ClosedException if this multiplexer has already been closed.
     */
    public <T> Future<Channel<T>> asynchEstablishNewChannel(Class<T> type, T initialMsg) throws ClosedException {
-      ensureOpen();
-      NewChannelRequest<T> request = createRequest(type, initialMsg);
-      FutureTask<Channel<T>> task = new FutureTask<>(request);
-      new Thread(task).start();
-      return task;
+      return asynchEstablishNewChannel(type, initialMsg, null);
+   }
+
+   /**
+    * Asynchronously establishes a new channel with the given <code>options</code>.
+    * The "other side" will receive a request and the <code>ChannelHandler</code> of the matching <code>type</code>
+    * will receive the request, by the {@link ChannelHandler#newChannelRequested(Channel, Optional)} method getting called.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return A future to represent the establishment of the new channel.
+    *
+    * @throws ClosedException if this multiplexer has already been closed.
+    */
+   public <T> Future<Channel<T>> asynchEstablishNewChannel(Class<T> type,
+                                                          T initialMsg,
+                                                          ChannelOptions options) throws ClosedException {
+      return open(type, initialMsg, 0, options);
    }
 
    /**
-    * Asynchronously establishes a new channel in a background thread.
+    * Asynchronously establishes a new channel.
     * The "other side" will receive a request and the <code>ChannelHandler</code> of the matching <code>type</code>
     * will receive the request, by the {@link ChannelHandler#newChannelRequested(Channel, Optional)} method getting called.
     *
@@ -213,16 +377,252 @@ public class Multiplexer implements Receiver {
       return asynchEstablishNewChannel(type, null);
    }
 
-   private <T> NewChannelRequest<T> createRequest(Class<T> type, T initialMsg) {
+   /**
+    * Asynchronously establishes a new channel.
+    * The "other side" will receive a request and the <code>ChannelHandler</code> of the matching <code>type</code>
+    * will receive the request, by the {@link ChannelHandler#newChannelRequested(Channel, Optional)} method getting called.
+    * No thread waits for the response. The returned future is completed by the thread, that receives the response,
+    * or by a shared scheduler thread, when the <code>timeout</code> is reached.
+    * Callbacks of the future should not block for that reason.
+    *
+    * The future completes exceptionally with a <code>ChannelDeclinedException</code> if the "other side" refuses
+    * to open the channel, with a <code>TimeoutException</code> if the <code>timeout</code> is reached
+    * and with an <code>IOException</code> if the request could not be sent.
+    * Cancelling the future withdraws the request.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param timeout The timeout for the request or <code>null</code> to wait indefinitely
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return A future, that is completed with the new channel in <code>OPEN</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> CompletableFuture<Channel<T>> openAsync(Class<T> type, T initialMsg, Duration timeout) throws ClosedException {
+      return openAsync(type, initialMsg, timeout, null);
+   }
+
+   /**
+    * Asynchronously establishes a new channel with the given <code>options</code>.
+    * See {@link #openAsync(Class, Object, Duration)} for details.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param timeout The timeout for the request or <code>null</code> to wait indefinitely
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return A future, that is completed with the new channel in <code>OPEN</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> CompletableFuture<Channel<T>> openAsync(Class<T> type,
+                                                      T initialMsg,
+                                                      Duration timeout,
+                                                      ChannelOptions options) throws ClosedException {
+      return open(type, initialMsg, timeout == null ? 0 : timeout.toMillis(), options);
+   }
+
+   /**
+    * Establishes <code>count</code> new channels of the same <code>type</code> in one round trip.
+    * The requests are sent as one {@link PacketBatch}, the "other side" invokes its <code>ChannelHandler</code>
+    * for each of them and answers all of them with one batch.
+    * Each request succeeds or fails on its own, like a request of {@link #openAsync(Class, Object, Duration)}.
+    *
+    * @param type The type of the new channels
+    * @param count The number of channels to establish
+    * @param timeout The timeout for the requests or <code>null</code> to wait indefinitely
+    * @param options The options of the new channels or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channels
+    *
+    * @return A future for each requested channel in the order they were requested
+    *
+    * @throws IllegalArgumentException If <code>count</code> is smaller than 1
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> List<CompletableFuture<Channel<T>>> establishNewChannels(Class<T> type,
+                                                                       int count,
+                                                                       Duration timeout,
+                                                                       ChannelOptions options) throws IllegalArgumentException,
+                                                                                                      ClosedException {
+      if (count < 1)
+         throw new IllegalArgumentException("At least one channel must be requested: " + count);
+
+      ensureOpen();
+      List<NewChannelRequest<T>> batch = new ArrayList<>(count);
+      List<Packet> packets = new ArrayList<>(count);
+      List<CompletableFuture<Channel<T>>> futures = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+         NewChannelRequest<T> request = createRequest(type, null, options, false);
+         withdrawOnFailure(request);
+         batch.add(request);
+         packets.add(request.getPacket());
+         futures.add(request.getFuture());
+      }
+
+      try {
+         meteredSender.send(new PacketBatch(packets));
+      } catch (IOException e) {
+         for (NewChannelRequest<T> request : batch)
+            request.failed(e);
+
+         return futures;
+      }
+
+      long timeoutMillis = timeout == null ? 0 : timeout.toMillis();
+      for (NewChannelRequest<T> request : batch)
+         request.startTimeout(timer, timeoutMillis, () -> timedOut(request));
+
+      return futures;
+   }
+
+   /**
+    * Establishes <code>count</code> new channels of the same <code>type</code> in one round trip.
+    * See {@link #establishNewChannels(Class, int, Duration, ChannelOptions)} for details.
+    *
+    * @param type The type of the new channels
+    * @param count The number of channels to establish
+    * @param timeout The timeout for the requests or <code>null</code> to wait indefinitely
+    * @param <T> The type of the messages that go through the channels
+    *
+    * @return A future for each requested channel in the order they were requested
+    *
+    * @throws IllegalArgumentException If <code>count</code> is smaller than 1
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> List<CompletableFuture<Channel<T>>> establishNewChannels(Class<T> type,
+                                                                       int count,
+                                                                       Duration timeout) throws IllegalArgumentException,
+                                                                                                ClosedException {
+      return establishNewChannels(type, count, timeout, null);
+   }
+
+   /**
+    * Opens a new channel without waiting for the "other side" to accept it.
+    * The returned channel is in <code>OPENING</code> state, but messages sent through it are sent at once
+    * right behind the request. The "other side" opens the channel as soon as its <code>ChannelHandler</code>
+    * accepted the request and delivers the messages afterwards, so a short-lived channel saves a round trip.
+    *
+    * The channel keeps the messages sent until the "other side" accepted it, at most
+    * {@link ChannelOptions#setEarlyDataLimit(int)} of them. If the "other side" refuses the channel,
+    * the channel is closed and its <code>send</code> method throws a {@link ChannelRefusedException},
+    * that carries the messages, that have not been delivered.
+    * The request does not time out, close the channel to withdraw it.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new channel in <code>OPENING</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> Channel<T> openPipelined(Class<T> type, T initialMsg, ChannelOptions options) throws ClosedException {
+      ensureOpen();
+      NewChannelRequest<T> request = createRequest(type, initialMsg, options, true);
+      send(request, 0);
+      return request.getChannel();
+   }
+
+   private <T> CompletableFuture<Channel<T>> open(Class<T> type,
+                                                  T initialMsg,
+                                                  long timeoutMillis,
+                                                  ChannelOptions options) throws ClosedException {
+      ensureOpen();
+      NewChannelRequest<T> request = createRequest(type, initialMsg, options, false);
+      send(request, timeoutMillis);
+      return request.getFuture();
+   }
+
+   private void send(NewChannelRequest<?> request, long timeoutMillis) {
+      withdrawOnFailure(request);
+      request.send(timer, timeoutMillis, () -> timedOut(request));
+   }
+
+   private void withdrawOnFailure(NewChannelRequest<?> request) {
+      request.getFuture()
+             .whenComplete((channel, e) -> {
+                if (e != null)
+                   withdraw(request);
+             });
+   }
+
+   private void timedOut(NewChannelRequest<?> request) {
+      if (withdraw(request))
+         request.timedOut();
+   }
+
+   private boolean withdraw(NewChannelRequest<?> request) {
+      long id = request.getChannel()
+                       .getId();
+      if (!requests.remove(id, request))
+         return false;
+
+      unregisterWeight(id);
+      return true;
+   }
+
+   private <T> NewChannelRequest<T> createRequest(Class<T> type,
+                                                  T initialMsg,
+                                                  ChannelOptions options,
+                                                  boolean pipelined) {
+      int weight = options == null ? ChannelOptions.DEFAULT_WEIGHT : options.getWeight();
       long id = idGenerator.nextId();
-      Channel<T> channel = new Channel<>(id, sender, this);
-      NewChannelRequest<T> request = new NewChannelRequest<>(channel, type, initialMsg);
+      while (isInUse(id))
+         id = idGenerator.nextId();
+
+      Channel<T> channel = new Channel<>(id, meteredSender, this);
+      channel.setReceiveWindow(initialWindow);
+      channel.setWeight(weight);
+      channel.setExecutor(options != null && options.getExecutor() != null ? options.getExecutor() : executor);
+      if (pipelined)
+         channel.setEarlyDataLimit(options == null ? ChannelOptions.DEFAULT_EARLY_DATA_LIMIT : options.getEarlyDataLimit(), true);
+
+      channel.setPipelined(pipelined);
+      channel.setIdleTimeout(idleTimeouts.getOrDefault(type, -1L));
+      if (channelMetrics)
+         channel.enableMetrics(metrics.ofChannelType(type));
+
+      List<String> proposed = options == null ? null : options.getCompression();
+      if (proposed != null) {
+         for (String name : proposed) {
+            if (!compressions.containsKey(name))
+               throw new IllegalArgumentException("Unknown compression: " + name);
+         }
+      }
+      registerWeight(id, weight);
+      NewChannelRequestPacket packet = new NewChannelRequestPacket(id,
+                                                                   type,
+                                                                   initialMsg,
+                                                                   initialWindow,
+                                                                   weight,
+                                                                   pipelined,
+                                                                   proposed);
+      NewChannelRequest<T> request = new NewChannelRequest<>(channel, type, packet);
+      Object trace = TRACER.openStarted();
+      if (trace != null) {
+         long channelId = id;
+         request.getFuture()
+                .whenComplete((c, e) -> TRACER.openFinished(trace, channelId, type, e));
+      }
       requests.put(id, request);
       return request;
    }
 
    @Override
    public void receive(Object object) throws IllegalArgumentException, IllegalStateException {
+      Object trace = TRACER.receiveStarted();
+      receive(object, null);
+      if (trace != null && object instanceof Packet)
+         TRACER.packetReceived(trace, (Packet) object);
+   }
+
+   /**
+    * @param responses Collects the responses to the control packets or <code>null</code> to send them at once
+    */
+   private void receive(Object object, Responses responses) throws IllegalArgumentException, IllegalStateException {
       if (closed)
          throw new IllegalStateException("Multiplexer has already been closed.");
 
@@ -231,14 +631,30 @@ public class Multiplexer implements Receiver {
 
       Packet packet = (Packet) object;
 
+      if (packet instanceof PacketBatch) {
+         receiveBatch((PacketBatch) packet, responses);
+         return;
+      }
+
+      metrics.packetReceived(packet);
+
       if (packet instanceof ChannelPacket) {
-         handleChannelPacket((ChannelPacket) packet);
+         handleChannelPacket((ChannelPacket) packet, responses);
          return;
       }
 
       Channel<?> channel = channels.get(packet.channelId);
-      if (channel == null)
+      if (channel == null) {
+         if (refusedIds.containsKey(packet.channelId)) {
+            log.debug("Dropping early data of refused channel with id " + packet.channelId);
+            return;
+         }
+         if (closedIds.containsKey(packet.channelId)) {
+            log.debug("Dropping packet of closed channel with id " + packet.channelId);
+            return;
+         }
          throw new IllegalArgumentException("No channel established for packet: " + packet);
+      }
 
       if (channel.isClosed())
          log.warn("Packet for closed channel with id " + channel.getId() + " received.");
@@ -246,13 +662,65 @@ public class Multiplexer implements Receiver {
          redirectPacket(channel, packet);
    }
 
-   private void handleChannelPacket(ChannelPacket packet) {
+   private void receiveBatch(PacketBatch batch, Responses responses) throws IllegalArgumentException {
+      // The responses to the control packets of a batch are answered with one batch,
+      // a batch nested in a batch adds its responses to the outer one.
+      Responses batchResponses = responses == null ? new Responses() : responses;
+      IllegalArgumentException failure = null;
+      try {
+         for (Packet packet : batch.getPackets()) {
+            try {
+               receive(packet, batchResponses);
+            } catch (IllegalArgumentException e) {
+               if (failure == null)
+                  failure = new IllegalArgumentException("Not all packets of a batch could be handled.");
+
+               failure.addSuppressed(e);
+            }
+         }
+      } finally {
+         if (responses == null)
+            batchResponses.send();
+      }
+      if (failure != null)
+         throw failure;
+   }
+
+   /**
+    * Sends a response to a control packet and runs <code>then</code> after it has been sent.
+    * If the response could not be sent, <code>failed</code> is called instead of <code>then</code>.
+    *
+    * @param response The response
+    * @param then Runs after the response has been sent or <code>null</code>
+    * @param failed Handles the failure to send the response
+    * @param responses Collects the response to be sent later or <code>null</code> to send it at once
+    */
+   private void respond(ChannelPacket response,
+                        Runnable then,
+                        Consumer<? super IOException> failed,
+                        Responses responses) {
+      if (responses != null) {
+         responses.add(response, then, failed);
+         return;
+      }
+
+      try {
+         meteredSender.send(response);
+      } catch (IOException e) {
+         failed.accept(e);
+         return;
+      }
+      if (then != null)
+         then.run();
+   }
+
+   private void handleChannelPacket(ChannelPacket packet, Responses responses) {
       switch (packet.getPacketType()) {
       case NEW:
-         newChannelRequest((NewChannelRequestPacket) packet);
+         newChannelRequest((NewChannelRequestPacket) packet, responses);
          break;
       case OK:
-         channelAccepted(packet.channelId);
+         channelAccepted(packet, responses);
          break;
       case REFUSED:
          channelRefused((ChannelRefusedPacket) packet);
@@ -264,20 +732,134 @@ public class Multiplexer implements Receiver {
                         + " received, but no channel with that id was found.");
             break;
          }
+         channel.remoteClosed();
          channelClosed(channel);
          break;
+      case WINDOW_UPDATE:
+         windowUpdate((WindowUpdatePacket) packet);
+         break;
+      case RESET:
+         channelReset(packet);
+         break;
+      case PING:
+         respond(new PingPacket(ChannelPacketType.PONG, ((PingPacket) packet).getTimestamp()),
+                 null,
+                 e -> log.warn("Could not answer a ping", e),
+                 responses);
+         break;
+      case PONG:
+         pong((PingPacket) packet);
+         break;
+      }
+   }
+
+   private void pong(PingPacket pong) {
+      missedPongs.set(0);
+      rtt.sample(System.nanoTime() - pong.getTimestamp());
+   }
+
+   /**
+    * Sends a ping to the other side. Its pong updates the round trip time of this multiplexer.
+    *
+    * @throws ClosedException If this multiplexer has already been closed
+    * @throws IOException If an I/O error occurs while sending the ping
+    *
+    * @see #getSmoothedRttNanos()
+    */
+   public void ping() throws ClosedException, IOException {
+      ensureOpen();
+      meteredSender.send(new PingPacket(ChannelPacketType.PING, System.nanoTime()));
+   }
+
+   private void schedulePing() {
+      // Each interval counts on the scheduler thread, even if the previous ping has not been sent yet.
+      // A sender waiting for a peer, that does not read anymore, must not keep the peer alive.
+      int missed = missedPongs.getAndIncrement();
+      if (missed >= maxMissedPongs) {
+         giveUp(missed);
+         return;
+      }
+
+      if (pinging.compareAndSet(false, true) && !offload(this::pingPeriodically))
+         pinging.set(false);
+   }
+
+   private void giveUp(int missed) {
+      ScheduledFuture<?> pinger = this.pinger;
+      if (pinger != null)
+         pinger.cancel(false);
+
+      log.warn("The other side did not answer " + missed + " pings, closing all channels.");
+      // The executor of this multiplexer may be the thread, that is still waiting to send the last ping
+      SharedScheduler.worker()
+                     .execute(this::close);
+   }
+
+   private void pingPeriodically() {
+      try {
+         ping();
+      } catch (ClosedException e) {
+         // Nothing to do here
+      } catch (IOException e) {
+         log.warn("Could not send a ping", e);
+      } finally {
+         pinging.set(false);
+      }
+   }
+
+   private void windowUpdate(WindowUpdatePacket packet) {
+      Channel<?> channel = channels.get(packet.channelId);
+      if (channel == null)
+         log.debug("WindowUpdatePacket for unknown channel with id " + packet.channelId + " received.");
+      else
+         channel.windowUpdate(packet.getCredit());
+   }
+
+   private void channelReset(ChannelPacket packet) {
+      Channel<?> channel = channels.get(packet.channelId);
+      if (channel == null) {
+         log.debug("Reset of unknown channel with id " + packet.channelId + " received.");
+         return;
+      }
+
+      try {
+         channel.resetReceived();
+      } catch (RuntimeException e) {
+         log.error("A listener of channel with the id " + channel.getId() + " threw an exception on reset.", e);
       }
    }
 
-   private void channelAccepted(long channelId) {
+   private void channelAccepted(ChannelPacket packet, Responses responses) {
+      long channelId = packet.channelId;
       NewChannelRequest<?> request = requests.remove(channelId);
       if (request != null) {
+         metrics.handshake(System.nanoTime() - request.getCreatedNanos());
+         if (packet instanceof ChannelAcceptedPacket && ((ChannelAcceptedPacket) packet).getWindow() > 0)
+            request.getChannel().setSendWindow(((ChannelAcceptedPacket) packet).getWindow(), sendTimeout);
+         if (packet instanceof ChannelAcceptedPacket && ((ChannelAcceptedPacket) packet).getCompression() != null)
+            request.getChannel().setCompression(compressions.get(((ChannelAcceptedPacket) packet).getCompression()));
+
          addChannel(request.getChannel(), getHandlerFor(request.getType()));
-         channels.put(request.getChannel().getId(), request.getChannel());
-         request.accepted();
+         // The other side opened a pipelined channel right away and expects no confirmation
+         if (request.isPipelined()) {
+            request.accepted();
+            return;
+         }
+
+         respond(new ChannelPacket(channelId, ChannelPacketType.OK),
+                 request::accepted,
+                 e -> confirmationFailed(request, e),
+                 responses);
       } else {
          Channel<?> channel = channels.get(channelId);
-         if (channel == null) {
+         if (channel == null && packet instanceof ChannelAcceptedPacket) {
+            // The request timed out or was cancelled, the other side must not keep the channel it accepted
+            log.debug("Closing channel " + channelId + ", that was accepted after its request had been withdrawn.");
+            respond(new ChannelPacket(channelId, ChannelPacketType.CLOSE),
+                    null,
+                    e -> log.warn("Could not close the late accepted channel " + channelId, e),
+                    responses);
+         } else if (channel == null) {
             log.warn("Could not handle channelPacket with ChannelPacketType OK and channelId: " + channelId);
          } else {
             try {
@@ -290,12 +872,25 @@ public class Multiplexer implements Receiver {
 
    }
 
+   /**
+    * Fails the request, whose confirmation could not be sent, and removes its channel,
+    * that has already been added, but was never opened.
+    */
+   private void confirmationFailed(NewChannelRequest<?> request, IOException cause) {
+      log.warn("Could not confirm the accepted channel " + request.getChannel().getId(), cause);
+      request.failed(cause);
+      channelClosed(request.getChannel());
+   }
+
    private void channelRefused(ChannelRefusedPacket packet) {
       NewChannelRequest<?> request = requests.remove(packet.channelId);
-      if (request == null)
+      if (request == null) {
          log.warn("No channel request for id: " + packet.channelId + " registered.");
-      else
+      } else {
+         unregisterWeight(packet.channelId);
+         metrics.channelRefused();
          request.refused(packet);
+      }
    }
 
    protected synchronized void channelClosed(Channel<?> channel) {
@@ -304,63 +899,214 @@ public class Multiplexer implements Receiver {
       } catch (ClosedException e) {
          // Nothing to do here
       }
-      channels.remove(channel.getId());
-      ChannelHandler<?> handler = channelAssociatedHandlers.get(channel.getId());
+      // A channel closed while opening withdraws its request
+      NewChannelRequest<?> request = requests.get(channel.getId());
+      if (request != null && request.getChannel() == channel && withdraw(request))
+         request.failed(new ClosedException("The channel has been closed while opening."));
+
+      if (channels.remove(channel.getId()) != null) {
+         closedIds.put(channel.getId(), Boolean.TRUE);
+         metrics.channelClosed();
+         TRACER.channelClosed(channel.getId());
+      }
+
+      unregisterWeight(channel.getId());
+      ChannelHandler<?> handler = channel.getHandler();
       if (handler != null)
          invokeClosed(handler, channel);
    }
 
-   private void newChannelRequest(NewChannelRequestPacket request) {
+   private void newChannelRequest(NewChannelRequestPacket request, Responses responses) {
+      Object trace = TRACER.requestStarted();
       ChannelPacket response;
+      Channel<?> accepted = null;
       Class<?> packetType = request.getType();
       log.debug("NewChannelRequestPacket for PacketType: " + packetType.getName() + " received.");
       ChannelHandler<?> handler = getHandlerFor(packetType);
-      if (handler == null) {
+      if (isInUse(request.channelId)) {
+         String msg = "The id " + request.channelId + " is already in use.";
+         log.warn(msg + " Refusing NewChannelRequestPacket");
+         // Refusing only reaches the requester, the channel, that uses the id, is not affected
+         response = new ChannelRefusedPacket(request.channelId, msg);
+      } else if (handler == null) {
          String msg = "No ChannelHandler registered for PacketType: " + packetType;
          log.info(msg);
          log.info("Refusing NewChannelRequestPacket");
          response = new ChannelRefusedPacket(request.channelId, msg);
       } else {
-         Channel<?> channel = new Channel<>(request.channelId, sender, this);
+         Channel<?> channel = new Channel<>(request.channelId, meteredSender, this);
+         channel.setReceiveWindow(initialWindow);
+         if (request.getWindow() > 0) {
+            channel.setSendWindow(request.getWindow(), sendTimeout);
+            // The messages the handler sends before the channel is open must not exceed the granted credit
+            channel.setEarlyDataLimit(request.getWindow(), false);
+         }
+
+         int weight = acceptedWeight(packetType, request.getWeight());
+         channel.setWeight(weight);
+         channel.setExecutor(executor);
+         channel.setIdleTimeout(idleTimeouts.getOrDefault(packetType, -1L));
+         if (channelMetrics)
+            channel.enableMetrics(metrics.ofChannelType(packetType));
+
+         Compression compression = negotiateCompression(request.getCompressions());
+         channel.setCompression(compression);
+         registerWeight(channel.getId(), weight);
+
          try {
             invokeNewChannel(handler, channel, request.getInitialMessage());
             log.debug("Accepting new channel request");
-            response = new ChannelPacket(channel.getId(), ChannelPacketType.OK);
+            response = new ChannelAcceptedPacket(channel.getId(),
+                                                 initialWindow,
+                                                 compression == null ? null : compression.getName());
             addChannel(channel, handler);
+            accepted = channel;
          } catch (ChannelDeclinedException | IOException e) {
             log.debug("Refusing new channel request", e);
+            unregisterWeight(channel.getId());
             response = new ChannelRefusedPacket(request.channelId, e);
          }
       }
 
-      try {
-         sender.send(response);
-      } catch (IOException e) {
-         log.warn("Could not send refuse for NewChannelRequestPacket", e);
-         return;
+      if (trace != null)
+         TRACER.requestHandled(trace, request.channelId, packetType, accepted != null);
+
+      if (accepted == null) {
+         metrics.channelDeclined();
+         if (request.isPipelined())
+            refusedIds.put(request.channelId, Boolean.TRUE);
       }
-   }
 
-   private void ensureOpen() throws ClosedException {
-      if (closed)
-         throw new ClosedException("Multiplexer has already been closed.");
+      // The requester of a pipelined channel sends no confirmation, its messages follow right behind the request
+      Channel<?> opened = request.isPipelined() ? accepted : null;
+      Channel<?> unanswered = accepted;
+      respond(response,
+              opened == null ? null : () -> openPipelined(opened),
+              e -> responseFailed(unanswered, e),
+              responses);
    }
 
-   private ChannelHandler<?> getHandlerFor(Class<?> type) {
-      if (type == null)
-         return null;
+   /**
+    * Removes the accepted channel, whose acceptance could not be sent to the requester.
+    */
+   private void responseFailed(Channel<?> accepted, IOException cause) {
+      log.warn("Could not send the response to a NewChannelRequestPacket", cause);
+      if (accepted != null)
+         channelClosed(accepted);
+   }
 
-      ChannelHandler<?> handler = handlers.get(type);
-      if (handler != null)
-         return handler;
+   /**
+    * The weight of an accepted channel is chosen by this side, the weight requested by the other side is only a hint.
+    */
+   private int acceptedWeight(Class<?> type, int requested) {
+      Integer weight = weights.get(type);
+      if (weight != null)
+         return weight;
 
-      return getHandlerFor((Class<?>) type.getSuperclass());
+      return Math.max(1, Math.min(requested, maxRemoteWeight));
    }
 
-   protected void addChannel(Channel<?> channel, ChannelHandler<?> handler) {
+   private static void openPipelined(Channel<?> channel) {
+      try {
+         channel.setState(ChannelState.OPEN);
+      } catch (ClosedException e) {
+         // Nothing to do here
+      }
+   }
+
+   private Compression negotiateCompression(List<String> proposed) {
+      for (String name : proposed) {
+         Compression compression = compressions.get(name);
+         if (compression != null)
+            return compression;
+      }
+      return null;
+   }
+
+   private boolean isInUse(long channelId) {
+      LongPredicate sharedIds = this.sharedIds;
+      return sharedIds == null ? isInUseLocally(channelId) : sharedIds.test(channelId);
+   }
+
+   boolean isInUseLocally(long channelId) {
+      return channels.get(channelId) != null || requests.get(channelId) != null;
+   }
+
+   /**
+    * Set the check, whether an id is in use, for multiplexers sharing their ids,
+    * e.g. the stripes of a {@link StripedMultiplexer}.
+    *
+    * @param sharedIds The check of the ids in use or <code>null</code> to only check the ids of this multiplexer
+    */
+   void setSharedIds(LongPredicate sharedIds) {
+      this.sharedIds = sharedIds;
+   }
+
+   private void registerWeight(long channelId, int weight) {
+      if (sender instanceof FairScheduler)
+         ((FairScheduler) sender).register(channelId, weight);
+   }
+
+   private void unregisterWeight(long channelId) {
+      if (sender instanceof FairScheduler)
+         ((FairScheduler) sender).unregister(channelId);
+   }
+
+   private void ensureOpen() throws ClosedException {
+      if (closed)
+         throw new ClosedException("Multiplexer has already been closed.");
+   }
+
+   ChannelHandler<?> getHandlerFor(Class<?> type) {
+      if (type == null)
+         return null;
+
+      return resolvedHandlers.get(type)
+                             .orElse(null);
+   }
+
+   private ClassValue<Optional<ChannelHandler<?>>> newResolution() {
+      return new ClassValue<Optional<ChannelHandler<?>>>() {
+         @Override
+         protected Optional<ChannelHandler<?>> computeValue(Class<?> type) {
+            return Optional.ofNullable(resolveHandler(type));
+         }
+      };
+   }
+
+   private ChannelHandler<?> resolveHandler(Class<?> type) {
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+         ChannelHandler<?> handler = handlers.get(c);
+         if (handler != null)
+            return handler;
+      }
+
+      Queue<Class<?>> interfaces = new ArrayDeque<>();
+      for (Class<?> c = type; c != null; c = c.getSuperclass())
+         Collections.addAll(interfaces, c.getInterfaces());
+
+      Set<Class<?>> visited = new HashSet<>();
+      for (Class<?> i = interfaces.poll(); i != null; i = interfaces.poll()) {
+         if (!visited.add(i))
+            continue;
+
+         ChannelHandler<?> handler = handlers.get(i);
+         if (handler != null)
+            return handler;
+
+         Collections.addAll(interfaces, i.getInterfaces());
+      }
+
+      return handlers.get(Object.class);
+   }
+
+   protected void addChannel(Channel<?> channel, ChannelHandler<?> handler) {
+      channel.setHandler(handler);
+      closedIds.remove(channel.getId());
+      // A channel starts to idle when it is established, not when it was requested
+      channel.touch();
       channels.put(channel.getId(), channel);
-      if (handler != null)
-         channelAssociatedHandlers.put(channel.getId(), handler);
+      metrics.channelOpened();
    }
 
    /**
@@ -371,7 +1117,7 @@ public class Multiplexer implements Receiver {
     * @return The channel with the given <code>id</code> if present -
     * <code>null</code> otherwise
     */
-   public synchronized Channel<?> getChannel(long id) {
+   public Channel<?> getChannel(long id) {
       return channels.get(id);
    }
 
@@ -383,12 +1129,21 @@ public class Multiplexer implements Receiver {
     * if no other handler matching the type is registered.<br>
     * I other words: if a channel request arrives the channel manager will look for a handler matching exactly the type.
     * If no such handler is registered a handler of the next supertype will be looked for. If no such handler is found
-    * the next supertype handler will be looked for and so on...
+    * the next supertype handler will be looked for and so on...<br>
+    * The handler is resolved in this order:
+    * <ol>
+    * <li>the type itself and its superclasses, the nearest first</li>
+    * <li>the interfaces breadth first: the interfaces of the type and of its superclasses
+    * in declaration order, then their superinterfaces and so on</li>
+    * <li><code>Object</code></li>
+    * </ol>
+    * The resolved handler is cached per type until the handlers change.
     *
     * @param handler The handler to handle channel requests of the handlers type
     */
    public void addHandler(ChannelHandler<?> handler) {
       handlers.put(handler.getType(), handler);
+      this.resolvedHandlers = newResolution();
    }
 
    /**
@@ -407,6 +1162,463 @@ public class Multiplexer implements Receiver {
     */
    public void removeHandler(Class<?> type) {
       handlers.remove(type);
+      this.resolvedHandlers = newResolution();
+   }
+
+   /**
+    * Set the initial window of the channels established from now on.
+    * The window is the number of messages a channel is willing to receive
+    * before it grants the other side more credit.
+    * The other side learns the window with the request to open the channel
+    * or with the acceptance of the request and cannot send more messages than the granted credit.
+    * Credit is granted again as soon as the channel listeners handled half of the window.
+    * The default is 0, which disables the flow control.
+    *
+    * @param initialWindow The initial window in messages or 0 to disable the flow control
+    *
+    * @throws IllegalArgumentException If <code>initialWindow</code> is negative
+    */
+   public void setInitialWindow(int initialWindow) throws IllegalArgumentException {
+      if (initialWindow < 0)
+         throw new IllegalArgumentException("The initial window must not be negative: " + initialWindow);
+
+      this.initialWindow = initialWindow;
+   }
+
+   public int getInitialWindow() {
+      return initialWindow;
+   }
+
+   /**
+    * Set how long {@link Channel#send(Object)} waits for credit of a flow controlled channel,
+    * before it fails with a {@link FlowControlException}.
+    * Applies to the channels established from now on.
+    * The default is a negative value, which blocks until credit is granted.
+    *
+    * @param sendTimeout The timeout in milliseconds, 0 to fail immediately
+    * or a negative value to wait indefinitely
+    */
+   public void setSendTimeout(long sendTimeout) {
+      this.sendTimeout = sendTimeout;
+   }
+
+   public long getSendTimeout() {
+      return sendTimeout;
+   }
+
+   /**
+    * Set the scheduling weight of the channels of the given <code>type</code>, that the other side opens.
+    * This weight overrides the weight requested by the other side.
+    * Only the channels accepted afterwards are affected.
+    *
+    * @param type The type of the channels
+    * @param weight The weight of the channels or 0 to use the requested weight again,
+    * limited by {@link #setMaxRemoteWeight(int)}
+    *
+    * @throws IllegalArgumentException If <code>weight</code> is negative
+    *
+    * @see ChannelOptions#setWeight(int)
+    */
+   public void setWeight(Class<?> type, int weight) throws IllegalArgumentException {
+      if (weight < 0)
+         throw new IllegalArgumentException("The weight of a channel must not be negative: " + weight);
+
+      if (weight == 0)
+         weights.remove(type);
+      else
+         weights.put(type, weight);
+   }
+
+   /**
+    * Get the scheduling weight of the channels of the given <code>type</code>, that the other side opens.
+    *
+    * @param type The type of the channels
+    *
+    * @return The weight or 0, if the requested weight applies
+    */
+   public int getWeight(Class<?> type) {
+      return weights.getOrDefault(type, 0);
+   }
+
+   /**
+    * Set the maximum weight, that the other side may request for a channel it opens.
+    * A larger requested weight is reduced to this maximum, so the other side cannot let its channels
+    * starve the other channels of this side.
+    * The default is {@link ChannelOptions#DEFAULT_WEIGHT}, which ignores the requested weights.
+    *
+    * @param maxRemoteWeight The maximum requested weight
+    *
+    * @throws IllegalArgumentException If <code>maxRemoteWeight</code> is smaller than 1
+    *
+    * @see #setWeight(Class, int)
+    */
+   public void setMaxRemoteWeight(int maxRemoteWeight) throws IllegalArgumentException {
+      if (maxRemoteWeight < 1)
+         throw new IllegalArgumentException("The maximum weight must be at least 1: " + maxRemoteWeight);
+
+      this.maxRemoteWeight = maxRemoteWeight;
+   }
+
+   public int getMaxRemoteWeight() {
+      return maxRemoteWeight;
+   }
+
+   /**
+    * Set the executor, that delivers the received messages of new channels to their listeners.
+    * Each channel drains its own queue of received messages in order on this executor,
+    * so the thread calling {@link #receive(Object)} returns immediately
+    * and a slow listener only delays the messages of its own channel.
+    * The executor should have more than one thread for that reason.
+    * A <code>ChannelHandler</code> can choose another executor for an accepted channel
+    * by calling {@link Channel#setExecutor(Executor)}.
+    * The executor only applies to channels established after this call.
+    *
+    * @param executor The executor to deliver the messages with or <code>null</code>
+    * to deliver them on the receiving thread (default)
+    */
+   public void setExecutor(Executor executor) {
+      this.executor = executor;
+   }
+
+   public Executor getExecutor() {
+      return executor;
+   }
+
+   /**
+    * Set the size in bytes above which a payload is split into {@link FragmentPacket}s.
+    * The fragments of a large payload are sent as separate packets, so a {@link FairScheduler}
+    * sends the packets of other channels between them. Payloads other than <code>byte[]</code>
+    * and <code>String</code> are serialized with the payload serializer of this multiplexer for that.
+    * The other side must use the same payload serializer.
+    *
+    * @param fragmentSize The maximum size of a fragment or 0 to not fragment any payload (default)
+    *
+    * @throws IllegalArgumentException If <code>fragmentSize</code> is negative
+    *
+    * @see #setPayloadSerializer(PayloadSerializer)
+    */
+   public void setFragmentSize(int fragmentSize) throws IllegalArgumentException {
+      if (fragmentSize < 0)
+         throw new IllegalArgumentException("The fragment size must not be negative: " + fragmentSize);
+
+      this.fragmentSize = fragmentSize;
+   }
+
+   public int getFragmentSize() {
+      return fragmentSize;
+   }
+
+   /**
+    * Set the maximum size in bytes of a fragmented payload, that a channel reassembles.
+    * A channel, that receives more fragments of a payload, is closed.
+    * The size of a compressed payload after decompressing it is limited as well.
+    * This limits the memory a channel holds for payloads in flight.
+    * The default is {@value #DEFAULT_MAX_REASSEMBLY_SIZE}.
+    *
+    * @param maxReassemblySize The maximum size of a received payload
+    *
+    * @throws IllegalArgumentException If <code>maxReassemblySize</code> is smaller than 1
+    */
+   public void setMaxReassemblySize(int maxReassemblySize) throws IllegalArgumentException {
+      if (maxReassemblySize < 1)
+         throw new IllegalArgumentException("The maximum reassembly size must be at least 1: " + maxReassemblySize);
+
+      this.maxReassemblySize = maxReassemblySize;
+   }
+
+   public int getMaxReassemblySize() {
+      return maxReassemblySize;
+   }
+
+   /**
+    * Set the serializer for fragmented payloads, that are neither <code>byte[]</code> nor <code>String</code>.
+    *
+    * @param payloadSerializer The payload serializer (default is the java serialization)
+    *
+    * @throws NullPointerException If <code>payloadSerializer</code> is <code>null</code>
+    */
+   public void setPayloadSerializer(PayloadSerializer payloadSerializer) throws NullPointerException {
+      this.payloadSerializer = Objects.requireNonNull(payloadSerializer);
+   }
+
+   public PayloadSerializer getPayloadSerializer() {
+      return payloadSerializer;
+   }
+
+   /**
+    * Add a compression, that channels can negotiate.
+    * The {@link DeflateCompression} is known to every multiplexer.
+    * A compression with the same name replaces the known one.
+    *
+    * @param compression The compression to be added
+    *
+    * @see ChannelOptions#setCompression(String...)
+    */
+   public void addCompression(Compression compression) {
+      compressions.put(compression.getName(), compression);
+   }
+
+   /**
+    * Remove the compression with the given <code>name</code>.
+    * The channels, that already use it, keep it. New channels will not negotiate it anymore.
+    *
+    * @param name The name of the compression to be removed
+    */
+   public void removeCompression(String name) {
+      compressions.remove(name);
+   }
+
+   /**
+    * Set the size in bytes, from which on the payloads of a channel with a compression are compressed.
+    * Compressing smaller payloads costs more than it saves.
+    * The default is {@value #DEFAULT_COMPRESSION_THRESHOLD}.
+    *
+    * @param compressionThreshold The minimum size of a payload to be compressed
+    *
+    * @throws IllegalArgumentException If <code>compressionThreshold</code> is negative
+    */
+   public void setCompressionThreshold(int compressionThreshold) throws IllegalArgumentException {
+      if (compressionThreshold < 0)
+         throw new IllegalArgumentException("The compression threshold must not be negative: " + compressionThreshold);
+
+      this.compressionThreshold = compressionThreshold;
+   }
+
+   public int getCompressionThreshold() {
+      return compressionThreshold;
+   }
+
+   /**
+    * Set the time, after which a channel, that neither sent nor received a message, is closed by this multiplexer.
+    * Such a channel is closed with the {@link CloseReason#IDLE} reason,
+    * its channel handler is notified as for any other closed channel.
+    * The channels are swept by the shared scheduler thread, in intervals of a quarter of the smallest idle timeout,
+    * but at most a second. So an idle channel is closed up to two intervals after its idle timeout.
+    * The idle channels are closed by the executor of this multiplexer (see {@link #setExecutor(Executor)})
+    * or by a worker thread, because closing a channel sends and may block.
+    * The idle timeout is disabled by default.
+    *
+    * @param idleTimeout The idle timeout in milliseconds or a value smaller than 1 to keep idle channels open
+    *
+    * @see #setIdleTimeout(Class, long)
+    */
+   public void setIdleTimeout(long idleTimeout) {
+      this.idleTimeout = Math.max(idleTimeout, 0);
+      resetSweeper();
+   }
+
+   public long getIdleTimeout() {
+      return idleTimeout;
+   }
+
+   /**
+    * Set the idle timeout of the channels of the given <code>type</code>,
+    * that overrides the idle timeout of this multiplexer.
+    * Only the channels opened afterwards are affected.
+    *
+    * @param type The type of the channels
+    * @param idleTimeout The idle timeout in milliseconds, 0 to keep idle channels of that type open,
+    * or a negative value to use the idle timeout of this multiplexer again
+    *
+    * @see #setIdleTimeout(long)
+    */
+   public void setIdleTimeout(Class<?> type, long idleTimeout) {
+      if (idleTimeout < 0)
+         idleTimeouts.remove(type);
+      else
+         idleTimeouts.put(type, idleTimeout);
+
+      resetSweeper();
+   }
+
+   /**
+    * Get the idle timeout of the channels of the given <code>type</code>.
+    *
+    * @param type The type of the channels
+    *
+    * @return The idle timeout in milliseconds or a negative value, if the idle timeout of this multiplexer applies
+    */
+   public long getIdleTimeout(Class<?> type) {
+      return idleTimeouts.getOrDefault(type, -1L);
+   }
+
+   long getClock() {
+      return clock;
+   }
+
+   private synchronized void resetSweeper() {
+      long smallest = idleTimeout;
+      for (long timeout : idleTimeouts.values()) {
+         if (timeout > 0 && (smallest == 0 || timeout < smallest))
+            smallest = timeout;
+      }
+      long interval = smallest == 0 ? 0 : Math.max(TIMER_TICK, Math.min(MAX_SWEEP_INTERVAL, smallest / 4));
+      if (interval == sweepInterval && sweeper != null)
+         return;
+
+      boolean wasSweeping = sweeper != null;
+      if (wasSweeping)
+         sweeper.cancel();
+
+      this.sweeper = null;
+      this.sweepInterval = interval;
+      int generation = ++sweeps;
+      if (interval == 0 || closed)
+         return;
+
+      // The clock stood still while nothing was swept, so the channels start to idle now
+      if (!wasSweeping) {
+         advanceClock();
+         for (Channel<?> channel : channels.values())
+            channel.touch();
+      }
+      this.sweeper = timer.schedule(() -> sweep(generation), interval);
+   }
+
+   private void advanceClock() {
+      this.clock = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+   }
+
+   private void sweep(int generation) {
+      synchronized (this) {
+         if (closed || generation != sweeps)
+            return;
+      }
+
+      advanceClock();
+      long clock = this.clock;
+      long interval = sweepInterval;
+      List<Channel<?>> idle = new ArrayList<>();
+      for (Channel<?> channel : channels.values()) {
+         long timeout = channel.getIdleTimeout();
+         if (timeout < 0)
+            timeout = idleTimeout;
+
+         // The activity is recorded with the clock of the last sweep, so it may be one interval older than it is
+         if (timeout <= 0 || channel.getState() != ChannelState.OPEN
+             || clock - channel.getLastActivity() < timeout + interval)
+            continue;
+
+         log.debug("Closing channel with id " + channel.getId() + ", that has been idle for " + timeout + " ms.");
+         idle.add(channel);
+      }
+      // Closing sends, which may block, so it is done off the scheduler thread
+      if (!idle.isEmpty())
+         offload(() -> closeIdle(idle));
+
+      synchronized (this) {
+         if (!closed && generation == sweeps)
+            this.sweeper = timer.schedule(() -> sweep(generation), sweepInterval);
+      }
+   }
+
+   private static void closeIdle(List<Channel<?>> idle) {
+      for (Channel<?> channel : idle) {
+         try {
+            channel.close(CloseReason.IDLE);
+         } catch (IOException e) {
+            log.warn("Could not send the close of idle channel with id " + channel.getId() + ".", e);
+         }
+      }
+   }
+
+   /**
+    * Runs a task of the shared scheduler thread, that may block, on the executor of this multiplexer
+    * or on a worker thread, if this multiplexer has no executor.
+    *
+    * @return <code>false</code> if the executor rejected the task
+    */
+   private boolean offload(Runnable task) {
+      Executor executor = this.executor;
+      try {
+         (executor == null ? SharedScheduler.worker() : executor).execute(task);
+         return true;
+      } catch (RejectedExecutionException e) {
+         log.warn("A task of the multiplexer has been rejected by its executor.", e);
+         return false;
+      }
+   }
+
+   /**
+    * Let this multiplexer ping the other side periodically to measure the round trip time and to detect a dead peer.
+    * If the other side leaves {@link #setMaxMissedPongs(int) maxMissedPongs} pings in a row unanswered,
+    * this multiplexer is closed and with it all of its channels.
+    * The pings are timed by the shared scheduler thread and sent by the executor of this multiplexer
+    * or by a worker thread, if this multiplexer has no executor.
+    * Every interval without a pong counts as a missed pong, even if the previous ping could not be sent yet.
+    *
+    * @param pingInterval The interval in milliseconds or a value smaller than 1 to stop pinging
+    */
+   public synchronized void setPingInterval(long pingInterval) {
+      if (pinger != null)
+         pinger.cancel(false);
+
+      this.pinger = null;
+      this.pingInterval = Math.max(pingInterval, 0);
+      missedPongs.set(0);
+      if (pingInterval > 0 && !closed) {
+         this.pinger = SharedScheduler.get().scheduleAtFixedRate(this::schedulePing,
+                                                                 pingInterval,
+                                                                 pingInterval,
+                                                                 TimeUnit.MILLISECONDS);
+      }
+   }
+
+   public synchronized long getPingInterval() {
+      return pingInterval;
+   }
+
+   /**
+    * Set the number of periodic pings in a row, that the other side may leave unanswered,
+    * before it is considered dead.
+    *
+    * @param maxMissedPongs The maximum number of missed pongs
+    *
+    * @throws IllegalArgumentException If <code>maxMissedPongs</code> is smaller than 1
+    *
+    * @see #setPingInterval(long)
+    */
+   public void setMaxMissedPongs(int maxMissedPongs) throws IllegalArgumentException {
+      if (maxMissedPongs < 1)
+         throw new IllegalArgumentException("The maximum of missed pongs must be positive: " + maxMissedPongs);
+
+      this.maxMissedPongs = maxMissedPongs;
+   }
+
+   public int getMaxMissedPongs() {
+      return maxMissedPongs;
+   }
+
+   /**
+    * Get the smoothed round trip time to the other side, measured by pings as specified for TCP in RFC 6298.
+    *
+    * @return The smoothed round trip time in nanoseconds or 0 if no pong has been received yet
+    *
+    * @see #ping()
+    * @see #setPingInterval(long)
+    */
+   public long getSmoothedRttNanos() {
+      return rtt.getSmoothed();
+   }
+
+   /**
+    * Get the variation of the round trip time to the other side, a measure of its jitter.
+    *
+    * @return The round trip time variation in nanoseconds
+    */
+   public long getRttVariationNanos() {
+      return rtt.getVariation();
+   }
+
+   /**
+    * Get the time to wait for a response of the other side, that is only exceeded by chance rarely.
+    * Timeouts can adapt to the connection by deriving from this value.
+    *
+    * @return The smoothed round trip time plus four times its variation in nanoseconds
+    * or 0 if no pong has been received yet
+    */
+   public long getRttTimeoutNanos() {
+      return rtt.getTimeout();
    }
 
    /**
@@ -418,13 +1630,89 @@ public class Multiplexer implements Receiver {
       return sender;
    }
 
+   /**
+    * Flushes the sender of this multiplexer, if it buffers packets.
+    *
+    * @throws IOException If an I/O error occurs while flushing the sender
+    *
+    * @see BatchingSender
+    */
+   public void flush() throws IOException {
+      if (sender instanceof Flushable)
+         ((Flushable) sender).flush();
+   }
+
+   /**
+    * Get the metrics of this multiplexer.
+    *
+    * @return The live metrics of this multiplexer
+    */
+   public MultiplexerMetrics getMetrics() {
+      return metrics;
+   }
+
+   /**
+    * Enable the metrics of the channels established from now on.
+    * Each such channel records its packets, bytes and the time its listeners take for a message,
+    * in its own metrics and in the metrics of its type.
+    * The time of the listeners is only measured for these channels.
+    * The channel metrics are disabled by default, so the channels neither allocate
+    * nor update their counters and the listeners are not timed.
+    *
+    * @param channelMetrics <code>true</code> to record the metrics of the new channels
+    *
+    * @see Channel#getMetrics()
+    * @see MultiplexerMetrics#getChannelTypeMetrics()
+    */
+   public void setChannelMetricsEnabled(boolean channelMetrics) {
+      this.channelMetrics = channelMetrics;
+   }
+
+   public boolean isChannelMetricsEnabled() {
+      return channelMetrics;
+   }
+
+   int getChannelCount() {
+      return channels.size();
+   }
+
+   List<Channel<?>> getChannels() {
+      return channels.values();
+   }
+
+   int getPendingRequestCount() {
+      return requests.size();
+   }
+
+   int getEarlyDataCount() {
+      int count = 0;
+      for (NewChannelRequest<?> request : requests.values())
+         count += request.getChannel().getEarlyDataSize();
+
+      return count;
+   }
+
    /**
     * Closes this multiplexer and all of its channels.
+    * The metrics of this multiplexer are unregistered from the MBean server.
     */
    public synchronized void close() {
       closed = true;
-      Channel<?>[] channels = toArray(this.channels.values(), Channel<?>[]::new);
-      for (Channel<?> channel : channels) {
+      if (pinger != null)
+         pinger.cancel(false);
+      if (sweeper != null)
+         sweeper.cancel();
+
+      try {
+         metrics.unregisterMBean();
+      } catch (JMException e) {
+         log.warn("Could not unregister the metrics of the multiplexer.", e);
+      }
+
+      for (NewChannelRequest<?> request : requests.values())
+         request.failed(new ClosedException("Multiplexer has been closed."));
+
+      for (Channel<?> channel : channels.values()) {
          try {
             channel.close();
          } catch (IOException e) {
@@ -485,4 +1773,40 @@ public class Multiplexer implements Receiver {
       return builder.append("\n}")
                     .toString();
    }
-}
\ No newline at end of file
+
+   /**
+    * The responses to the control packets of a received batch.
+    * They are sent as one batch, after the whole batch has been handled.
+    * If the batch could not be sent, the failure handlers of all responses are called instead of their actions.
+    */
+   private class Responses {
+      private final List<Packet> packets = new ArrayList<>();
+      private final List<Runnable> actions = new ArrayList<>();
+      private final List<Consumer<? super IOException>> failures = new ArrayList<>();
+
+      void add(ChannelPacket response, Runnable then, Consumer<? super IOException> failed) {
+         packets.add(response);
+         if (then != null)
+            actions.add(then);
+
+         failures.add(failed);
+      }
+
+      void send() {
+         if (packets.isEmpty())
+            return;
+
+         try {
+            meteredSender.send(packets.size() == 1 ? packets.get(0) : new PacketBatch(packets));
+         } catch (IOException e) {
+            log.warn("Could not send the responses to a batch of " + packets.size() + " packets", e);
+            for (Consumer<? super IOException> failed : failures)
+               failed.accept(e);
+
+            return;
+         }
+         for (Runnable action : actions)
+            action.run();
+      }
+   }
+}
@@ -0,0 +1,553 @@
+package de.dk.ch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * The live metrics of a multiplexer.
+ * The counters are striped, so the threads sending and receiving through the multiplexer do not contend on them.
+ * Reading a metric sums up the stripes, which is only consistent with the other metrics in a {@link #snapshot()}.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#getMetrics()
+ * @see ChannelMetrics
+ */
+public final class MultiplexerMetrics implements MultiplexerMetricsMXBean, ByteCounter {
+   private static final int PAYLOAD = 0;
+   private static final int FRAGMENT = 1;
+   private static final String[] TYPES = typeNames();
+
+   private final Multiplexer multiplexer;
+   private final LongAdder[] packetsSent = adders(TYPES.length);
+   private final LongAdder[] packetsReceived = adders(TYPES.length);
+   private final LongAdder bytesSent = new LongAdder();
+   private final LongAdder bytesReceived = new LongAdder();
+   private final LongAdder channelsOpened = new LongAdder();
+   private final LongAdder channelsRefused = new LongAdder();
+   private final LongAdder channelsDeclined = new LongAdder();
+   private final LongAdder channelsClosed = new LongAdder();
+   private final LongAdder handshakes = new LongAdder();
+   private final LongAdder handshakeNanos = new LongAdder();
+   private final LongAccumulator handshakeMaxNanos = new LongAccumulator(Math::max, 0);
+   private final LongAdder dispatches = new LongAdder();
+   private final LongAdder dispatchNanos = new LongAdder();
+   private final LongAccumulator dispatchMaxNanos = new LongAccumulator(Math::max, 0);
+   private final Map<Class<?>, ChannelMetrics> channelTypes = new ConcurrentHashMap<>();
+
+   private ObjectName registeredName;
+
+   MultiplexerMetrics(Multiplexer multiplexer) {
+      this.multiplexer = multiplexer;
+   }
+
+   private static String[] typeNames() {
+      ChannelPacketType[] types = ChannelPacketType.values();
+      String[] names = new String[types.length + 2];
+      names[PAYLOAD] = "PAYLOAD";
+      names[FRAGMENT] = "FRAGMENT";
+      for (ChannelPacketType type : types)
+         names[type.ordinal() + 2] = type.name();
+
+      return names;
+   }
+
+   private static LongAdder[] adders(int count) {
+      LongAdder[] adders = new LongAdder[count];
+      for (int i = 0; i < count; i++)
+         adders[i] = new LongAdder();
+
+      return adders;
+   }
+
+   private static int typeOf(Packet packet) {
+      if (packet instanceof PayloadPacket)
+         return PAYLOAD;
+      if (packet instanceof FragmentPacket)
+         return FRAGMENT;
+      if (packet instanceof ChannelPacket)
+         return ((ChannelPacket) packet).getPacketType().ordinal() + 2;
+
+      return -1;
+   }
+
+   /**
+    * Get the name of the type of the given <code>packet</code>, that the packets are counted by.
+    *
+    * @param packet The packet
+    *
+    * @return The name of the type of the packet
+    */
+   static String typeName(Packet packet) {
+      if (packet instanceof PacketBatch)
+         return "BATCH";
+
+      int type = typeOf(packet);
+      return type < 0 ? packet.getClass().getSimpleName() : TYPES[type];
+   }
+
+   private static void count(LongAdder[] counters, Packet packet) {
+      if (packet instanceof PacketBatch) {
+         for (Packet p : ((PacketBatch) packet).getPackets())
+            count(counters, p);
+
+         return;
+      }
+
+      int type = typeOf(packet);
+      if (type >= 0)
+         counters[type].increment();
+   }
+
+   private static long sum(LongAdder[] counters) {
+      long sum = 0;
+      for (LongAdder counter : counters)
+         sum += counter.sum();
+
+      return sum;
+   }
+
+   private static Map<String, Long> byType(LongAdder[] counters) {
+      Map<String, Long> byType = new LinkedHashMap<>();
+      for (int i = 0; i < counters.length; i++)
+         byType.put(TYPES[i], counters[i].sum());
+
+      return Collections.unmodifiableMap(byType);
+   }
+
+   private static Map<String, ChannelMetrics> byName(Map<Class<?>, ChannelMetrics> channelTypes) {
+      Map<String, ChannelMetrics> byName = new LinkedHashMap<>();
+      for (Map.Entry<Class<?>, ChannelMetrics> entry : channelTypes.entrySet())
+         byName.put(entry.getKey().getName(), entry.getValue().copy());
+
+      return Collections.unmodifiableMap(byName);
+   }
+
+   private static long mean(long total, long count) {
+      return count == 0 ? 0 : total / count;
+   }
+
+   void packetSent(Packet packet) {
+      count(packetsSent, packet);
+   }
+
+   void packetReceived(Packet packet) {
+      count(packetsReceived, packet);
+   }
+
+   @Override
+   public void bytesSent(Packet packet, int bytes) {
+      bytesSent.add(bytes);
+      ChannelMetrics metrics = metricsOf(packet);
+      if (metrics != null)
+         metrics.bytesSent(bytes);
+   }
+
+   @Override
+   public void bytesReceived(Packet packet, int bytes) {
+      bytesReceived.add(bytes);
+      ChannelMetrics metrics = metricsOf(packet);
+      if (metrics != null)
+         metrics.bytesReceived(bytes);
+   }
+
+   private ChannelMetrics metricsOf(Packet packet) {
+      // Without channel metrics the channel is not looked up for each packet
+      if (packet instanceof PacketBatch || !multiplexer.isChannelMetricsEnabled())
+         return null;
+
+      Channel<?> channel = multiplexer.getChannel(packet.channelId);
+      return channel == null ? null : channel.getMetrics();
+   }
+
+   /**
+    * Get the metrics of the channels of the given <code>type</code>, that the metrics of each such channel count into.
+    */
+   ChannelMetrics ofChannelType(Class<?> type) {
+      return channelTypes.computeIfAbsent(type, t -> new ChannelMetrics());
+   }
+
+   void channelOpened() {
+      channelsOpened.increment();
+   }
+
+   void channelRefused() {
+      channelsRefused.increment();
+   }
+
+   void channelDeclined() {
+      channelsDeclined.increment();
+   }
+
+   void channelClosed() {
+      channelsClosed.increment();
+   }
+
+   void handshake(long nanos) {
+      handshakes.increment();
+      handshakeNanos.add(nanos);
+      handshakeMaxNanos.accumulate(nanos);
+   }
+
+   void dispatched(long nanos) {
+      dispatches.increment();
+      dispatchNanos.add(nanos);
+      dispatchMaxNanos.accumulate(nanos);
+   }
+
+   /**
+    * Takes a copy of the current metrics of the multiplexer and its channels.
+    *
+    * @return The current metrics, that do not change anymore
+    */
+   public Snapshot snapshot() {
+      return new Snapshot(this);
+   }
+
+   /**
+    * Registers these metrics as an MXBean at the platform MBean server.
+    * The MXBean is unregistered, when the multiplexer is closed.
+    *
+    * @param name The name of the multiplexer, that is unique within the JVM
+    *
+    * @return The name of the registered MXBean
+    *
+    * @throws JMException If the MXBean could not be registered, e.g. because the name is already in use
+    * @throws IllegalStateException If these metrics have already been registered
+    */
+   public synchronized ObjectName registerMBean(String name) throws JMException, IllegalStateException {
+      if (registeredName != null)
+         throw new IllegalStateException("The metrics have already been registered as " + registeredName);
+
+      ObjectName objectName = new ObjectName("de.dk.ch:type=Multiplexer,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer()
+                       .registerMBean(this, objectName);
+      this.registeredName = objectName;
+      return objectName;
+   }
+
+   /**
+    * Unregisters these metrics from the platform MBean server, if they have been registered.
+    *
+    * @throws JMException If the MXBean could not be unregistered
+    */
+   public synchronized void unregisterMBean() throws JMException {
+      if (registeredName == null)
+         return;
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(registeredName))
+         server.unregisterMBean(registeredName);
+
+      this.registeredName = null;
+   }
+
+   @Override
+   public long getPacketsSent() {
+      return sum(packetsSent);
+   }
+
+   @Override
+   public long getPacketsReceived() {
+      return sum(packetsReceived);
+   }
+
+   @Override
+   public Map<String, Long> getPacketsSentByType() {
+      return byType(packetsSent);
+   }
+
+   @Override
+   public Map<String, Long> getPacketsReceivedByType() {
+      return byType(packetsReceived);
+   }
+
+   @Override
+   public Map<String, ChannelMetrics> getChannelTypeMetrics() {
+      return byName(channelTypes);
+   }
+
+   @Override
+   public long getBytesSent() {
+      return bytesSent.sum();
+   }
+
+   @Override
+   public long getBytesReceived() {
+      return bytesReceived.sum();
+   }
+
+   @Override
+   public long getChannelsOpened() {
+      return channelsOpened.sum();
+   }
+
+   @Override
+   public long getChannelsRefused() {
+      return channelsRefused.sum();
+   }
+
+   @Override
+   public long getChannelsDeclined() {
+      return channelsDeclined.sum();
+   }
+
+   @Override
+   public long getChannelsClosed() {
+      return channelsClosed.sum();
+   }
+
+   @Override
+   public int getOpenChannels() {
+      return multiplexer.getChannelCount();
+   }
+
+   @Override
+   public int getPendingRequests() {
+      return multiplexer.getPendingRequestCount();
+   }
+
+   @Override
+   public int getEarlyDataQueued() {
+      return multiplexer.getEarlyDataCount();
+   }
+
+   @Override
+   public long getHandshakes() {
+      return handshakes.sum();
+   }
+
+   @Override
+   public long getHandshakeMeanNanos() {
+      return mean(handshakeNanos.sum(), handshakes.sum());
+   }
+
+   @Override
+   public long getHandshakeMaxNanos() {
+      return handshakeMaxNanos.get();
+   }
+
+   @Override
+   public long getDispatches() {
+      return dispatches.sum();
+   }
+
+   @Override
+   public long getDispatchMeanNanos() {
+      return mean(dispatchNanos.sum(), dispatches.sum());
+   }
+
+   @Override
+   public long getDispatchMaxNanos() {
+      return dispatchMaxNanos.get();
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexerMetrics { packetsSent=" + getPacketsSent()
+             + ", packetsReceived=" + getPacketsReceived()
+             + ", openChannels=" + getOpenChannels()
+             + ", pendingRequests=" + getPendingRequests() + " }";
+   }
+
+   /**
+    * A copy of the metrics of a multiplexer and its open channels at one point in time.
+    */
+   public static final class Snapshot implements MultiplexerMetricsMXBean {
+      private final long packetsSent;
+      private final long packetsReceived;
+      private final Map<String, Long> packetsSentByType;
+      private final Map<String, Long> packetsReceivedByType;
+      private final Map<String, ChannelMetrics> channelTypeMetrics;
+      private final long bytesSent;
+      private final long bytesReceived;
+      private final long channelsOpened;
+      private final long channelsRefused;
+      private final long channelsDeclined;
+      private final long channelsClosed;
+      private final int openChannels;
+      private final int pendingRequests;
+      private final int earlyDataQueued;
+      private final long handshakes;
+      private final long handshakeMeanNanos;
+      private final long handshakeMaxNanos;
+      private final long dispatches;
+      private final long dispatchMeanNanos;
+      private final long dispatchMaxNanos;
+      private final Map<Long, ChannelMetrics> channels;
+
+      private Snapshot(MultiplexerMetrics metrics) {
+         this.packetsSentByType = metrics.getPacketsSentByType();
+         this.packetsReceivedByType = metrics.getPacketsReceivedByType();
+         this.packetsSent = total(packetsSentByType);
+         this.packetsReceived = total(packetsReceivedByType);
+         this.channelTypeMetrics = metrics.getChannelTypeMetrics();
+         this.bytesSent = metrics.getBytesSent();
+         this.bytesReceived = metrics.getBytesReceived();
+         this.channelsOpened = metrics.getChannelsOpened();
+         this.channelsRefused = metrics.getChannelsRefused();
+         this.channelsDeclined = metrics.getChannelsDeclined();
+         this.channelsClosed = metrics.getChannelsClosed();
+         this.openChannels = metrics.getOpenChannels();
+         this.pendingRequests = metrics.getPendingRequests();
+         this.earlyDataQueued = metrics.getEarlyDataQueued();
+         this.handshakes = metrics.getHandshakes();
+         this.handshakeMeanNanos = metrics.getHandshakeMeanNanos();
+         this.handshakeMaxNanos = metrics.getHandshakeMaxNanos();
+         this.dispatches = metrics.getDispatches();
+         this.dispatchMeanNanos = metrics.getDispatchMeanNanos();
+         this.dispatchMaxNanos = metrics.getDispatchMaxNanos();
+
+         Map<Long, ChannelMetrics> channels = new LinkedHashMap<>();
+         for (Channel<?> channel : metrics.multiplexer.getChannels()) {
+            ChannelMetrics channelMetrics = channel.getMetrics();
+            if (channelMetrics != null)
+               channels.put(channel.getId(), channelMetrics.copy());
+         }
+
+         this.channels = Collections.unmodifiableMap(channels);
+      }
+
+      private static long total(Map<String, Long> byType) {
+         long total = 0;
+         for (long count : byType.values())
+            total += count;
+
+         return total;
+      }
+
+      /**
+       * Get the metrics of the channels, that were open when the snapshot was taken.
+       * Only the channels established while the channel metrics were enabled have metrics.
+       *
+       * @return The metrics of the channels by their ids
+       */
+      public Map<Long, ChannelMetrics> getChannels() {
+         return channels;
+      }
+
+      @Override
+      public long getPacketsSent() {
+         return packetsSent;
+      }
+
+      @Override
+      public long getPacketsReceived() {
+         return packetsReceived;
+      }
+
+      @Override
+      public Map<String, Long> getPacketsSentByType() {
+         return packetsSentByType;
+      }
+
+      @Override
+      public Map<String, Long> getPacketsReceivedByType() {
+         return packetsReceivedByType;
+      }
+
+      @Override
+      public Map<String, ChannelMetrics> getChannelTypeMetrics() {
+         return channelTypeMetrics;
+      }
+
+      @Override
+      public long getBytesSent() {
+         return bytesSent;
+      }
+
+      @Override
+      public long getBytesReceived() {
+         return bytesReceived;
+      }
+
+      @Override
+      public long getChannelsOpened() {
+         return channelsOpened;
+      }
+
+      @Override
+      public long getChannelsRefused() {
+         return channelsRefused;
+      }
+
+      @Override
+      public long getChannelsDeclined() {
+         return channelsDeclined;
+      }
+
+      @Override
+      public long getChannelsClosed() {
+         return channelsClosed;
+      }
+
+      @Override
+      public int getOpenChannels() {
+         return openChannels;
+      }
+
+      @Override
+      public int getPendingRequests() {
+         return pendingRequests;
+      }
+
+      @Override
+      public int getEarlyDataQueued() {
+         return earlyDataQueued;
+      }
+
+      @Override
+      public long getHandshakes() {
+         return handshakes;
+      }
+
+      @Override
+      public long getHandshakeMeanNanos() {
+         return handshakeMeanNanos;
+      }
+
+      @Override
+      public long getHandshakeMaxNanos() {
+         return handshakeMaxNanos;
+      }
+
+      @Override
+      public long getDispatches() {
+         return dispatches;
+      }
+
+      @Override
+      public long getDispatchMeanNanos() {
+         return dispatchMeanNanos;
+      }
+
+      @Override
+      public long getDispatchMaxNanos() {
+         return dispatchMaxNanos;
+      }
+
+      @Override
+      public String toString() {
+         return "MultiplexerMetrics.Snapshot { packetsSent=" + packetsSent
+                + ", packetsReceived=" + packetsReceived
+                + ", bytesSent=" + bytesSent
+                + ", bytesReceived=" + bytesReceived
+                + ", channelsOpened=" + channelsOpened
+                + ", channelsClosed=" + channelsClosed
+                + ", openChannels=" + openChannels
+                + ", pendingRequests=" + pendingRequests + " }";
+      }
+   }
+}
@@ -0,0 +1,136 @@
+package de.dk.ch;
+
+import java.util.Map;
+
+/**
+ * The metrics of a multiplexer.
+ * The live metrics of a multiplexer are registered as a JMX MXBean by {@link MultiplexerMetrics#registerMBean(String)},
+ * a consistent copy is taken by {@link MultiplexerMetrics#snapshot()}.
+ * The packets are counted as the multiplexer sends and receives them, the packets of a batch are counted one by one.
+ * Bytes are only counted by a transport, that encodes the packets and reports them as a {@link ByteCounter},
+ * like the {@link NioConnection}.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#getMetrics()
+ */
+public interface MultiplexerMetricsMXBean {
+   /**
+    * @return The number of packets sent
+    */
+   public long getPacketsSent();
+
+   /**
+    * @return The number of packets received
+    */
+   public long getPacketsReceived();
+
+   /**
+    * Get the number of packets sent per packet type.
+    * These are all the packets of the multiplexer, the packets of the channels per channel type
+    * are counted by {@link #getChannelTypeMetrics()}.
+    * The types are <code>PAYLOAD</code>, <code>FRAGMENT</code> and the names of the {@link ChannelPacket.ChannelPacketType}s.
+    *
+    * @return The number of packets sent per type
+    */
+   public Map<String, Long> getPacketsSentByType();
+
+   /**
+    * Get the number of packets received per packet type.
+    *
+    * @return The number of packets received per type
+    *
+    * @see #getPacketsSentByType()
+    */
+   public Map<String, Long> getPacketsReceivedByType();
+
+   /**
+    * Get the metrics of the channels per channel type.
+    * Only the channels established while the channel metrics were enabled are counted.
+    *
+    * @return The metrics of the channels by the names of their types
+    *
+    * @see Multiplexer#setChannelMetricsEnabled(boolean)
+    */
+   public Map<String, ChannelMetrics> getChannelTypeMetrics();
+
+   /**
+    * @return The number of encoded bytes sent
+    */
+   public long getBytesSent();
+
+   /**
+    * @return The number of encoded bytes received
+    */
+   public long getBytesReceived();
+
+   /**
+    * @return The number of channels opened by either side
+    */
+   public long getChannelsOpened();
+
+   /**
+    * @return The number of requests of this side, that were refused by the other side
+    */
+   public long getChannelsRefused();
+
+   /**
+    * @return The number of requests of the other side, that were refused by this side
+    */
+   public long getChannelsDeclined();
+
+   /**
+    * @return The number of channels closed by either side
+    */
+   public long getChannelsClosed();
+
+   /**
+    * @return The number of currently open channels
+    */
+   public int getOpenChannels();
+
+   /**
+    * @return The number of requests of this side waiting for a response
+    */
+   public int getPendingRequests();
+
+   /**
+    * @return The number of messages currently queued by opening channels
+    */
+   public int getEarlyDataQueued();
+
+   /**
+    * @return The number of handshakes of this side, that opened a channel
+    */
+   public long getHandshakes();
+
+   /**
+    * @return The mean time in nanoseconds from sending a request until it was accepted
+    */
+   public long getHandshakeMeanNanos();
+
+   /**
+    * @return The longest time in nanoseconds from sending a request until it was accepted
+    */
+   public long getHandshakeMaxNanos();
+
+   /**
+    * Only the listeners of the channels established while the channel metrics were enabled are timed.
+    *
+    * @return The number of messages delivered to the listeners of the channels
+    *
+    * @see Multiplexer#setChannelMetricsEnabled(boolean)
+    */
+   public long getDispatches();
+
+   /**
+    * @return The mean time in nanoseconds the listeners of a channel took for a message
+    */
+   public long getDispatchMeanNanos();
+
+   /**
+    * @return The longest time in nanoseconds the listeners of a channel took for a message
+    */
+   public long getDispatchMaxNanos();
+}
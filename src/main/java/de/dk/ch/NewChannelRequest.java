@@ -1,87 +1,136 @@
 package de.dk.ch;
 
 import java.io.IOException;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 
-import de.dk.ch.ChannelPacket.ChannelPacketType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pending request to open a channel.
+ * No thread waits for the response, the future of the request is completed
+ * by the thread receiving the response or by the timer of the multiplexer when the request timed out.
+ */
+class NewChannelRequest<P> {
+   private static final Logger log = LoggerFactory.getLogger(NewChannelRequest.class);
 
-class NewChannelRequest<P> implements Callable<Channel<P>> {
    private final Channel<P> channel;
    private final Class<P> type;
-   private final P initialMessage;
-   private ChannelRefusedPacket refuseResponse;
-   private State state;
+   private final NewChannelRequestPacket packet;
+   private final CompletableFuture<Channel<P>> future = new CompletableFuture<>();
+   // The request is sent right after it has been created, the handshake is measured from here
+   private final long createdNanos = System.nanoTime();
+   private volatile HashedWheelTimer.Timeout timeout;
 
-   protected NewChannelRequest(Channel<P> channel, Class<P> type, P initialMsg) {
+   protected NewChannelRequest(Channel<P> channel, Class<P> type, NewChannelRequestPacket packet) {
       this.channel = channel;
       this.type = type;
-      this.initialMessage = initialMsg;
+      this.packet = packet;
+      future.whenComplete((c, e) -> cancelTimeout());
    }
 
-   protected NewChannelRequest(Channel<P> channel, Class<P> type) {
-      this(channel, type, null);
+   /**
+    * Sends the request.
+    *
+    * @param timer The timer to time the request with
+    * @param timeoutMillis The timeout in milliseconds or a value smaller than 1 to wait indefinitely
+    * @param onTimeout Called by the timer when the request timed out
+    */
+   public void send(HashedWheelTimer timer, long timeoutMillis, Runnable onTimeout) {
+      try {
+         channel.send(packet);
+      } catch (IOException e) {
+         failed(e);
+         return;
+      }
+
+      // The timeout starts after the request has been sent, like the timeout of a blocking request did.
+      startTimeout(timer, timeoutMillis, onTimeout);
    }
 
-   @Override
-   public synchronized Channel<P> call() throws InterruptedException,
-                                                ChannelDeclinedException,
-                                                IOException {
-      try {
-         return request(0);
-      } catch (TimeoutException e) {
-         throw new IllegalStateException();
+   /**
+    * Starts the timeout of the request, that has been sent by the caller, e.g. as part of a batch.
+    *
+    * @param timer The timer to time the request with
+    * @param timeoutMillis The timeout in milliseconds or a value smaller than 1 to wait indefinitely
+    * @param onTimeout Called by the timer when the request timed out
+    */
+   public void startTimeout(HashedWheelTimer timer, long timeoutMillis, Runnable onTimeout) {
+      // A timeout, that is not cancelled because the response won the race, finds the request withdrawn.
+      if (timeoutMillis > 0 && !future.isDone()) {
+         this.timeout = timer.schedule(onTimeout, timeoutMillis);
+         if (future.isDone())
+            cancelTimeout();
       }
    }
 
-   public synchronized Channel<P> request(long timeout) throws InterruptedException,
-                                                               ChannelDeclinedException,
-                                                               IOException,
-                                                               TimeoutException {
-      this.state = State.WAITING;
-      channel.send(new NewChannelRequestPacket(channel.getId(), type, initialMessage));
-      if (state == State.WAITING)
-         wait(timeout);
-
-      switch (state) {
-      case ACCEPTED:
-         channel.send(new ChannelPacket(channel.getId(), ChannelPacketType.OK));
+   private void cancelTimeout() {
+      HashedWheelTimer.Timeout timeout = this.timeout;
+      if (timeout != null)
+         timeout.cancel();
+   }
+
+   /**
+    * Opens the channel and completes the future of this request.
+    * The confirmation of a request, that is not pipelined, must have been sent before.
+    */
+   public void accepted() {
+      try {
          channel.setState(ChannelState.OPEN);
-         return channel;
-      case REFUSED:
-         if (refuseResponse.getException() instanceof ChannelDeclinedException)
-            throw (ChannelDeclinedException) refuseResponse.getException();
-         else
-            throw new IOException(refuseResponse.getException());
-      case WAITING:
-         throw new TimeoutException("The channel request timed out.");
+      } catch (ClosedException e) {
+         future.completeExceptionally(e);
+         return;
       }
 
-      return channel;
+      if (!future.complete(channel)) {
+         log.debug("Channel " + channel.getId() + " was accepted after its request had been cancelled.");
+         try {
+            channel.close();
+         } catch (IOException e) {
+            log.warn("Could not close channel " + channel.getId(), e);
+         }
+      }
+   }
+
+   public void refused(ChannelRefusedPacket response) {
+      if (response.getException() instanceof ChannelDeclinedException)
+         failed(response.getException());
+      else
+         failed(new IOException(response.getException()));
+   }
+
+   public void timedOut() {
+      failed(new TimeoutException("The channel request timed out."));
    }
 
-   public synchronized void refused(ChannelRefusedPacket response) {
-      this.refuseResponse = response;
-      this.state = State.REFUSED;
-      notify();
+   public void failed(Throwable cause) {
+      // The channel is failed first, so a sender of early data sees the refusal, when the future completes
+      channel.refused(cause);
+      future.completeExceptionally(cause);
    }
 
-   public synchronized void accepted() {
-      this.state = State.ACCEPTED;
-      notify();
+   public long getCreatedNanos() {
+      return createdNanos;
    }
 
-   protected Channel<?> getChannel() {
+   public NewChannelRequestPacket getPacket() {
+      return packet;
+   }
+
+   public boolean isPipelined() {
+      return packet.isPipelined();
+   }
+
+   public CompletableFuture<Channel<P>> getFuture() {
+      return future;
+   }
+
+   protected Channel<P> getChannel() {
       return channel;
    }
 
    protected Class<P> getType() {
       return type;
    }
-
-   private static enum State {
-      WAITING,
-      ACCEPTED,
-      REFUSED;
-   }
-}
\ No newline at end of file
+}
@@ -2,6 +2,9 @@ package de.dk.ch;
 
 import static de.dk.ch.ChannelPacket.ChannelPacketType.NEW;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,11 +16,48 @@ public class NewChannelRequestPacket extends ChannelPacket {
 
    private final Class<?> type;
    private Object initialMessage;
+   private final int window;
+   private final int weight;
+   private final boolean pipelined;
+   private final List<String> compressions;
 
-   public NewChannelRequestPacket(long channelId, Class<?> type, Object initialMsg) {
+   public NewChannelRequestPacket(long channelId,
+                                  Class<?> type,
+                                  Object initialMsg,
+                                  int window,
+                                  int weight,
+                                  boolean pipelined,
+                                  List<String> compressions) {
       super(channelId, NEW);
       this.type = type;
       this.initialMessage = initialMsg;
+      this.window = window;
+      this.weight = weight;
+      this.pipelined = pipelined;
+      this.compressions = compressions == null || compressions.isEmpty()
+         ? Collections.emptyList()
+         : Collections.unmodifiableList(new ArrayList<>(compressions));
+   }
+
+   public NewChannelRequestPacket(long channelId,
+                                  Class<?> type,
+                                  Object initialMsg,
+                                  int window,
+                                  int weight,
+                                  boolean pipelined) {
+      this(channelId, type, initialMsg, window, weight, pipelined, null);
+   }
+
+   public NewChannelRequestPacket(long channelId, Class<?> type, Object initialMsg, int window, int weight) {
+      this(channelId, type, initialMsg, window, weight, false);
+   }
+
+   public NewChannelRequestPacket(long channelId, Class<?> type, Object initialMsg, int window) {
+      this(channelId, type, initialMsg, window, ChannelOptions.DEFAULT_WEIGHT);
+   }
+
+   public NewChannelRequestPacket(long channelId, Class<?> type, Object initialMsg) {
+      this(channelId, type, initialMsg, 0);
    }
 
    public NewChannelRequestPacket(long channelId, Class<?> type) {
@@ -36,6 +76,50 @@ public class NewChannelRequestPacket extends ChannelPacket {
       return type;
    }
 
+   /**
+    * Get the number of messages the requesting side is willing to receive
+    * before it grants more credit with a {@link WindowUpdatePacket}.
+    *
+    * @return The initial window of the requesting side or 0 if the requesting side does not use flow control
+    */
+   public int getWindow() {
+      return window;
+   }
+
+   /**
+    * Get the scheduling weight the requesting side assigned to the channel.
+    *
+    * @return The weight of the channel
+    *
+    * @see ChannelOptions#setWeight(int)
+    */
+   public int getWeight() {
+      return weight;
+   }
+
+   /**
+    * Get the compressions the requesting side proposes for the channel, the preferred one first.
+    *
+    * @return The names of the proposed compressions, empty if the payloads should not be compressed
+    *
+    * @see ChannelOptions#setCompression(String...)
+    */
+   public List<String> getCompressions() {
+      return compressions;
+   }
+
+   /**
+    * Whether the requesting side sends messages right behind this request without waiting for an answer.
+    * The accepting side opens a pipelined channel at once and expects no confirmation of its answer.
+    *
+    * @return <code>true</code> if the channel is opened pipelined
+    *
+    * @see Multiplexer#openPipelined(Class, Object, ChannelOptions)
+    */
+   public boolean isPipelined() {
+      return pipelined;
+   }
+
    @Override
    public String toString() {
       return "NewChannelRequestPacket {channelID=" + channelId + ", type=" + type.getName() + "}";
@@ -0,0 +1,389 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A connection of a {@link NioEventLoop}.
+ * A <code>NioConnection</code> is the sender of the receiver that was created for it.
+ * Sending a packet only encodes and queues it, the event loop writes it to the socket.
+ * If the queue exceeds the high water mark of the event loop, the sender waits until it is written
+ * down to the low water mark, so a slow peer pushes back on the senders instead of filling the heap.
+ * The connection counts the bytes of the encoded packets and reports each packet to its {@link ByteCounter},
+ * e.g. the metrics of its multiplexer.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see NioEventLoop
+ */
+public class NioConnection implements Sender, Closeable {
+   private static final Logger log = LoggerFactory.getLogger(NioConnection.class);
+
+   private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+   private static final int MAX_GATHERED_BUFFERS = 64;
+
+   private final NioEventLoop loop;
+   private final SocketChannel socket;
+   private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+   private final AtomicLong queuedBytes = new AtomicLong();
+   private final Object drained = new Object();
+   private final AtomicBoolean flushScheduled = new AtomicBoolean();
+   private final Runnable flushTask = this::flush;
+
+   // Only accessed by the event loop thread
+   private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+   private final ByteBuffer[] gathered = new ByteBuffer[MAX_GATHERED_BUFFERS];
+   private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+   private SelectionKey key;
+
+   private Receiver receiver;
+   private final LongAdder bytesSent = new LongAdder();
+   private final LongAdder bytesReceived = new LongAdder();
+   private volatile ByteCounter byteCounter;
+   private volatile boolean closed = false;
+
+   NioConnection(NioEventLoop loop, SocketChannel socket) {
+      this.loop = loop;
+      this.socket = socket;
+   }
+
+   /**
+    * Encodes the given packet and queues it to be written by the event loop.
+    * This method does not block on the socket. If the queued bytes exceed the high water mark of the event loop,
+    * it waits until the event loop has written them down to the low water mark.
+    * The packet is queued in any case, even if the waiting fails.
+    *
+    * @param msg The packet to be sent
+    *
+    * @throws IOException If the packet could not be encoded
+    * @throws ClosedException If this connection has already been closed or is closed while waiting
+    * @throws InterruptedIOException If the thread is interrupted while waiting for the queue to be written
+    * @throws IllegalArgumentException If the message is not a packet
+    */
+   @Override
+   public void send(Serializable msg) throws IOException, ClosedException, IllegalArgumentException {
+      if (!(msg instanceof Packet))
+         throw new IllegalArgumentException("Only packets can be sent through a NioConnection: " + msg);
+
+      ensureOpen();
+      ByteBuffer frame = loop.getCodec()
+                             .encode((Packet) msg);
+      bytesSent.add(frame.remaining());
+      ByteCounter counter = byteCounter;
+      if (counter != null)
+         counter.bytesSent((Packet) msg, frame.remaining());
+
+      long queued = queuedBytes.addAndGet(frame.remaining());
+      outbox.offer(frame);
+
+      if (flushScheduled.compareAndSet(false, true))
+         loop.execute(flushTask);
+
+      // The event loop must not wait for itself
+      if (queued > loop.getWriteBufferHighWaterMark() && !loop.inEventLoop())
+         awaitDrained();
+   }
+
+   private void awaitDrained() throws ClosedException, InterruptedIOException {
+      synchronized (drained) {
+         while (queuedBytes.get() > loop.getWriteBufferLowWaterMark()) {
+            ensureOpen();
+            try {
+               drained.wait();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new InterruptedIOException("Interrupted while waiting for the queue of connection "
+                                                + this + " to be written.");
+            }
+         }
+      }
+   }
+
+   private void written(long bytes) {
+      long queued = queuedBytes.addAndGet(-bytes);
+      if (queued <= loop.getWriteBufferLowWaterMark()) {
+         synchronized (drained) {
+            drained.notifyAll();
+         }
+      }
+   }
+
+   void registered(SelectionKey key) {
+      this.key = key;
+      if (closed) {
+         closeNow();
+         return;
+      }
+      flush();
+   }
+
+   void read() {
+      int read;
+      try {
+         read = socket.read(readBuffer);
+      } catch (IOException e) {
+         log.debug("Could not read from connection " + this, e);
+         closeNow();
+         return;
+      }
+      if (read < 0) {
+         closeNow();
+         return;
+      }
+
+      readBuffer.flip();
+      try {
+         for (int start = readBuffer.position(); ; start = readBuffer.position()) {
+            Packet packet = decode();
+            if (packet == null)
+               break;
+
+            int bytes = readBuffer.position() - start;
+            bytesReceived.add(bytes);
+            ByteCounter counter = byteCounter;
+            if (counter != null)
+               counter.bytesReceived(packet, bytes);
+
+            deliver(packet);
+         }
+      } catch (IOException e) {
+         log.error("Received a corrupt frame through connection " + this, e);
+         closeNow();
+         return;
+      }
+      readBuffer.compact();
+
+      if (!readBuffer.hasRemaining())
+         growReadBuffer();
+   }
+
+   private Packet decode() throws IOException {
+      return loop.getCodec()
+                 .decode(readBuffer);
+   }
+
+   private void deliver(Packet packet) {
+      try {
+         receiver.receive(packet);
+      } catch (IllegalArgumentException | IllegalStateException e) {
+         log.warn("Receiver of connection " + this + " could not handle packet " + packet, e);
+      } catch (RuntimeException e) {
+         log.error("Receiver of connection " + this + " threw an exception.", e);
+      }
+   }
+
+   private void growReadBuffer() {
+      int capacity = readBuffer.capacity();
+      if (capacity >= loop.getMaxFrameSize()) {
+         log.error("Frame of connection " + this + " exceeds the maximum frame size of "
+                   + loop.getMaxFrameSize() + " bytes.");
+         closeNow();
+         return;
+      }
+
+      ByteBuffer grown = ByteBuffer.allocate((int) Math.min((long) capacity * 2, loop.getMaxFrameSize()));
+      readBuffer.flip();
+      grown.put(readBuffer);
+      readBuffer = grown;
+   }
+
+   void flush() {
+      flushScheduled.set(false);
+      if (key == null || !key.isValid())
+         return;
+
+      for (ByteBuffer buffer = outbox.poll(); buffer != null; buffer = outbox.poll())
+         pending.offer(buffer);
+
+      try {
+         while (!pending.isEmpty()) {
+            int count = 0;
+            for (ByteBuffer buffer : pending) {
+               gathered[count++] = buffer;
+               if (count == MAX_GATHERED_BUFFERS)
+                  break;
+            }
+
+            written(socket.write(gathered, 0, count));
+            while (!pending.isEmpty() && !pending.peek().hasRemaining())
+               pending.poll();
+
+            if (gathered[count - 1].hasRemaining())
+               break;
+         }
+      } catch (IOException e) {
+         log.debug("Could not write to connection " + this, e);
+         closeNow();
+         return;
+      } finally {
+         Arrays.fill(gathered, null);
+      }
+
+      if (pending.isEmpty())
+         key.interestOps(SelectionKey.OP_READ);
+      else
+         key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+   }
+
+   /**
+    * Tells whether the calling thread is the event loop thread of this connection.
+    * A sender in front of this connection must never let that thread wait,
+    * only the event loop writes the queue of this connection.
+    *
+    * @return <code>true</code> if the calling thread is the event loop thread
+    */
+   public boolean inEventLoop() {
+      return loop.inEventLoop();
+   }
+
+   /**
+    * Get the test for the I/O thread of the given sender.
+    * If the sender is a <code>NioConnection</code> or sends through one,
+    * that thread is the event loop of the connection.
+    *
+    * @param sender The sender
+    *
+    * @return Tells whether the calling thread is the I/O thread of the sender
+    */
+   static BooleanSupplier ioThreadOf(Sender sender) {
+      if (sender instanceof NioConnection)
+         return ((NioConnection) sender)::inEventLoop;
+      if (sender instanceof BatchingSender)
+         return ioThreadOf(((BatchingSender) sender).getTarget());
+      if (sender instanceof FairScheduler)
+         return ioThreadOf(((FairScheduler) sender).getTarget());
+
+      return () -> false;
+   }
+
+   private void ensureOpen() throws ClosedException {
+      if (closed)
+         throw new ClosedException("Connection has already been closed.");
+   }
+
+   /**
+    * Closes this connection after the already queued packets have been written, as far as possible
+    * without blocking.
+    * If the receiver of this connection is a <code>Multiplexer</code>, it is closed as well.
+    */
+   @Override
+   public void close() {
+      if (closed)
+         return;
+
+      loop.execute(() -> {
+         flush();
+         closeNow();
+      });
+   }
+
+   void closeNow() {
+      if (closed)
+         return;
+
+      closed = true;
+      synchronized (drained) {
+         drained.notifyAll();
+      }
+      if (key != null)
+         key.cancel();
+
+      try {
+         socket.close();
+      } catch (IOException e) {
+         log.warn("Could not close the socket of connection " + this, e);
+      }
+
+      if (receiver instanceof Multiplexer)
+         ((Multiplexer) receiver).close();
+   }
+
+   SocketChannel getSocket() {
+      return socket;
+   }
+
+   void setReceiver(Receiver receiver) {
+      this.receiver = receiver;
+   }
+
+   /**
+    * Get the receiver of the packets of this connection.
+    *
+    * @return The receiver of this connection
+    */
+   public Receiver getReceiver() {
+      return receiver;
+   }
+
+   /**
+    * Set the byte counter, that this connection reports the size of each encoded packet to.
+    *
+    * @param byteCounter The byte counter or <code>null</code> to only count the bytes of this connection
+    */
+   public void setByteCounter(ByteCounter byteCounter) {
+      this.byteCounter = byteCounter;
+   }
+
+   public ByteCounter getByteCounter() {
+      return byteCounter;
+   }
+
+   /**
+    * Get the number of bytes of the packets encoded to be sent through this connection.
+    *
+    * @return The number of bytes sent
+    */
+   public long getBytesSent() {
+      return bytesSent.sum();
+   }
+
+   /**
+    * Get the number of bytes queued to be written to the socket.
+    *
+    * @return The number of queued bytes
+    */
+   long getQueuedBytes() {
+      return queuedBytes.get();
+   }
+
+   /**
+    * Get the number of bytes of the packets decoded from this connection.
+    *
+    * @return The number of bytes received
+    */
+   public long getBytesReceived() {
+      return bytesReceived.sum();
+   }
+
+   public boolean isClosed() {
+      return closed;
+   }
+
+   @Override
+   public String toString() {
+      String remote;
+      try {
+         remote = String.valueOf(socket.getRemoteAddress());
+      } catch (IOException e) {
+         remote = "unknown";
+      }
+      return "NioConnection { remote=" + remote + ", closed=" + closed + " }";
+   }
+}
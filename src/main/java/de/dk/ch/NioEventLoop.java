@@ -0,0 +1,350 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A non-blocking socket transport for multiplexers.
+ * A single event loop thread serves any number of {@link NioConnection}s through one <code>Selector</code>.
+ * The event loop decodes the incoming frames with a {@link PacketCodec} and hands the packets to the
+ * receiver of the connection (usually a {@link Multiplexer}). Outgoing packets are encoded by the
+ * sending thread, queued and written by the event loop, so a send never blocks on the socket.
+ * If the queue of a connection grows beyond the high water mark, because the other side does not read fast
+ * enough, the senders wait until the event loop has written the queue down to the low water mark.
+ *
+ * Receivers are called on the event loop thread.
+ * They must not block, especially they must not wait for a channel to be established.
+ *
+ * <pre>
+ * NioEventLoop loop = new NioEventLoop();
+ * loop.start();
+ * loop.listen(address, connection -&gt; new Multiplexer(idGenerator, connection, handlers));
+ * </pre>
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see NioConnection
+ */
+public class NioEventLoop implements Closeable {
+   private static final Logger log = LoggerFactory.getLogger(NioEventLoop.class);
+
+   private final PacketCodec codec;
+   private final Selector selector;
+   private final Thread thread;
+   private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+   private int maxFrameSize = 16 * 1024 * 1024;
+   private volatile int writeBufferHighWaterMark = 4 * 1024 * 1024;
+   private volatile int writeBufferLowWaterMark = 1024 * 1024;
+   private volatile boolean closed = false;
+
+   /**
+    * Creates a new event loop, that encodes the packets with the given <code>codec</code>.
+    *
+    * @param codec The codec to encode and decode the packets with
+    *
+    * @throws IOException If the selector could not be opened
+    */
+   public NioEventLoop(PacketCodec codec) throws IOException {
+      this.codec = Objects.requireNonNull(codec);
+      this.selector = Selector.open();
+      this.thread = new Thread(this::run, "multiplex-nio-event-loop");
+      thread.setDaemon(true);
+   }
+
+   /**
+    * Creates a new event loop, that encodes the packets with a {@link BinaryPacketCodec}.
+    *
+    * @throws IOException If the selector could not be opened
+    */
+   public NioEventLoop() throws IOException {
+      this(new BinaryPacketCodec());
+   }
+
+   /**
+    * Starts the event loop thread.
+    */
+   public void start() {
+      thread.start();
+   }
+
+   /**
+    * Connects to the given <code>address</code>.
+    * This method blocks until the connection is established.
+    *
+    * @param address The address to connect to
+    * @param receiverFactory Creates the receiver for the packets of the new connection
+    * (the connection is the sender for the receiver)
+    *
+    * @return The new connection
+    *
+    * @throws IOException If the connection could not be established
+    * @throws ClosedException If this event loop has already been closed
+    */
+   public NioConnection connect(SocketAddress address,
+                                Function<? super NioConnection, ? extends Receiver> receiverFactory) throws IOException,
+                                                                                                            ClosedException {
+      ensureOpen();
+      SocketChannel channel = SocketChannel.open(address);
+      try {
+         channel.configureBlocking(false);
+         channel.socket()
+                .setTcpNoDelay(true);
+      } catch (IOException e) {
+         channel.close();
+         throw e;
+      }
+
+      NioConnection connection = new NioConnection(this, channel);
+      connection.setReceiver(receiverFactory.apply(connection));
+      execute(() -> register(connection));
+      return connection;
+   }
+
+   /**
+    * Listens for incoming connections at the given <code>address</code>.
+    *
+    * @param address The address to listen at
+    * @param receiverFactory Creates the receiver for the packets of each accepted connection
+    * (the connection is the sender for the receiver)
+    *
+    * @return The address this event loop is actually listening at
+    *
+    * @throws IOException If the address could not be bound
+    * @throws ClosedException If this event loop has already been closed
+    */
+   public SocketAddress listen(SocketAddress address,
+                               Function<? super NioConnection, ? extends Receiver> receiverFactory) throws IOException,
+                                                                                                           ClosedException {
+      ensureOpen();
+      ServerSocketChannel server = ServerSocketChannel.open();
+      try {
+         server.configureBlocking(false);
+         server.bind(address);
+      } catch (IOException e) {
+         server.close();
+         throw e;
+      }
+
+      execute(() -> {
+         try {
+            server.register(selector, SelectionKey.OP_ACCEPT, receiverFactory);
+         } catch (IOException e) {
+            log.error("Could not listen at " + address, e);
+         }
+      });
+      return server.getLocalAddress();
+   }
+
+   private void register(NioConnection connection) {
+      try {
+         SelectionKey key = connection.getSocket()
+                                      .register(selector, SelectionKey.OP_READ, connection);
+         connection.registered(key);
+      } catch (IOException e) {
+         log.error("Could not register connection " + connection, e);
+         connection.closeNow();
+      }
+   }
+
+   private void run() {
+      while (!closed) {
+         try {
+            selector.select();
+            runTasks();
+            Iterator<SelectionKey> keys = selector.selectedKeys()
+                                                  .iterator();
+            while (keys.hasNext()) {
+               SelectionKey key = keys.next();
+               keys.remove();
+               handle(key);
+            }
+         } catch (ClosedSelectorException e) {
+            break;
+         } catch (IOException | RuntimeException e) {
+            log.error("Error in the event loop.", e);
+         }
+      }
+      shutdown();
+   }
+
+   private void runTasks() {
+      for (Runnable task = tasks.poll(); task != null; task = tasks.poll())
+         task.run();
+   }
+
+   private void handle(SelectionKey key) {
+      if (!key.isValid())
+         return;
+
+      if (key.isAcceptable()) {
+         accept(key);
+         return;
+      }
+
+      NioConnection connection = (NioConnection) key.attachment();
+      if (key.isReadable())
+         connection.read();
+
+      if (key.isValid() && key.isWritable())
+         connection.flush();
+   }
+
+   @SuppressWarnings("unchecked")
+   private void accept(SelectionKey key) {
+      ServerSocketChannel server = (ServerSocketChannel) key.channel();
+      Function<? super NioConnection, ? extends Receiver> receiverFactory;
+      receiverFactory = (Function<? super NioConnection, ? extends Receiver>) key.attachment();
+      SocketChannel channel;
+      try {
+         channel = server.accept();
+         if (channel == null)
+            return;
+
+         channel.configureBlocking(false);
+         channel.socket()
+                .setTcpNoDelay(true);
+      } catch (IOException e) {
+         log.warn("Could not accept a connection.", e);
+         return;
+      }
+
+      NioConnection connection = new NioConnection(this, channel);
+      try {
+         connection.setReceiver(receiverFactory.apply(connection));
+      } catch (RuntimeException e) {
+         log.error("Could not create the receiver of an accepted connection.", e);
+         connection.closeNow();
+         return;
+      }
+      register(connection);
+   }
+
+   /**
+    * Runs the given <code>task</code> on the event loop thread.
+    *
+    * @param task The task to be run
+    */
+   void execute(Runnable task) {
+      tasks.offer(task);
+      selector.wakeup();
+   }
+
+   boolean inEventLoop() {
+      return Thread.currentThread() == thread;
+   }
+
+   PacketCodec getCodec() {
+      return codec;
+   }
+
+   /**
+    * Get the maximum size of a frame this event loop accepts.
+    *
+    * @return The maximum frame size in bytes
+    */
+   public int getMaxFrameSize() {
+      return maxFrameSize;
+   }
+
+   /**
+    * Set the maximum size of a frame this event loop accepts.
+    * A connection, that receives a larger frame, is closed.
+    *
+    * @param maxFrameSize The maximum frame size in bytes
+    */
+   public void setMaxFrameSize(int maxFrameSize) {
+      this.maxFrameSize = maxFrameSize;
+   }
+
+   /**
+    * Get the number of queued bytes of a connection, above which its senders have to wait.
+    *
+    * @return The high water mark in bytes
+    */
+   public int getWriteBufferHighWaterMark() {
+      return writeBufferHighWaterMark;
+   }
+
+   /**
+    * Get the number of queued bytes of a connection, below which its waiting senders continue.
+    *
+    * @return The low water mark in bytes
+    */
+   public int getWriteBufferLowWaterMark() {
+      return writeBufferLowWaterMark;
+   }
+
+   /**
+    * Set the water marks of the write queues of the connections.
+    * A sender, whose packet lets the queue of its connection exceed the high water mark,
+    * waits until the queue has been written down to the low water mark.
+    * The event loop thread itself never waits, the packets it sends are queued regardless.
+    *
+    * @param low The low water mark in bytes
+    * @param high The high water mark in bytes
+    *
+    * @throws IllegalArgumentException If <code>low</code> is negative or greater than <code>high</code>
+    */
+   public void setWriteBufferWaterMarks(int low, int high) throws IllegalArgumentException {
+      if (low < 0 || low > high)
+         throw new IllegalArgumentException("Invalid write buffer water marks: low=" + low + ", high=" + high);
+
+      this.writeBufferLowWaterMark = low;
+      this.writeBufferHighWaterMark = high;
+   }
+
+   private void ensureOpen() throws ClosedException {
+      if (closed)
+         throw new ClosedException("Event loop has already been closed.");
+   }
+
+   private void shutdown() {
+      runTasks();
+      for (SelectionKey key : selector.keys()) {
+         if (key.attachment() instanceof NioConnection) {
+            ((NioConnection) key.attachment()).closeNow();
+         } else {
+            try {
+               key.channel()
+                  .close();
+            } catch (IOException e) {
+               // Nothing to do here
+            }
+         }
+      }
+      try {
+         selector.close();
+      } catch (IOException e) {
+         log.warn("Could not close the selector.", e);
+      }
+   }
+
+   /**
+    * Closes this event loop with all its connections.
+    */
+   @Override
+   public void close() {
+      closed = true;
+      selector.wakeup();
+   }
+
+   public boolean isClosed() {
+      return closed;
+   }
+}
@@ -0,0 +1,44 @@
+package de.dk.ch;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A batch of packets of any channels, that is sent as one unit.
+ * The packets of a batch are received in the order they were added to the batch.
+ * A batch is not associated with a channel, its <code>channelId</code> has no meaning.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see BatchingSender
+ */
+public class PacketBatch extends Packet {
+   private static final long serialVersionUID = 6513021768380187932L;
+
+   private final Packet[] packets;
+
+   public PacketBatch(Packet... packets) {
+      super(0);
+      this.packets = Objects.requireNonNull(packets);
+   }
+
+   public PacketBatch(List<? extends Packet> packets) {
+      this(packets.toArray(new Packet[packets.size()]));
+   }
+
+   public List<Packet> getPackets() {
+      return Collections.unmodifiableList(Arrays.asList(packets));
+   }
+
+   public int size() {
+      return packets.length;
+   }
+
+   @Override
+   public String toString() {
+      return "PacketBatch {size=" + packets.length + "}";
+   }
+}
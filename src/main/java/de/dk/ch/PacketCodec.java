@@ -0,0 +1,42 @@
+package de.dk.ch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Converts packets to frames of bytes and back.
+ * A transport uses a <code>PacketCodec</code> to write the packets of a {@link Multiplexer}
+ * to a byte stream and to read the packets for the {@link Multiplexer} from it.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see BinaryPacketCodec
+ * @see SerializingPacketCodec
+ */
+public interface PacketCodec {
+   /**
+    * Encodes the given <code>packet</code> into a single frame.
+    *
+    * @param packet The packet to be encoded
+    *
+    * @return A buffer containing the frame, ready to be read
+    *
+    * @throws IOException If the packet could not be encoded
+    */
+   public ByteBuffer encode(Packet packet) throws IOException;
+
+   /**
+    * Decodes the next frame of the given <code>buffer</code>.
+    * If the buffer does not contain a complete frame, <code>null</code> is returned
+    * and the position of the buffer is left untouched.
+    * Otherwise the position of the buffer is moved behind the decoded frame.
+    *
+    * @param buffer The buffer to read the frame from
+    *
+    * @return The decoded packet or <code>null</code> if the buffer does not contain a complete frame
+    *
+    * @throws IOException If the frame is corrupt
+    */
+   public Packet decode(ByteBuffer buffer) throws IOException;
+}
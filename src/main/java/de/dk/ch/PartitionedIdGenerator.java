@@ -0,0 +1,122 @@
+package de.dk.ch;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An id generator, that generates ids of its own partition of the id space, so that several generators,
+ * e.g. the ones of both sides of a connection, never generate the same id.
+ * A generator of partition <code>p</code> of <code>n</code> partitions generates only ids <code>i</code>
+ * with <code>i mod n = p</code>. The simplest scheme splits the ids into even and odd ones:
+ *
+ * <pre>
+ * // The connecting side
+ * new Multiplexer(new PartitionedIdGenerator(false), sender, handlers);
+ * // The accepting side
+ * new Multiplexer(new PartitionedIdGenerator(true), sender, handlers);
+ * </pre>
+ *
+ * Each thread reserves a block of ids at once and generates the ids of its block without touching shared state.
+ * The ids are unique, but not ascending across threads.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class PartitionedIdGenerator implements IDGenerator {
+   /**
+    * The number of ids a thread reserves at once by default.
+    */
+   public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+   private final int partition;
+   private final int partitions;
+   private final int blockSize;
+   private final long maxBlocks;
+   private final AtomicLong nextBlock = new AtomicLong();
+   private final ThreadLocal<Block> block = ThreadLocal.withInitial(Block::new);
+
+   /**
+    * Creates a new id generator of the given <code>partition</code> of <code>partitions</code>.
+    *
+    * @param partition The partition of this generator
+    * @param partitions The number of partitions
+    * @param blockSize The number of ids a thread reserves at once
+    *
+    * @throws IllegalArgumentException If <code>partitions</code> or <code>blockSize</code> is smaller than 1
+    * or the <code>partition</code> is not between 0 and <code>partitions - 1</code>
+    */
+   public PartitionedIdGenerator(int partition, int partitions, int blockSize) throws IllegalArgumentException {
+      if (partitions < 1)
+         throw new IllegalArgumentException("There must be at least one partition: " + partitions);
+      if (partition < 0 || partition >= partitions)
+         throw new IllegalArgumentException("Partition " + partition + " not in [0, " + partitions + ")");
+      if (blockSize < 1)
+         throw new IllegalArgumentException("The block size must be at least 1: " + blockSize);
+
+      this.partition = partition;
+      this.partitions = partitions;
+      this.blockSize = blockSize;
+      this.maxBlocks = Long.MAX_VALUE / partitions / blockSize;
+   }
+
+   /**
+    * Creates a new id generator of the given <code>partition</code> of <code>partitions</code>,
+    * that reserves {@link #DEFAULT_BLOCK_SIZE} ids at once.
+    *
+    * @param partition The partition of this generator
+    * @param partitions The number of partitions
+    *
+    * @throws IllegalArgumentException If <code>partitions</code> is smaller than 1
+    * or the <code>partition</code> is not between 0 and <code>partitions - 1</code>
+    */
+   public PartitionedIdGenerator(int partition, int partitions) throws IllegalArgumentException {
+      this(partition, partitions, DEFAULT_BLOCK_SIZE);
+   }
+
+   /**
+    * Creates a new id generator of even or odd ids.
+    *
+    * @param odd <code>true</code> to generate odd ids, <code>false</code> to generate even ids
+    */
+   public PartitionedIdGenerator(boolean odd) {
+      this(odd ? 1 : 0, 2);
+   }
+
+   @Override
+   public long nextId() throws NoSuchElementException {
+      Block block = this.block.get();
+      if (block.next == block.end) {
+         long index = nextBlock.getAndIncrement();
+         if (index >= maxBlocks)
+            throw new NoSuchElementException("All ids of partition " + partition + " have been generated.");
+
+         block.next = index * blockSize;
+         block.end = block.next + blockSize;
+      }
+      return block.next++ * partitions + partition;
+   }
+
+   public int getPartition() {
+      return partition;
+   }
+
+   public int getPartitions() {
+      return partitions;
+   }
+
+   public int getBlockSize() {
+      return blockSize;
+   }
+
+   @Override
+   public String toString() {
+      return "PartitionedIdGenerator { partition=" + partition
+             + ", partitions=" + partitions
+             + ", blockSize=" + blockSize + " }";
+   }
+
+   private static class Block {
+      private long next;
+      private long end;
+   }
+}
@@ -8,16 +8,45 @@ public class PayloadPacket extends Packet {
    private static final long serialVersionUID = 3100740666396486617L;
 
    private final Object payload;
+   // The payload as serialized by the channel, that measured its size, not part of the serialized packet
+   private final transient PayloadSerializer serializer;
+   private final transient byte[] serialized;
 
    public PayloadPacket(long channelId, Object payload) {
+      this(channelId, payload, null, null);
+   }
+
+   /**
+    * Creates a payload packet, that keeps the serialized form of its payload,
+    * so a codec with the same serializer does not serialize the payload again.
+    *
+    * @param channelId The id of the channel
+    * @param payload The payload
+    * @param serializer The serializer, that serialized the payload
+    * @param serialized The serialized payload
+    */
+   PayloadPacket(long channelId, Object payload, PayloadSerializer serializer, byte[] serialized) {
       super(channelId);
       this.payload = payload;
+      this.serializer = serializer;
+      this.serialized = serialized;
    }
 
    public Object getPayload() {
       return payload;
    }
 
+   /**
+    * Get the serialized payload, if it has been serialized by an equal serializer.
+    *
+    * @param serializer The serializer, that would serialize the payload
+    *
+    * @return The serialized payload or <code>null</code>
+    */
+   byte[] getSerialized(PayloadSerializer serializer) {
+      return serialized != null && serializer.equals(this.serializer) ? serialized : null;
+   }
+
    @Override
    public String toString() {
       return "PayloadPacket { channelID=" + channelId + ", payload=" + payload + "}";
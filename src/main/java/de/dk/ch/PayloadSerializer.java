@@ -0,0 +1,39 @@
+package de.dk.ch;
+
+import java.io.IOException;
+
+/**
+ * Converts the payloads of packets into bytes and back.
+ * The {@link BinaryPacketCodec} writes <code>byte[]</code> and <code>String</code> payloads itself
+ * and uses a <code>PayloadSerializer</code> for every other payload.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see JavaPayloadSerializer
+ */
+public interface PayloadSerializer {
+   /**
+    * Serializes the given <code>payload</code>.
+    *
+    * @param payload The payload to be serialized (never <code>null</code>)
+    *
+    * @return The serialized payload
+    *
+    * @throws IOException If the payload could not be serialized
+    */
+   public byte[] serialize(Object payload) throws IOException;
+
+   /**
+    * Deserializes a payload.
+    *
+    * @param data The array that contains the serialized payload
+    * @param offset The offset of the serialized payload in <code>data</code>
+    * @param length The length of the serialized payload
+    *
+    * @return The deserialized payload
+    *
+    * @throws IOException If the payload could not be deserialized
+    */
+   public Object deserialize(byte[] data, int offset, int length) throws IOException;
+}
@@ -0,0 +1,51 @@
+package de.dk.ch;
+
+import static de.dk.ch.ChannelPacket.ChannelPacketType.PING;
+import static de.dk.ch.ChannelPacket.ChannelPacketType.PONG;
+
+/**
+ * A connection level packet to measure the round trip time and to detect a dead peer.
+ * A <code>PING</code> carries the <code>System.nanoTime()</code> of the sender,
+ * the other side echoes it with a <code>PONG</code>, so the round trip is measured with a single clock.
+ * Ping packets belong to no channel, their channel id is {@link #CONNECTION_ID}.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer#setPingInterval(long)
+ */
+public class PingPacket extends ChannelPacket {
+   private static final long serialVersionUID = -3404977467392745580L;
+
+   /**
+    * The channel id of a ping packet.
+    */
+   public static final long CONNECTION_ID = 0;
+
+   private final long timestamp;
+
+   /**
+    * Creates a new ping packet.
+    *
+    * @param type Either <code>PING</code> or <code>PONG</code>
+    * @param timestamp The <code>System.nanoTime()</code> of the side, that sent the ping
+    *
+    * @throws IllegalArgumentException If the <code>type</code> is neither <code>PING</code> nor <code>PONG</code>
+    */
+   public PingPacket(ChannelPacketType type, long timestamp) throws IllegalArgumentException {
+      super(CONNECTION_ID, type);
+      if (type != PING && type != PONG)
+         throw new IllegalArgumentException("A ping packet is either a PING or a PONG: " + type);
+
+      this.timestamp = timestamp;
+   }
+
+   public long getTimestamp() {
+      return timestamp;
+   }
+
+   @Override
+   public String toString() {
+      return "PingPacket {type=" + getPacketType() + ", timestamp=" + timestamp + "}";
+   }
+}
@@ -0,0 +1,61 @@
+package de.dk.ch;
+
+/**
+ * Estimates the round trip time of a connection from its samples like TCP does (RFC 6298).
+ * The smoothed round trip time follows each sample by 1/8, the variation by 1/4 of the deviation.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+class RttEstimator {
+   private volatile long smoothed;
+   private volatile long variation;
+
+   RttEstimator() {
+
+   }
+
+   /**
+    * Adds a measured round trip time.
+    *
+    * @param rtt The round trip time in nanoseconds
+    */
+   synchronized void sample(long rtt) {
+      if (rtt < 0)
+         return;
+
+      if (smoothed == 0) {
+         this.variation = rtt / 2;
+         this.smoothed = Math.max(rtt, 1);
+         return;
+      }
+
+      this.variation = variation - (variation >> 2) + (Math.abs(smoothed - rtt) >> 2);
+      this.smoothed = Math.max(smoothed - (smoothed >> 3) + (rtt >> 3), 1);
+   }
+
+   /**
+    * @return The smoothed round trip time in nanoseconds or 0 if nothing has been measured yet
+    */
+   long getSmoothed() {
+      return smoothed;
+   }
+
+   /**
+    * @return The variation of the round trip time in nanoseconds
+    */
+   long getVariation() {
+      return variation;
+   }
+
+   /**
+    * Get the time to wait for a response, that would be exceeded by chance only rarely.
+    *
+    * @return The smoothed round trip time plus four times its variation in nanoseconds
+    * or 0 if nothing has been measured yet
+    */
+   long getTimeout() {
+      long smoothed = this.smoothed;
+      return smoothed == 0 ? 0 : smoothed + 4 * variation;
+   }
+}
@@ -0,0 +1,106 @@
+package de.dk.ch;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The credit of a channel to send messages to the other side.
+ * Each sent message costs one credit, the other side grants new credit with {@link WindowUpdatePacket}s.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+class SendWindow {
+   private final AtomicInteger credit;
+   private final long timeout;
+   private volatile boolean closed;
+
+   /**
+    * @param credit The initial credit
+    * @param timeout The maximum time in milliseconds to wait for credit.
+    * 0 to fail immediately, a negative value to wait indefinitely
+    */
+   SendWindow(int credit, long timeout) {
+      this.credit = new AtomicInteger(credit);
+      this.timeout = timeout;
+   }
+
+   private boolean tryAcquire() {
+      for (int current = credit.get(); current > 0; current = credit.get()) {
+         if (credit.compareAndSet(current, current - 1))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Takes one credit, waits for new credit if there is none left.
+    *
+    * @throws ClosedException If the channel is closed while waiting for credit
+    * @throws FlowControlException If no credit was granted within the timeout
+    * @throws InterruptedIOException If the thread is interrupted while waiting for credit
+    */
+   void acquire() throws ClosedException, FlowControlException, InterruptedIOException {
+      if (tryAcquire())
+         return;
+
+      if (closed)
+         throw closedException();
+
+      if (timeout == 0)
+         throw new FlowControlException("The window of the channel is exhausted.");
+
+      long deadline = System.currentTimeMillis() + timeout;
+      synchronized (this) {
+         while (!tryAcquire()) {
+            if (closed)
+               throw closedException();
+
+            long remaining = timeout < 0 ? 0 : deadline - System.currentTimeMillis();
+            if (timeout > 0 && remaining <= 0)
+               throw new FlowControlException("No credit to send through the channel was granted within " + timeout + "ms.");
+
+            try {
+               wait(remaining);
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new InterruptedIOException("Interrupted while waiting for credit.");
+            }
+         }
+      }
+   }
+
+   /**
+    * Takes one credit, even if there is none left.
+    * Used for messages, that have been queued before the window was known.
+    */
+   void consume() {
+      credit.decrementAndGet();
+   }
+
+   void release(int credit) {
+      this.credit.addAndGet(credit);
+      synchronized (this) {
+         notifyAll();
+      }
+   }
+
+   /**
+    * Wakes up all senders waiting for credit, they fail with a <code>ClosedException</code>.
+    * Called when the channel is closed.
+    */
+   void close() {
+      this.closed = true;
+      synchronized (this) {
+         notifyAll();
+      }
+   }
+
+   private static ClosedException closedException() {
+      return new ClosedException("The channel has been closed while waiting for credit.");
+   }
+
+   int getCredit() {
+      return credit.get();
+   }
+}
@@ -0,0 +1,68 @@
+package de.dk.ch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A packet codec that writes the packets with the java serialization.
+ * Each frame consists of a 4 byte length followed by the serialized packet.
+ * This codec is the fallback for packets and payloads the {@link BinaryPacketCodec} cannot handle.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class SerializingPacketCodec implements PacketCodec {
+   private static final int LENGTH_SIZE = Integer.BYTES;
+
+   public SerializingPacketCodec() {
+
+   }
+
+   @Override
+   public ByteBuffer encode(Packet packet) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+         out.writeObject(packet);
+      }
+      ByteBuffer frame = ByteBuffer.allocate(LENGTH_SIZE + bytes.size());
+      frame.putInt(bytes.size())
+           .put(bytes.toByteArray())
+           .flip();
+
+      return frame;
+   }
+
+   @Override
+   public Packet decode(ByteBuffer buffer) throws IOException {
+      if (buffer.remaining() < LENGTH_SIZE)
+         return null;
+
+      int start = buffer.position();
+      int length = buffer.getInt(start);
+      if (length < 0)
+         throw new IOException("Corrupt frame with negative length " + length);
+
+      if (buffer.remaining() < LENGTH_SIZE + length)
+         return null;
+
+      byte[] data = new byte[length];
+      buffer.position(start + LENGTH_SIZE);
+      buffer.get(data);
+
+      Object object;
+      try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+         object = in.readObject();
+      } catch (ClassNotFoundException e) {
+         throw new IOException("Could not deserialize packet.", e);
+      }
+
+      if (!(object instanceof Packet))
+         throw new IOException("Frame did not contain a packet: " + object);
+
+      return (Packet) object;
+   }
+}
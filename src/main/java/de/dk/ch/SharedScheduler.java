@@ -0,0 +1,58 @@
+package de.dk.ch;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the single scheduler thread, that is shared by all the timed tasks of this library.
+ * Scheduled tasks must be short and must not block.
+ * A timed task, that has to send, hands the sending over to the worker threads,
+ * so a blocking sender does not delay the other timed tasks.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+final class SharedScheduler {
+   private static final ScheduledExecutorService SCHEDULER = create();
+   private static final ExecutorService WORKER = createWorker();
+
+   private SharedScheduler() {
+
+   }
+
+   private static ScheduledExecutorService create() {
+      ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, task -> {
+         Thread thread = new Thread(task, "multiplex-scheduler");
+         thread.setDaemon(true);
+         return thread;
+      });
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+   }
+
+   private static ExecutorService createWorker() {
+      AtomicInteger count = new AtomicInteger();
+      return Executors.newCachedThreadPool(task -> {
+         Thread thread = new Thread(task, "multiplex-worker-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      });
+   }
+
+   static ScheduledExecutorService get() {
+      return SCHEDULER;
+   }
+
+   /**
+    * Get the worker threads for the blocking work of timed tasks.
+    * The threads are created on demand and end after they have been idle for a minute.
+    *
+    * @return The executor of the worker threads
+    */
+   static ExecutorService worker() {
+      return WORKER;
+   }
+}
@@ -1,17 +1,22 @@
 package de.dk.ch;
 
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A simple id generator that generates ids from <code>Long.MIN_VALUE</code> to <code>Long.MAX_VALUE</code>
  * or vice versa.
+ * The generator is thread-safe, but all threads increment the same counter.
+ * Both sides of a connection should count in different directions, so their ids do not collide.
  *
  * @author David Koettlitz
  * <br>Erstellt am 14.07.2017
+ *
+ * @see PartitionedIdGenerator
  */
 public class SimpleIterativeIdGenerator implements IDGenerator {
    private final boolean incrementing;
-   private long idCounter;
+   private final AtomicLong idCounter;
 
    /**
     * Creates a new simple id generator that generates ids from <code>Long.MIN_VALUE</code>
@@ -31,15 +36,20 @@ public class SimpleIterativeIdGenerator implements IDGenerator {
     */
    public SimpleIterativeIdGenerator(boolean incrementing) {
       this.incrementing = incrementing;
-      this.idCounter = incrementing ? Long.MIN_VALUE : Long.MAX_VALUE;
+      this.idCounter = new AtomicLong(incrementing ? Long.MIN_VALUE : Long.MAX_VALUE);
    }
 
    @Override
    public long nextId() throws NoSuchElementException {
-      if (idCounter == (incrementing ? Long.MAX_VALUE : Long.MIN_VALUE))
-         throw new NoSuchElementException();
+      long last = incrementing ? Long.MAX_VALUE : Long.MIN_VALUE;
+      while (true) {
+         long id = idCounter.get();
+         if (id == last)
+            throw new NoSuchElementException();
 
-      return incrementing ? idCounter++ : idCounter--;
+         if (idCounter.compareAndSet(id, incrementing ? id + 1 : id - 1))
+            return id;
+      }
    }
 
    public boolean isIncrementing() {
@@ -50,7 +60,8 @@ public class SimpleIterativeIdGenerator implements IDGenerator {
    public int hashCode() {
       final int prime = 31;
       int result = 1;
-      result = prime * result + (int) (this.idCounter ^ (this.idCounter >>> 32));
+      long idCounter = this.idCounter.get();
+      result = prime * result + (int) (idCounter ^ (idCounter >>> 32));
       result = prime * result + (this.incrementing ? 1231 : 1237);
       return result;
    }
@@ -64,7 +75,7 @@ public class SimpleIterativeIdGenerator implements IDGenerator {
       if (getClass() != obj.getClass())
          return false;
       SimpleIterativeIdGenerator other = (SimpleIterativeIdGenerator) obj;
-      if (this.idCounter != other.idCounter)
+      if (this.idCounter.get() != other.idCounter.get())
          return false;
       if (this.incrementing != other.incrementing)
          return false;
@@ -73,6 +84,6 @@ public class SimpleIterativeIdGenerator implements IDGenerator {
 
    @Override
    public String toString() {
-      return "SimpleIterativeIdGenerator { idCounter=" + idCounter + ", incrementing=" + incrementing + " }";
+      return "SimpleIterativeIdGenerator { idCounter=" + idCounter.get() + ", incrementing=" + incrementing + " }";
    }
 }
\ No newline at end of file
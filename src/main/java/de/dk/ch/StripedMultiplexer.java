@@ -0,0 +1,442 @@
+package de.dk.ch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One logical multiplexer over several connections, the stripes.
+ * Each stripe is a {@link Multiplexer} with its own {@link Sender}, so the channels do not share
+ * one congestion window and one writing thread. Each channel lives on one stripe,
+ * so the messages of a channel keep their order. A new channel is placed on a stripe by its {@link Striping}.
+ * The stripes draw their ids from one id generator and skip the ids in use on any stripe.
+ * A stripe refuses a request of the other side for an id, that is in use on any stripe.
+ * Two requests for the same id, that arrive on two stripes at the same time, may still both be accepted,
+ * so both sides should generate ids of their own partition (see {@link PartitionedIdGenerator}).
+ * {@link #getChannel(int, long)} finds a channel unambiguously in any case.
+ * The packets received from the connection of stripe <code>i</code> must be passed to {@link #getStripe(int)}:
+ *
+ * <pre>
+ * StripedMultiplexer multiplexer = new StripedMultiplexer(new PartitionedIdGenerator(false),
+ *                                                         Arrays.asList(senderA, senderB),
+ *                                                         handlers);
+ * connectionA.setReceiver(multiplexer.getStripe(0));
+ * connectionB.setReceiver(multiplexer.getStripe(1));
+ * </pre>
+ *
+ * The other side is usually a <code>StripedMultiplexer</code> over the same connections in the same order.
+ * Other settings, like the flow control or the idle timeout, are set on each stripe.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Multiplexer
+ */
+public class StripedMultiplexer implements Closeable {
+   // The golden ratio spreads consecutive ids, even the ones of a partition, over the stripes
+   private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+   private final IDGenerator idGenerator;
+   private final Multiplexer[] stripes;
+   // The id drawn for the stripe, that a channel is opened on by hash, handed over to the id generator of the stripe
+   private final ThreadLocal<Long> reserved = new ThreadLocal<>();
+
+   private volatile Striping striping = Striping.HASH;
+
+   /**
+    * Creates a new striped multiplexer with one stripe per sender.
+    *
+    * @param idGenerator The id generator to generate the ids of the channels of all stripes
+    * @param senders The senders of the stripes
+    * @param handlers The channel handlers to handle new channel requests and closing of channels of all stripes
+    *
+    * @throws IllegalArgumentException If no sender is given
+    */
+   public StripedMultiplexer(IDGenerator idGenerator,
+                             List<? extends Sender> senders,
+                             ChannelHandler<?>... handlers) throws IllegalArgumentException {
+      if (senders.isEmpty())
+         throw new IllegalArgumentException("A striped multiplexer needs at least one sender.");
+
+      this.idGenerator = Objects.requireNonNull(idGenerator);
+      this.stripes = new Multiplexer[senders.size()];
+      for (int i = 0; i < stripes.length; i++) {
+         stripes[i] = new Multiplexer(this::stripeId, senders.get(i), handlers);
+         stripes[i].setSharedIds(this::isInUse);
+      }
+   }
+
+   private long stripeId() {
+      Long id = reserved.get();
+      if (id != null) {
+         reserved.remove();
+         return id;
+      }
+
+      return nextId();
+   }
+
+   private long nextId() {
+      long id = idGenerator.nextId();
+      while (isInUse(id))
+         id = idGenerator.nextId();
+
+      return id;
+   }
+
+   private boolean isInUse(long id) {
+      for (Multiplexer stripe : stripes) {
+         if (stripe.isInUseLocally(id))
+            return true;
+      }
+      return false;
+   }
+
+   private int stripeOf(long id) {
+      return (int) (((id * HASH_MULTIPLIER) >>> 32) % stripes.length);
+   }
+
+   /**
+    * Chooses the stripe for a new channel.
+    * If the channel is placed by hash, its id is reserved for the current thread, until {@link #release()}.
+    */
+   private Multiplexer reserveStripe() {
+      if (stripes.length == 1)
+         return stripes[0];
+
+      if (striping == Striping.LEAST_LOADED) {
+         Multiplexer least = stripes[0];
+         int leastLoad = Integer.MAX_VALUE;
+         for (Multiplexer stripe : stripes) {
+            int load = stripe.getChannelCount() + stripe.getPendingRequestCount();
+            if (load < leastLoad) {
+               least = stripe;
+               leastLoad = load;
+            }
+         }
+         return least;
+      }
+
+      long id = nextId();
+      reserved.set(id);
+      return stripes[stripeOf(id)];
+   }
+
+   private void release() {
+      reserved.remove();
+   }
+
+   /**
+    * Establishes a new channel on one of the stripes.
+    * See {@link Multiplexer#establishNewChannel(Class, long, Object, ChannelOptions)} for details.
+    *
+    * @param type The type of the new channel
+    * @param timeout The timeout in milliseconds for the request
+    * @param initialMsg An optional initial message to send with the request
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new established channel in <code>OPEN</code> state
+    *
+    * @throws IOException If an I/O error occurs while establishing a new channel
+    * @throws ClosedException if this multiplexer has already been closed
+    * @throws ChannelDeclinedException If the "other side" refuses to open the channel
+    * @throws InterruptedException If the thread is interrupted while waiting for the channel to be established
+    * @throws TimeoutException If the given <code>timeout</code> is reached before a new channel could be established
+    */
+   public <T> Channel<T> establishNewChannel(Class<T> type,
+                                             long timeout,
+                                             T initialMsg,
+                                             ChannelOptions options) throws IOException,
+                                                                            ClosedException,
+                                                                            ChannelDeclinedException,
+                                                                            InterruptedException,
+                                                                            TimeoutException {
+      Multiplexer stripe = reserveStripe();
+      try {
+         return stripe.establishNewChannel(type, timeout, initialMsg, options);
+      } finally {
+         release();
+      }
+   }
+
+   /**
+    * Establishes a new channel on one of the stripes.
+    * See {@link Multiplexer#establishNewChannel(Class, long, Object)} for details.
+    *
+    * @param type The type of the new channel
+    * @param timeout The timeout in milliseconds for the request
+    * @param initialMsg An optional initial message to send with the request
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new established channel in <code>OPEN</code> state
+    *
+    * @throws IOException If an I/O error occurs while establishing a new channel
+    * @throws ClosedException if this multiplexer has already been closed
+    * @throws ChannelDeclinedException If the "other side" refuses to open the channel
+    * @throws InterruptedException If the thread is interrupted while waiting for the channel to be established
+    * @throws TimeoutException If the given <code>timeout</code> is reached before a new channel could be established
+    */
+   public <T> Channel<T> establishNewChannel(Class<T> type,
+                                             long timeout,
+                                             T initialMsg) throws IOException,
+                                                                  ClosedException,
+                                                                  ChannelDeclinedException,
+                                                                  InterruptedException,
+                                                                  TimeoutException {
+      return establishNewChannel(type, timeout, initialMsg, null);
+   }
+
+   /**
+    * Establishes a new channel on one of the stripes.
+    * See {@link Multiplexer#establishNewChannel(Class, long)} for details.
+    *
+    * @param type The type of the new channel
+    * @param timeout The timeout in milliseconds for the request
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new established channel in <code>OPEN</code> state
+    *
+    * @throws IOException If an I/O error occurs while establishing a new channel
+    * @throws ClosedException if this multiplexer has already been closed
+    * @throws ChannelDeclinedException If the "other side" refuses to open the channel
+    * @throws InterruptedException If the thread is interrupted while waiting for the channel to be established
+    * @throws TimeoutException If the given <code>timeout</code> is reached before a new channel could be established
+    */
+   public <T> Channel<T> establishNewChannel(Class<T> type,
+                                             long timeout) throws IOException,
+                                                                  ClosedException,
+                                                                  ChannelDeclinedException,
+                                                                  InterruptedException,
+                                                                  TimeoutException {
+      return establishNewChannel(type, timeout, null);
+   }
+
+   /**
+    * Asynchronously establishes a new channel on one of the stripes.
+    * See {@link Multiplexer#openAsync(Class, Object, Duration, ChannelOptions)} for details.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param timeout The timeout for the request or <code>null</code> to wait indefinitely
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return A future, that is completed with the new channel in <code>OPEN</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> CompletableFuture<Channel<T>> openAsync(Class<T> type,
+                                                      T initialMsg,
+                                                      Duration timeout,
+                                                      ChannelOptions options) throws ClosedException {
+      Multiplexer stripe = reserveStripe();
+      try {
+         return stripe.openAsync(type, initialMsg, timeout, options);
+      } finally {
+         release();
+      }
+   }
+
+   /**
+    * Asynchronously establishes a new channel on one of the stripes.
+    * See {@link Multiplexer#openAsync(Class, Object, Duration)} for details.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param timeout The timeout for the request or <code>null</code> to wait indefinitely
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return A future, that is completed with the new channel in <code>OPEN</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> CompletableFuture<Channel<T>> openAsync(Class<T> type, T initialMsg, Duration timeout) throws ClosedException {
+      return openAsync(type, initialMsg, timeout, null);
+   }
+
+   /**
+    * Opens a new channel on one of the stripes without waiting for the other side.
+    * See {@link Multiplexer#openPipelined(Class, Object, ChannelOptions)} for details.
+    *
+    * @param type The type of the new channel
+    * @param initialMsg An optional initial message to send with the request
+    * @param options The options of the new channel or <code>null</code> for the default options
+    * @param <T> The type of the messages that go through the channel
+    *
+    * @return The new channel in <code>OPENING</code> state
+    *
+    * @throws ClosedException if this multiplexer has already been closed
+    */
+   public <T> Channel<T> openPipelined(Class<T> type, T initialMsg, ChannelOptions options) throws ClosedException {
+      Multiplexer stripe = reserveStripe();
+      try {
+         return stripe.openPipelined(type, initialMsg, options);
+      } finally {
+         release();
+      }
+   }
+
+   /**
+    * Get the channel with the given <code>id</code> of any stripe.
+    * If two stripes accepted channels of the same id at the same time (see above),
+    * the one of the stripe, the id hashes to, is returned.
+    *
+    * @param id The id of the channel
+    *
+    * @return The channel with the given <code>id</code> if present -
+    * <code>null</code> otherwise
+    *
+    * @see #getChannel(int, long)
+    */
+   public Channel<?> getChannel(long id) {
+      // A channel opened by hash is found on the first try
+      Channel<?> channel = stripes[stripeOf(id)].getChannel(id);
+      if (channel != null)
+         return channel;
+
+      for (Multiplexer stripe : stripes) {
+         channel = stripe.getChannel(id);
+         if (channel != null)
+            return channel;
+      }
+      return null;
+   }
+
+   /**
+    * Get the channel with the given <code>id</code> of the stripe with the given <code>index</code>.
+    *
+    * @param index The index of the stripe
+    * @param id The id of the channel
+    *
+    * @return The channel with the given <code>id</code> if present on that stripe -
+    * <code>null</code> otherwise
+    *
+    * @throws IndexOutOfBoundsException If there is no stripe with that <code>index</code>
+    */
+   public Channel<?> getChannel(int index, long id) throws IndexOutOfBoundsException {
+      return stripes[index].getChannel(id);
+   }
+
+   /**
+    * Add a channel handler to all stripes.
+    * See {@link Multiplexer#addHandler(ChannelHandler)} for details.
+    *
+    * @param handler The handler to handle channel requests of the handlers type
+    */
+   public void addHandler(ChannelHandler<?> handler) {
+      for (Multiplexer stripe : stripes)
+         stripe.addHandler(handler);
+   }
+
+   /**
+    * Removes a handler from all stripes.
+    *
+    * @param handler The handler to be removed
+    */
+   public void removeHandler(ChannelHandler<?> handler) {
+      removeHandler(handler.getType());
+   }
+
+   /**
+    * Removes a handler from all stripes by its type.
+    *
+    * @param type The type of the handler to be removed.
+    */
+   public void removeHandler(Class<?> type) {
+      for (Multiplexer stripe : stripes)
+         stripe.removeHandler(type);
+   }
+
+   /**
+    * Set how new channels are placed on the stripes.
+    * The default is {@link Striping#HASH}.
+    *
+    * @param striping The striping of new channels
+    */
+   public void setStriping(Striping striping) {
+      this.striping = Objects.requireNonNull(striping);
+   }
+
+   public Striping getStriping() {
+      return striping;
+   }
+
+   /**
+    * Get the stripe with the given <code>index</code>, that receives the packets of the connection of its sender.
+    *
+    * @param index The index of the stripe, the index of its sender
+    *
+    * @return The stripe
+    *
+    * @throws IndexOutOfBoundsException If there is no stripe with that <code>index</code>
+    */
+   public Multiplexer getStripe(int index) throws IndexOutOfBoundsException {
+      return stripes[index];
+   }
+
+   /**
+    * Get all the stripes, in the order of their senders.
+    *
+    * @return An unmodifiable list of the stripes
+    */
+   public List<Multiplexer> getStripes() {
+      return Collections.unmodifiableList(Arrays.asList(stripes));
+   }
+
+   public int getStripeCount() {
+      return stripes.length;
+   }
+
+   /**
+    * Get the number of open channels of all stripes.
+    *
+    * @return The number of channels
+    */
+   public int getChannelCount() {
+      int count = 0;
+      for (Multiplexer stripe : stripes)
+         count += stripe.getChannelCount();
+
+      return count;
+   }
+
+   /**
+    * Closes all stripes and all of their channels.
+    */
+   @Override
+   public void close() {
+      for (Multiplexer stripe : stripes)
+         stripe.close();
+   }
+
+   public boolean isClosed() {
+      for (Multiplexer stripe : stripes) {
+         if (!stripe.isClosed())
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * How new channels are placed on the stripes.
+    */
+   public static enum Striping {
+      /**
+       * A channel is placed by the hash of its id.
+       * The channels are spread evenly and a channel is found without searching the stripes.
+       */
+      HASH,
+      /**
+       * A channel is placed on the stripe with the fewest channels, including the ones still opening.
+       * Evens out the stripes, if many channels are closed on some of them.
+       */
+      LEAST_LOADED;
+   }
+}
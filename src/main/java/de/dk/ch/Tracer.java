@@ -0,0 +1,137 @@
+package de.dk.ch;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the lifecycle and the traffic of the channels as JDK Flight Recorder events.
+ * The <code>JfrTracer</code> is loaded reflectively, so the multiplexer still runs on a JVM without JFR,
+ * or with the system property <code>de.dk.ch.jfr=false</code>, with a tracer, that records nothing.
+ * A method starting a trace returns <code>null</code>, if its event is not recorded right now,
+ * the caller only finishes traces, that are not <code>null</code>.
+ * So a disabled event costs a call, that is inlined, and a flag check.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+interface Tracer {
+   /**
+    * The tracer, that records nothing.
+    */
+   public static final Tracer NOOP = new Tracer() {};
+
+   /**
+    * The tracer of the multiplexers and channels.
+    */
+   public static final Tracer TRACER = load();
+
+   static Tracer load() {
+      if (!Boolean.parseBoolean(System.getProperty("de.dk.ch.jfr", "true")))
+         return NOOP;
+
+      try {
+         return (Tracer) Class.forName("de.dk.ch.JfrTracer")
+                              .getDeclaredConstructor()
+                              .newInstance();
+      } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+         LoggerFactory.getLogger(Tracer.class)
+                      .debug("JDK Flight Recorder is not available, the channels are not traced.", e);
+         return NOOP;
+      }
+   }
+
+   /**
+    * Starts the trace of a channel, that is being opened by this side.
+    *
+    * @return The trace or <code>null</code>
+    */
+   public default Object openStarted() {
+      return null;
+   }
+
+   /**
+    * @param trace The trace returned by {@link #openStarted()}
+    * @param channelId The id of the channel
+    * @param type The type of the channel
+    * @param failure The reason why the channel was not opened or <code>null</code> if it has been opened
+    */
+   public default void openFinished(Object trace, long channelId, Class<?> type, Throwable failure) {
+
+   }
+
+   /**
+    * Starts the trace of a request of the other side, that is being handled.
+    *
+    * @return The trace or <code>null</code>
+    */
+   public default Object requestStarted() {
+      return null;
+   }
+
+   /**
+    * @param trace The trace returned by {@link #requestStarted()}
+    * @param channelId The id of the requested channel
+    * @param type The type of the requested channel
+    * @param accepted Whether the channel has been accepted
+    */
+   public default void requestHandled(Object trace, long channelId, Class<?> type, boolean accepted) {
+
+   }
+
+   /**
+    * @param channelId The id of the closed channel
+    */
+   public default void channelClosed(long channelId) {
+
+   }
+
+   /**
+    * Starts the trace of a packet, that is being sent. Not every packet is traced.
+    *
+    * @return The trace or <code>null</code>
+    */
+   public default Object sendStarted() {
+      return null;
+   }
+
+   /**
+    * @param trace The trace returned by {@link #sendStarted()}
+    * @param packet The sent packet
+    */
+   public default void packetSent(Object trace, Packet packet) {
+
+   }
+
+   /**
+    * Starts the trace of a packet, that is being received. Not every packet is traced.
+    *
+    * @return The trace or <code>null</code>
+    */
+   public default Object receiveStarted() {
+      return null;
+   }
+
+   /**
+    * @param trace The trace returned by {@link #receiveStarted()}
+    * @param packet The received packet
+    */
+   public default void packetReceived(Object trace, Packet packet) {
+
+   }
+
+   /**
+    * Starts the trace of a message being delivered to the listeners of a channel.
+    *
+    * @return The trace or <code>null</code>
+    */
+   public default Object listenerStarted() {
+      return null;
+   }
+
+   /**
+    * @param trace The trace returned by {@link #listenerStarted()}
+    * @param channelId The id of the channel
+    */
+   public default void listenerFinished(Object trace, long channelId) {
+
+   }
+}
@@ -0,0 +1,29 @@
+package de.dk.ch;
+
+import static de.dk.ch.ChannelPacket.ChannelPacketType.WINDOW_UPDATE;
+
+/**
+ * Grants the other side of a channel credit to send more messages through the channel.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class WindowUpdatePacket extends ChannelPacket {
+   private static final long serialVersionUID = 2873565306735092046L;
+
+   private final int credit;
+
+   public WindowUpdatePacket(long channelId, int credit) {
+      super(channelId, WINDOW_UPDATE);
+      this.credit = credit;
+   }
+
+   public int getCredit() {
+      return credit;
+   }
+
+   @Override
+   public String toString() {
+      return "WindowUpdatePacket {channelID=" + channelId + ", credit=" + credit + "}";
+   }
+}
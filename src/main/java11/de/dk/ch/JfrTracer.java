@@ -0,0 +1,216 @@
+package de.dk.ch;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The tracer, that records JDK Flight Recorder events.
+ * Whether an event is recorded is looked up in its event type, so no event is created while it is disabled.
+ * Only one of <code>de.dk.ch.jfr.packetSampling</code> packets (16 by default) is traced,
+ * its event is recorded, if it took longer than the threshold of the event.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ *
+ * @see Tracer
+ */
+class JfrTracer implements Tracer {
+   private static final String CATEGORY = "Multiplexer";
+
+   private final EventType open = EventType.getEventType(ChannelOpenEvent.class);
+   private final EventType request = EventType.getEventType(ChannelRequestEvent.class);
+   private final EventType closed = EventType.getEventType(ChannelClosedEvent.class);
+   private final EventType sent = EventType.getEventType(PacketSentEvent.class);
+   private final EventType received = EventType.getEventType(PacketReceivedEvent.class);
+   private final EventType listener = EventType.getEventType(SlowListenerEvent.class);
+   private final int packetSampling = Math.max(1, Integer.getInteger("de.dk.ch.jfr.packetSampling", 16));
+
+   JfrTracer() {
+
+   }
+
+   private static String outcomeOf(Throwable failure) {
+      if (failure == null)
+         return "accepted";
+      if (failure instanceof ChannelDeclinedException)
+         return "declined";
+      if (failure instanceof TimeoutException)
+         return "timed out";
+
+      return failure.getClass().getSimpleName();
+   }
+
+   private static <E extends Event> E begin(E event) {
+      event.begin();
+      return event;
+   }
+
+   private boolean sample() {
+      return packetSampling == 1 || ThreadLocalRandom.current().nextInt(packetSampling) == 0;
+   }
+
+   @Override
+   public Object openStarted() {
+      return open.isEnabled() ? begin(new ChannelOpenEvent()) : null;
+   }
+
+   @Override
+   public void openFinished(Object trace, long channelId, Class<?> type, Throwable failure) {
+      ChannelOpenEvent event = (ChannelOpenEvent) trace;
+      event.channelId = channelId;
+      event.type = type.getName();
+      event.outcome = outcomeOf(failure);
+      event.commit();
+   }
+
+   @Override
+   public Object requestStarted() {
+      return request.isEnabled() ? begin(new ChannelRequestEvent()) : null;
+   }
+
+   @Override
+   public void requestHandled(Object trace, long channelId, Class<?> type, boolean accepted) {
+      ChannelRequestEvent event = (ChannelRequestEvent) trace;
+      event.channelId = channelId;
+      event.type = type == null ? null : type.getName();
+      event.accepted = accepted;
+      event.commit();
+   }
+
+   @Override
+   public void channelClosed(long channelId) {
+      if (!closed.isEnabled())
+         return;
+
+      ChannelClosedEvent event = new ChannelClosedEvent();
+      event.channelId = channelId;
+      event.commit();
+   }
+
+   @Override
+   public Object sendStarted() {
+      return sent.isEnabled() && sample() ? begin(new PacketSentEvent()) : null;
+   }
+
+   @Override
+   public void packetSent(Object trace, Packet packet) {
+      PacketSentEvent event = (PacketSentEvent) trace;
+      event.end();
+      if (event.shouldCommit()) {
+         event.channelId = packet.channelId;
+         event.packetType = MultiplexerMetrics.typeName(packet);
+         event.commit();
+      }
+   }
+
+   @Override
+   public Object receiveStarted() {
+      return received.isEnabled() && sample() ? begin(new PacketReceivedEvent()) : null;
+   }
+
+   @Override
+   public void packetReceived(Object trace, Packet packet) {
+      PacketReceivedEvent event = (PacketReceivedEvent) trace;
+      event.end();
+      if (event.shouldCommit()) {
+         event.channelId = packet.channelId;
+         event.packetType = MultiplexerMetrics.typeName(packet);
+         event.commit();
+      }
+   }
+
+   @Override
+   public Object listenerStarted() {
+      return listener.isEnabled() ? begin(new SlowListenerEvent()) : null;
+   }
+
+   @Override
+   public void listenerFinished(Object trace, long channelId) {
+      SlowListenerEvent event = (SlowListenerEvent) trace;
+      event.end();
+      if (event.shouldCommit()) {
+         event.channelId = channelId;
+         event.commit();
+      }
+   }
+
+   @Name("de.dk.ch.ChannelOpen")
+   @Label("Channel Open")
+   @Category(CATEGORY)
+   @Description("A channel opened by this side, from sending the request until the response")
+   static class ChannelOpenEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+      @Label("Type")
+      String type;
+      @Label("Outcome")
+      String outcome;
+   }
+
+   @Name("de.dk.ch.ChannelRequest")
+   @Label("Channel Request")
+   @Category(CATEGORY)
+   @Description("A request of the other side to open a channel, handled by the channel handler")
+   static class ChannelRequestEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+      @Label("Type")
+      String type;
+      @Label("Accepted")
+      boolean accepted;
+   }
+
+   @Name("de.dk.ch.ChannelClosed")
+   @Label("Channel Closed")
+   @Category(CATEGORY)
+   @Description("A channel closed by either side")
+   static class ChannelClosedEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+   }
+
+   @Name("de.dk.ch.PacketSent")
+   @Label("Packet Sent")
+   @Category(CATEGORY)
+   @Description("A sampled packet, that took long to be handed to the sender")
+   @Threshold("1 ms")
+   @StackTrace(false)
+   static class PacketSentEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+      @Label("Packet Type")
+      String packetType;
+   }
+
+   @Name("de.dk.ch.PacketReceived")
+   @Label("Packet Received")
+   @Category(CATEGORY)
+   @Description("A sampled packet, that took long to be handled by the multiplexer")
+   @Threshold("1 ms")
+   @StackTrace(false)
+   static class PacketReceivedEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+      @Label("Packet Type")
+      String packetType;
+   }
+
+   @Name("de.dk.ch.SlowListener")
+   @Label("Slow Listener")
+   @Category(CATEGORY)
+   @Description("The listeners of a channel took long for a message")
+   @Threshold("10 ms")
+   static class SlowListenerEvent extends Event {
+      @Label("Channel Id")
+      long channelId;
+   }
+}
@@ -0,0 +1,126 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class BatchOpenTest {
+   private static final int COUNT = 100;
+
+   private final AtomicInteger sentByA = new AtomicInteger();
+   private final AtomicInteger sentByB = new AtomicInteger();
+   private final AtomicInteger requested = new AtomicInteger();
+   private volatile boolean linkBrokenAfterRequests;
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+
+   public BatchOpenTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      // Every third request is refused
+      ChannelHandler<String> handlerB = ChannelHandler.of(String.class, (channel, initialMsg) -> {
+         if (requested.incrementAndGet() % 3 == 0)
+            throw new ChannelDeclinedException("Every third channel is refused");
+      });
+      this.multiplexerA = new Multiplexer(idGen, m -> {
+         if (sentByA.incrementAndGet() > 1 && linkBrokenAfterRequests)
+            throw new IOException("The link is broken");
+
+         multiplexerB.receive(m);
+      });
+      this.multiplexerB = new Multiplexer(idGen, m -> {
+         sentByB.incrementAndGet();
+         multiplexerA.receive(m);
+      }, handlerB);
+   }
+
+   @Test
+   public void channelsAreEstablishedInOneRoundTrip() throws Exception {
+      List<CompletableFuture<Channel<String>>> futures = multiplexerA.establishNewChannels(String.class,
+                                                                                           COUNT,
+                                                                                           Duration.ofSeconds(1));
+
+      assertEquals(COUNT, futures.size());
+      // One batch of requests, one batch of answers and one batch of confirmations
+      assertEquals(2, sentByA.get());
+      assertEquals(1, sentByB.get());
+      // The batched requests are metered like single ones
+      assertEquals(Long.valueOf(COUNT), multiplexerA.getMetrics().getPacketsSentByType().get("NEW"));
+
+      for (int i = 0; i < COUNT; i++) {
+         CompletableFuture<Channel<String>> future = futures.get(i);
+         if ((i + 1) % 3 == 0) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                                                () -> future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+            assertTrue(e.getCause() instanceof ChannelDeclinedException);
+         } else {
+            Channel<String> channel = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+            assertEquals(ChannelState.OPEN, channel.getState());
+            assertEquals(ChannelState.OPEN, multiplexerB.getChannel(channel.getId()).getState());
+            assertNotNull(multiplexerA.getChannel(channel.getId()));
+         }
+      }
+   }
+
+   @Test
+   public void channelsAreNotOpenedWhenTheConfirmationsCannotBeSent() throws Exception {
+      this.linkBrokenAfterRequests = true;
+      List<CompletableFuture<Channel<String>>> futures = multiplexerA.establishNewChannels(String.class,
+                                                                                           COUNT,
+                                                                                           Duration.ofSeconds(1));
+
+      for (int i = 0; i < COUNT; i++) {
+         CompletableFuture<Channel<String>> future = futures.get(i);
+         ExecutionException e = assertThrows(ExecutionException.class,
+                                             () -> future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+         if ((i + 1) % 3 == 0) {
+            assertTrue(e.getCause() instanceof ChannelDeclinedException);
+         } else {
+            assertTrue(e.getCause() instanceof IOException);
+         }
+      }
+      assertEquals(0, multiplexerA.getMetrics().getOpenChannels(), "Unconfirmed channels kept open.");
+   }
+
+   @Test
+   public void unansweredBatchTimesOutPerRequest() throws Exception {
+      Multiplexer silent = new Multiplexer(new SimpleIterativeIdGenerator(), msg -> {});
+      List<CompletableFuture<Channel<String>>> futures = silent.establishNewChannels(String.class,
+                                                                                     COUNT,
+                                                                                     Duration.ofMillis(50));
+
+      for (CompletableFuture<Channel<String>> future : futures) {
+         ExecutionException e = assertThrows(ExecutionException.class,
+                                             () -> future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+         assertTrue(e.getCause() instanceof TimeoutException);
+      }
+   }
+
+   @Test
+   public void atLeastOneChannelMustBeRequested() {
+      assertThrows(IllegalArgumentException.class, () -> multiplexerA.establishNewChannels(String.class, 0, null));
+   }
+}
@@ -0,0 +1,213 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class BatchingSenderTest {
+   private final BlockingQueue<Serializable> sent = new LinkedBlockingQueue<>();
+
+   public BatchingSenderTest() {
+
+   }
+
+   private static List<Object> payloadsOf(Serializable msg) {
+      List<Object> payloads = new ArrayList<>();
+      if (msg instanceof PacketBatch) {
+         for (Packet packet : ((PacketBatch) msg).getPackets())
+            payloads.add(((PayloadPacket) packet).getPayload());
+      } else {
+         payloads.add(((PayloadPacket) msg).getPayload());
+      }
+      return payloads;
+   }
+
+   @Test
+   public void fullBatchesAreSentAsOneUnit() throws IOException {
+      BatchingSender sender = new BatchingSender(sent::offer, 4, 0);
+      for (int i = 0; i < 10; i++)
+         sender.send(new PayloadPacket(i % 3, i));
+
+      assertEquals(2, sent.size());
+      assertEquals(Arrays.asList(0, 1, 2, 3), payloadsOf(sent.poll()));
+      assertEquals(Arrays.asList(4, 5, 6, 7), payloadsOf(sent.poll()));
+
+      sender.flush();
+      assertEquals(Arrays.asList(8, 9), payloadsOf(sent.poll()));
+      assertTrue(sent.isEmpty());
+   }
+
+   @Test
+   public void batchIsSentAfterTheLingerTime() throws Exception {
+      BatchingSender sender = new BatchingSender(sent::offer, 64, 500);
+      sender.send(new PayloadPacket(1, "a"));
+      sender.send(new PayloadPacket(2, "b"));
+      // The linger time may expire between the sends, then the packets are sent in two batches
+      List<Object> payloads = new ArrayList<>();
+      while (payloads.size() < 2) {
+         Serializable batch = sent.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+         assertNotNull(batch, "The batch was not sent after the linger time.");
+         payloads.addAll(payloadsOf(batch));
+      }
+      assertEquals(Arrays.asList("a", "b"), payloads);
+   }
+
+   @Test
+   public void blockingTargetDoesNotStallTheScheduler() throws Exception {
+      CountDownLatch release = new CountDownLatch(1);
+      BatchingSender sender = new BatchingSender(msg -> {
+         try {
+            release.await();
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         sent.offer(msg);
+      }, 64, 500);
+      sender.send(new PayloadPacket(1, "a"));
+      Thread.sleep(10);
+
+      ScheduledFuture<?> task = SharedScheduler.get().schedule(() -> { }, 0, TimeUnit.MILLISECONDS);
+      task.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      release.countDown();
+      assertEquals(Arrays.asList("a"), payloadsOf(sent.poll(TIMEOUT, TimeUnit.MILLISECONDS)));
+   }
+
+   @Test
+   public void controlPacketsAreSentAtOnce() throws IOException {
+      BatchingSender sender = new BatchingSender(sent::offer, 64, 0);
+      sender.send(new PayloadPacket(1, "a"));
+      sender.send(new ChannelPacket(1, ChannelPacketType.CLOSE));
+      PacketBatch batch = (PacketBatch) sent.poll();
+      assertEquals(2, batch.size());
+      assertTrue(batch.getPackets().get(1) instanceof ChannelPacket);
+   }
+
+   @Test
+   public void failedBatchIsNotSentTwice() throws Exception {
+      AtomicBoolean broken = new AtomicBoolean(true);
+      BatchingSender sender = new BatchingSender(msg -> {
+         if (broken.get())
+            throw new IOException("The link is broken");
+
+         sent.offer(msg);
+      }, 64, 0);
+      sender.send(new PayloadPacket(1, "a"));
+      assertThrows(IOException.class, sender::flush);
+
+      // The caller was told, so it sends its message again
+      broken.set(false);
+      sender.send(new PayloadPacket(1, "a"));
+      sender.flush();
+      assertEquals(Arrays.asList("a"), payloadsOf(sent.poll()));
+      assertTrue(sent.isEmpty());
+   }
+
+   @Test
+   public void batchesOfABrokenTargetDoNotGrow() throws Exception {
+      List<Integer> sizes = new ArrayList<>();
+      BatchingSender sender = new BatchingSender(msg -> {
+         sizes.add(msg instanceof PacketBatch ? ((PacketBatch) msg).size() : 1);
+         throw new IOException("The link is broken");
+      }, 4, 0);
+      for (int i = 0; i < 16; i++) {
+         try {
+            sender.send(new PayloadPacket(1, i));
+         } catch (IOException e) {
+            // Every full batch fails
+         }
+      }
+      assertEquals(Arrays.asList(4, 4, 4, 4), sizes);
+   }
+
+   @Test
+   public void batchIsSentAfterTheLingerTimeOfAFailedBatch() throws Exception {
+      AtomicBoolean broken = new AtomicBoolean(true);
+      BlockingQueue<IOException> failures = new LinkedBlockingQueue<>();
+      BatchingSender sender = new BatchingSender(msg -> {
+         if (broken.getAndSet(false))
+            throw new IOException("The link is broken");
+
+         sent.offer(msg);
+      }, 64, 500);
+      sender.setLingerFailureHandler(failures::offer);
+      sender.send(new PayloadPacket(1, "a"));
+      assertNotNull(failures.poll(TIMEOUT, TimeUnit.MILLISECONDS), "The failed batch was not reported.");
+
+      sender.send(new PayloadPacket(1, "b"));
+      Serializable batch = sent.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+      assertNotNull(batch, "The batch after the failed one was not sent after the linger time.");
+      assertEquals(Arrays.asList("b"), payloadsOf(batch));
+   }
+
+   @Test
+   public void lingerFailureClosesTheMultiplexer() throws Exception {
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      AtomicBoolean broken = new AtomicBoolean();
+      TestChannelHandler<Integer> handler = new TestChannelHandler<>(Integer.class);
+      BatchingSender sender = new BatchingSender(m -> {
+         if (broken.get())
+            throw new IOException("The link is broken");
+
+         multiplexers[1].receive(m);
+      }, 16, 500);
+      multiplexers[0] = new Multiplexer(new SimpleIterativeIdGenerator(), sender);
+      multiplexers[1] = new Multiplexer(new SimpleIterativeIdGenerator(false), m -> multiplexers[0].receive(m), handler);
+      Channel<Integer> channel = multiplexers[0].establishNewChannel(Integer.class, TIMEOUT);
+
+      broken.set(true);
+      channel.send(1);
+      long deadline = System.currentTimeMillis() + TIMEOUT;
+      while (!multiplexers[0].isClosed() && System.currentTimeMillis() < deadline)
+         Thread.sleep(4);
+
+      assertTrue(multiplexers[0].isClosed(), "The multiplexer was not closed after its batch failed.");
+      assertTrue(channel.isClosed());
+   }
+
+   @Test
+   public void multiplexerFlushDeliversAllMessagesInOrder() throws Exception {
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      TestChannelHandler<Integer> handler = new TestChannelHandler<>(Integer.class);
+      BatchingSender sender = new BatchingSender(m -> multiplexers[1].receive(m), 16, 0);
+      multiplexers[0] = new Multiplexer(new SimpleIterativeIdGenerator(), sender);
+      multiplexers[1] = new Multiplexer(new SimpleIterativeIdGenerator(false), m -> multiplexers[0].receive(m), handler);
+
+      Channel<Integer> channel = multiplexers[0].establishNewChannel(Integer.class, TIMEOUT);
+      BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+      handler.getChannel(channel.getId())
+             .addListener(received::offer);
+
+      for (int i = 0; i < 5; i++)
+         channel.send(i);
+
+      assertTrue(received.isEmpty(), "Messages were sent before the batch was flushed.");
+      multiplexers[0].flush();
+      for (int i = 0; i < 5; i++)
+         assertEquals(i, (int) received.poll());
+
+      multiplexers[0].close();
+      multiplexers[1].close();
+   }
+}
@@ -0,0 +1,130 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class ChannelPoolTest {
+   private final AtomicInteger requested = new AtomicInteger();
+   private final List<String> receivedByB = Collections.synchronizedList(new ArrayList<>());
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+
+   public ChannelPoolTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      ChannelHandler<String> handlerB = ChannelHandler.of(String.class, (channel, initialMsg) -> {
+         requested.incrementAndGet();
+         channel.addListener(new ChannelListener<String>() {
+            @Override
+            public void received(String msg) {
+               receivedByB.add(msg);
+            }
+
+            @Override
+            public void reset() {
+               receivedByB.add("reset");
+            }
+         });
+      });
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+   }
+
+   @Test
+   public void leasedChannelsAreReused() throws Exception {
+      ChannelPool<String> pool = new ChannelPool<>(multiplexerA, String.class, 2, 3, null, null);
+      assertEquals(2, pool.getIdleCount());
+
+      Channel<String> channel = pool.lease(TIMEOUT);
+      assertEquals(ChannelState.OPEN, channel.getState());
+      // The leased channel is replaced in the background
+      assertEquals(2, pool.getIdleCount());
+      assertEquals(3, requested.get());
+
+      pool.release(channel);
+      assertEquals(3, pool.getIdleCount());
+      assertSame(channel, pool.lease(TIMEOUT));
+      assertEquals(3, requested.get());
+      pool.close();
+   }
+
+   @Test
+   public void channelsBeyondMaxIdleAreClosed() throws Exception {
+      ChannelPool<String> pool = new ChannelPool<>(multiplexerA, String.class, 2);
+      Channel<String> channel = pool.lease(TIMEOUT);
+      pool.release(channel);
+
+      assertEquals(2, pool.getIdleCount());
+      assertTrue(channel.isClosed());
+      pool.close();
+   }
+
+   @Test
+   public void releasedChannelIsResetOnTheOtherSide() throws Exception {
+      ChannelPool<String> pool = new ChannelPool<>(multiplexerA, String.class, 1, 2, null, null);
+      Channel<String> channel = pool.lease(TIMEOUT);
+      List<String> receivedByA = new ArrayList<>();
+      channel.addListener(receivedByA::add);
+
+      channel.send("a");
+      pool.release(channel);
+      channel.send("b");
+
+      assertEquals(Arrays.asList("a", "reset", "b"), receivedByB);
+      assertTrue(!channel.getListeners().iterator().hasNext(), "The listeners of a released channel were kept.");
+      pool.close();
+   }
+
+   @Test
+   public void idleChannelsBeyondMinIdleAreEvicted() throws Exception {
+      ChannelPool<String> pool = new ChannelPool<>(multiplexerA, String.class, 1, 4, Duration.ofMillis(20), null);
+      List<Channel<String>> leased = new ArrayList<>();
+      for (int i = 0; i < 3; i++)
+         leased.add(pool.lease(TIMEOUT));
+      for (Channel<String> channel : leased)
+         pool.release(channel);
+
+      assertEquals(4, pool.getIdleCount());
+      long deadline = System.currentTimeMillis() + TIMEOUT * 8;
+      while (pool.getIdleCount() > 1 && System.currentTimeMillis() < deadline)
+         Thread.sleep(5);
+
+      assertEquals(1, pool.getIdleCount());
+      pool.close();
+   }
+
+   @Test
+   public void closedChannelsAreNotLeased() throws Exception {
+      ChannelPool<String> pool = new ChannelPool<>(multiplexerA, String.class, 1);
+      Channel<String> channel = pool.lease(TIMEOUT);
+      pool.release(channel);
+      channel.close();
+
+      assertNotSame(channel, pool.lease(TIMEOUT));
+      pool.close();
+      assertThrows(ClosedException.class, () -> pool.lease(TIMEOUT));
+   }
+}
@@ -0,0 +1,113 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class ChannelStateTest {
+   private static final int THREADS = 4;
+   private static final int MESSAGES = 2000;
+
+   private final List<Serializable> sent = Collections.synchronizedList(new ArrayList<>());
+
+   public ChannelStateTest() {
+
+   }
+
+   @Test
+   public void messagesSentWhileOpeningKeepTheirOrder() throws Exception {
+      Channel<int[]> channel = new Channel<>(1, sent::add, null);
+      CountDownLatch start = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(THREADS);
+      for (int t = 0; t < THREADS; t++) {
+         int thread = t;
+         new Thread(() -> {
+            try {
+               start.await();
+               for (int i = 0; i < MESSAGES; i++)
+                  channel.send(new int[] {thread, i});
+            } catch (InterruptedException | IOException e) {
+               throw new RuntimeException(e);
+            } finally {
+               done.countDown();
+            }
+         }).start();
+      }
+
+      start.countDown();
+      Thread.sleep(1);
+      channel.setState(ChannelState.OPEN);
+      assertTrue(done.await(TIMEOUT * 8, TimeUnit.MILLISECONDS));
+
+      int[] next = new int[THREADS];
+      synchronized (sent) {
+         assertEquals(THREADS * MESSAGES, sent.size());
+         for (Serializable msg : sent) {
+            int[] payload = (int[]) ((PayloadPacket) msg).getPayload();
+            assertEquals(next[payload[0]]++, payload[1]);
+         }
+      }
+   }
+
+   @Test
+   public void messagesRacingTheCloseAreDroppedByTheOtherSide() throws Exception {
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      multiplexers[0] = new Multiplexer(idGen, m -> multiplexers[1].receive(m));
+      multiplexers[1] = new Multiplexer(idGen,
+                                        m -> multiplexers[0].receive(m),
+                                        new TestChannelHandler<>(String.class));
+      Channel<String> channel = multiplexers[0].establishNewChannel(String.class, TIMEOUT);
+      channel.close();
+
+      // A message, that was sent concurrently with the close, arrives after it
+      multiplexers[1].receive(new PayloadPacket(channel.getId(), "late"));
+      assertThrows(IllegalArgumentException.class, () -> multiplexers[1].receive(new PayloadPacket(-1, "unknown")));
+      multiplexers[0].close();
+      multiplexers[1].close();
+   }
+
+   @Test
+   public void closedChannelCannotBeReopened() throws Exception {
+      Channel<String> channel = new Channel<>(1, sent::add, null);
+      channel.setState(ChannelState.OPEN);
+      channel.close();
+      channel.close();
+
+      assertEquals(ChannelState.CLOSED, channel.getState());
+      assertEquals(1, sent.size());
+      assertThrows(ClosedException.class, () -> channel.setState(ChannelState.OPEN));
+      assertThrows(ClosedException.class, () -> channel.send("msg"));
+   }
+
+   @Test
+   public void waitToOpenReturnsWhenTheChannelOpens() throws Exception {
+      Channel<String> channel = new Channel<>(1, sent::add, null);
+      new Thread(() -> {
+         try {
+            Thread.sleep(10);
+            channel.setState(ChannelState.OPEN);
+         } catch (InterruptedException | ClosedException e) {
+            throw new RuntimeException(e);
+         }
+      }).start();
+
+      channel.waitToOpen(TIMEOUT * 8);
+      assertEquals(ChannelState.OPEN, channel.getState());
+   }
+}
@@ -0,0 +1,207 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class CompressionTest {
+   private final List<Serializable> sentByA = new ArrayList<>();
+   private final List<Object> received = new ArrayList<>();
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<Object> handlerB;
+
+   public CompressionTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.handlerB = new TestChannelHandler<>(Object.class);
+      this.multiplexerA = new Multiplexer(idGen, m -> {
+         sentByA.add(m);
+         multiplexerB.receive(m);
+      });
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+   }
+
+   private Channel<Object> open(String... compression) throws Exception {
+      Channel<Object> channel = multiplexerA.establishNewChannel(Object.class,
+                                                                 TIMEOUT,
+                                                                 null,
+                                                                 new ChannelOptions().setCompression(compression));
+      handlerB.getChannel(channel.getId())
+              .addListener(received::add);
+      return channel;
+   }
+
+   private FragmentPacket lastFragment() {
+      for (int i = sentByA.size() - 1; i >= 0; i--) {
+         if (sentByA.get(i) instanceof FragmentPacket)
+            return (FragmentPacket) sentByA.get(i);
+      }
+      return null;
+   }
+
+   private static String compressible() {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 1000; i++)
+         builder.append("{\"id\":").append(i % 10).append(",\"name\":\"value\"}");
+
+      return builder.toString();
+   }
+
+   @Test
+   public void deflateIsNegotiatedAndCompressesLargePayloads() throws Exception {
+      Channel<Object> channel = open(DeflateCompression.NAME);
+      assertEquals(DeflateCompression.NAME, channel.getCompression().getName());
+      assertEquals(DeflateCompression.NAME, handlerB.getChannel(channel.getId()).getCompression().getName());
+
+      String json = compressible();
+      channel.send(json);
+
+      assertEquals(json, received.get(0));
+      FragmentPacket packet = lastFragment();
+      assertTrue(packet.isCompressed());
+      assertTrue(packet.getData().length < json.length() / 10, "The payload was not compressed.");
+   }
+
+   @Test
+   public void smallPayloadsAreNotCompressed() throws Exception {
+      Channel<Object> channel = open(DeflateCompression.NAME);
+      channel.send("small");
+      channel.send(new TestMessage("small"));
+
+      assertEquals("small", received.get(0));
+      assertEquals(new TestMessage("small"), received.get(1));
+      assertTrue(sentByA.get(sentByA.size() - 2) instanceof PayloadPacket);
+      assertTrue(sentByA.get(sentByA.size() - 1) instanceof PayloadPacket);
+      assertNull(lastFragment());
+   }
+
+   @Test
+   public void incompressiblePayloadsAreSentAsTheyAre() throws Exception {
+      Channel<Object> channel = open(DeflateCompression.NAME);
+      byte[] blob = new byte[4096];
+      new Random(42).nextBytes(blob);
+      channel.send(blob);
+
+      assertArrayEquals(blob, (byte[]) received.get(0));
+      assertFalse(lastFragment().isCompressed());
+   }
+
+   @Test
+   public void theFirstCompressionKnownToBothSidesIsChosen() throws Exception {
+      Compression identity = new IdentityCompression();
+      multiplexerA.addCompression(identity);
+      Channel<Object> unknownToB = open(identity.getName(), DeflateCompression.NAME);
+      assertEquals(DeflateCompression.NAME, unknownToB.getCompression().getName());
+
+      multiplexerB.addCompression(new IdentityCompression());
+      Channel<Object> knownToB = open(identity.getName(), DeflateCompression.NAME);
+      assertSame(identity, knownToB.getCompression());
+
+      multiplexerB.removeCompression(identity.getName());
+      multiplexerB.removeCompression(DeflateCompression.NAME);
+      Channel<Object> none = open(identity.getName(), DeflateCompression.NAME);
+      assertNull(none.getCompression());
+      String json = compressible();
+      none.send(json);
+      assertEquals(json, received.get(0));
+   }
+
+   @Test
+   public void unknownCompressionCannotBeProposed() {
+      assertThrows(IllegalArgumentException.class, () -> open("unknown"));
+   }
+
+   @Test
+   public void deflateRoundTrip() throws Exception {
+      Compression deflate = new DeflateCompression();
+      byte[] data = compressible().getBytes("UTF-8");
+      byte[] compressed = deflate.compress(data);
+      assertArrayEquals(data, deflate.decompress(compressed, 0, compressed.length, data.length));
+
+      byte[] large = new byte[100_000];
+      new Random(7).nextBytes(large);
+      compressed = deflate.compress(large);
+      assertArrayEquals(large, deflate.decompress(compressed, 0, compressed.length, large.length));
+      byte[] tooLarge = compressed;
+      assertThrows(IOException.class, () -> deflate.decompress(tooLarge, 0, tooLarge.length, large.length - 1));
+
+      compressed = deflate.compress(new byte[0]);
+      assertEquals(0, deflate.decompress(compressed, 0, compressed.length, 0).length);
+   }
+
+   @Test
+   public void forgedSizeIsRejectedBeforeItIsAllocated() throws Exception {
+      Channel<Object> channel = open(DeflateCompression.NAME);
+      Channel<Object> remote = handlerB.getChannel(channel.getId());
+      multiplexerB.setMaxReassemblySize(1024);
+      // A few bytes claiming a payload of 2 GB
+      byte[] forged = {0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0};
+      multiplexerB.receive(new FragmentPacket(channel.getId(), FragmentPacket.ENCODING_BYTES, true, true, forged));
+
+      assertTrue(received.isEmpty());
+      assertTrue(remote.isClosed());
+   }
+
+   private static class IdentityCompression implements Compression {
+      @Override
+      public String getName() {
+         return "identity";
+      }
+
+      @Override
+      public byte[] compress(byte[] data) {
+         // Pretends to save one byte, so the payload is marked as compressed
+         return Arrays.copyOf(data, data.length - 1);
+      }
+
+      @Override
+      public byte[] decompress(byte[] data, int offset, int length, int maxSize) {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private static class TestMessage implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final String text;
+
+      TestMessage(String text) {
+         this.text = text;
+      }
+
+      @Override
+      public int hashCode() {
+         return text.hashCode();
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         return obj instanceof TestMessage && ((TestMessage) obj).text.equals(text);
+      }
+   }
+}
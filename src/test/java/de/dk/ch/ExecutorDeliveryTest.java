@@ -0,0 +1,93 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class ExecutorDeliveryTest {
+   private ExecutorService executor;
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<Integer> handlerB;
+
+   public ExecutorDeliveryTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.executor = Executors.newFixedThreadPool(4);
+      this.handlerB = new TestChannelHandler<>(Integer.class);
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+      multiplexerB.setExecutor(executor);
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      executor.shutdownNow();
+   }
+
+   @Test
+   public void slowListenerDoesNotBlockOtherChannels() throws Exception {
+      Channel<Integer> slowA = multiplexerA.establishNewChannel(Integer.class, TIMEOUT);
+      Channel<Integer> fastA = multiplexerA.establishNewChannel(Integer.class, TIMEOUT);
+
+      CountDownLatch release = new CountDownLatch(1);
+      List<Integer> slowReceived = new ArrayList<>();
+      CountDownLatch slowDone = new CountDownLatch(100);
+      handlerB.getChannel(slowA.getId())
+              .addListener(msg -> {
+                 try {
+                    release.await();
+                 } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                 }
+                 slowReceived.add(msg);
+                 slowDone.countDown();
+              });
+      BlockingQueue<Integer> fastReceived = new LinkedBlockingQueue<>();
+      handlerB.getChannel(fastA.getId())
+              .addListener(fastReceived::offer);
+
+      for (int i = 0; i < 100; i++)
+         slowA.send(i);
+      fastA.send(42);
+
+      assertEquals(Integer.valueOf(42), fastReceived.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+      release.countDown();
+      assertTrue(slowDone.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      for (int i = 0; i < 100; i++)
+         assertEquals(Integer.valueOf(i), slowReceived.get(i));
+   }
+
+   @Test
+   public void messagesAreNotDeliveredOnTheReceivingThread() throws Exception {
+      Channel<Integer> channelA = multiplexerA.establishNewChannel(Integer.class, TIMEOUT);
+      BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+      handlerB.getChannel(channelA.getId())
+              .addListener(msg -> threads.offer(Thread.currentThread()));
+
+      channelA.send(1);
+      assertNotSame(Thread.currentThread(), threads.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+   }
+}
@@ -0,0 +1,228 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class FairSchedulerTest {
+   private final List<Serializable> sent = new ArrayList<>();
+   private final CountDownLatch blocked = new CountDownLatch(1);
+   private final CountDownLatch release = new CountDownLatch(1);
+
+   public FairSchedulerTest() {
+
+   }
+
+   private void gatedSend(Serializable msg) throws IOException {
+      synchronized (sent) {
+         sent.add(msg);
+      }
+      if (blocked.getCount() > 0) {
+         blocked.countDown();
+         try {
+            release.await();
+         } catch (InterruptedException e) {
+            throw new IOException(e);
+         }
+      }
+   }
+
+   private Thread blockScheduler(FairScheduler scheduler) throws InterruptedException {
+      Thread thread = new Thread(() -> {
+         try {
+            scheduler.send(new PayloadPacket(99, "first"));
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+      thread.start();
+      assertTrue(blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      return thread;
+   }
+
+   private List<Object> sentAfterRelease(Thread drainer) throws InterruptedException {
+      release.countDown();
+      drainer.join(TIMEOUT);
+      List<Object> result = new ArrayList<>();
+      synchronized (sent) {
+         for (Serializable msg : sent.subList(1, sent.size())) {
+            if (msg instanceof PayloadPacket)
+               result.add(((PayloadPacket) msg).getPayload());
+            else
+               result.add(((ChannelPacket) msg).getPacketType());
+         }
+      }
+      return result;
+   }
+
+   @Test
+   public void channelsAreInterleavedByWeight() throws Exception {
+      FairScheduler scheduler = new FairScheduler(this::gatedSend);
+      scheduler.register(1, 3);
+      scheduler.register(2, 1);
+      Thread drainer = blockScheduler(scheduler);
+
+      for (int i = 0; i < 6; i++)
+         scheduler.send(new PayloadPacket(1, "a" + i));
+      for (int i = 0; i < 3; i++)
+         scheduler.send(new PayloadPacket(2, "b" + i));
+
+      assertEquals(9, scheduler.getQueuedCount());
+      assertEquals(Arrays.asList("a0", "a1", "a2", "b0", "a3", "a4", "a5", "b1", "b2"), sentAfterRelease(drainer));
+      assertEquals(0, scheduler.getQueuedCount());
+   }
+
+   @Test
+   public void controlPacketsJumpTheQueue() throws Exception {
+      FairScheduler scheduler = new FairScheduler(this::gatedSend);
+      Thread drainer = blockScheduler(scheduler);
+
+      scheduler.send(new PayloadPacket(1, "a0"));
+      scheduler.send(new PayloadPacket(1, "a1"));
+      scheduler.send(new ChannelPacket(2, ChannelPacketType.OK));
+
+      assertEquals(Arrays.asList(ChannelPacketType.OK, "a0", "a1"), sentAfterRelease(drainer));
+   }
+
+   @Test
+   public void closeIsSentAfterTheQueuedPacketsOfItsChannel() throws Exception {
+      FairScheduler scheduler = new FairScheduler(this::gatedSend);
+      Thread drainer = blockScheduler(scheduler);
+
+      scheduler.send(new PayloadPacket(1, "a0"));
+      scheduler.send(new PayloadPacket(1, "a1"));
+      scheduler.send(new ChannelPacket(1, ChannelPacketType.CLOSE));
+      scheduler.unregister(1);
+      scheduler.send(new ChannelPacket(2, ChannelPacketType.CLOSE));
+
+      assertEquals(Arrays.asList(ChannelPacketType.CLOSE, "a0", "a1", ChannelPacketType.CLOSE),
+                   sentAfterRelease(drainer));
+   }
+
+   @Test
+   public void sendersWaitWhileTheQueueOfTheirChannelIsFull() throws Exception {
+      FairScheduler scheduler = new FairScheduler(this::gatedSend, 2);
+      Thread drainer = blockScheduler(scheduler);
+
+      scheduler.send(new PayloadPacket(1, "a0"));
+      scheduler.send(new PayloadPacket(1, "a1"));
+      // Other channels and control packets do not wait
+      scheduler.send(new PayloadPacket(2, "b0"));
+      scheduler.send(new ChannelPacket(2, ChannelPacketType.OK));
+      Thread producer = new Thread(() -> {
+         try {
+            scheduler.send(new PayloadPacket(1, "a2"));
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+      producer.start();
+      producer.join(50);
+      assertTrue(producer.isAlive(), "The sender did not wait for the full queue.");
+      assertEquals(4, scheduler.getQueuedCount());
+
+      List<Object> sent = sentAfterRelease(drainer);
+      producer.join(TIMEOUT);
+      assertFalse(producer.isAlive());
+      synchronized (this.sent) {
+         assertEquals(6, this.sent.size());
+      }
+      assertEquals(Arrays.asList(ChannelPacketType.OK, "a0", "b0", "a1"), sent.subList(0, 4));
+   }
+
+   @Test
+   public void failedPacketStaysQueuedBeforeTheCloseOfItsChannel() throws Exception {
+      List<Serializable> sent = new ArrayList<>();
+      boolean[] fail = {true};
+      FairScheduler scheduler = new FairScheduler(msg -> {
+         if (fail[0]) {
+            fail[0] = false;
+            throw new IOException("Failing once");
+         }
+         sent.add(msg);
+      });
+
+      assertThrows(IOException.class, () -> scheduler.send(new PayloadPacket(1, "a0")));
+      assertEquals(1, scheduler.getQueuedCount());
+      scheduler.send(new ChannelPacket(1, ChannelPacketType.CLOSE));
+
+      assertEquals(2, sent.size());
+      assertEquals("a0", ((PayloadPacket) sent.get(0)).getPayload());
+      assertEquals(ChannelPacketType.CLOSE, ((ChannelPacket) sent.get(1)).getPacketType());
+   }
+
+   @Test
+   public void queuesAreForgottenWhenTheirChannelCloses() throws Exception {
+      FairScheduler scheduler = new FairScheduler(this::gatedSend);
+      scheduler.register(1, 2);
+      Thread drainer = blockScheduler(scheduler);
+
+      scheduler.send(new PayloadPacket(1, "a0"));
+      scheduler.send(new ChannelPacket(1, ChannelPacketType.CLOSE));
+      // A channel, that has not been registered
+      scheduler.send(new PayloadPacket(2, "b0"));
+      sentAfterRelease(drainer);
+
+      assertEquals(0, scheduler.getChannelQueueCount());
+   }
+
+   @Test
+   public void weightIsNegotiatedWithTheChannel() throws Exception {
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      TestChannelHandler<Foo> handlerB = new TestChannelHandler<>(Foo.class);
+      multiplexers[0] = new Multiplexer(idGen, new FairScheduler(m -> multiplexers[1].receive(m)));
+      multiplexers[1] = new Multiplexer(idGen, new FairScheduler(m -> multiplexers[0].receive(m)), handlerB);
+      multiplexers[1].setMaxRemoteWeight(8);
+
+      Channel<Foo> channel = multiplexers[0].establishNewChannel(Foo.class,
+                                                                 TIMEOUT,
+                                                                 null,
+                                                                 new ChannelOptions().setWeight(5));
+      assertEquals(5, channel.getWeight());
+      assertEquals(5, handlerB.getChannel(channel.getId())
+                              .getWeight());
+      channel.close();
+   }
+
+   @Test
+   public void acceptingSideChoosesItsWeight() throws Exception {
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      TestChannelHandler<Foo> handlerB = new TestChannelHandler<>(Foo.class);
+      multiplexers[0] = new Multiplexer(idGen, new FairScheduler(m -> multiplexers[1].receive(m)));
+      multiplexers[1] = new Multiplexer(idGen, new FairScheduler(m -> multiplexers[0].receive(m)), handlerB);
+      ChannelOptions greedy = new ChannelOptions().setWeight(Integer.MAX_VALUE);
+
+      // The requested weight is ignored by default
+      Channel<Foo> channel = multiplexers[0].establishNewChannel(Foo.class, TIMEOUT, null, greedy);
+      assertEquals(ChannelOptions.DEFAULT_WEIGHT, handlerB.getChannel(channel.getId()).getWeight());
+
+      multiplexers[1].setMaxRemoteWeight(4);
+      channel = multiplexers[0].establishNewChannel(Foo.class, TIMEOUT, null, greedy);
+      assertEquals(4, handlerB.getChannel(channel.getId()).getWeight());
+
+      multiplexers[1].setWeight(Foo.class, 2);
+      channel = multiplexers[0].establishNewChannel(Foo.class, TIMEOUT, null, greedy);
+      assertEquals(2, handlerB.getChannel(channel.getId()).getWeight());
+      channel.close();
+   }
+}
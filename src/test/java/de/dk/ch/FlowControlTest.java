@@ -0,0 +1,163 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static de.dk.ch.TestObject.DEFAULT_MSG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class FlowControlTest {
+   private static final int WINDOW = 4;
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private HoldingMedium mediumA;
+
+   private TestChannelHandler<String> handlerB;
+   private Channel<String> channelA;
+   private final BlockingQueue<String> receivedB = new LinkedBlockingQueue<>();
+
+   public FlowControlTest() {
+
+   }
+
+   @BeforeEach
+   public void init() throws Exception {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.mediumA = new HoldingMedium(() -> multiplexerB);
+      this.multiplexerA = new Multiplexer(idGen, mediumA);
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+      multiplexerA.setInitialWindow(WINDOW);
+      multiplexerB.setInitialWindow(WINDOW);
+      multiplexerA.setSendTimeout(0);
+
+      this.channelA = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      handlerB.getChannel(channelA.getId())
+              .addListener(receivedB::offer);
+   }
+
+   @Test
+   public void sendFailsFastWhenTheWindowIsExhausted() throws Exception {
+      mediumA.hold();
+      for (int i = 0; i < WINDOW; i++)
+         channelA.send(DEFAULT_MSG);
+
+      assertThrows(FlowControlException.class, () -> channelA.send(DEFAULT_MSG));
+      assertEquals(WINDOW, mediumA.getHeldCount());
+   }
+
+   @Test
+   public void consumedMessagesGrantNewCredit() throws Exception {
+      mediumA.hold();
+      for (int i = 0; i < WINDOW; i++)
+         channelA.send(DEFAULT_MSG);
+
+      mediumA.release();
+      for (int i = 0; i < WINDOW; i++)
+         assertEquals(DEFAULT_MSG, receivedB.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+
+      for (int i = 0; i < WINDOW; i++)
+         channelA.send(DEFAULT_MSG);
+   }
+
+   @Test
+   public void sendBlocksUntilCreditIsGranted() throws Exception {
+      multiplexerA.setSendTimeout(-1);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      mediumA.hold();
+      for (int i = 0; i < WINDOW; i++)
+         channel.send(DEFAULT_MSG);
+
+      Thread blocked = new Thread(() -> {
+         try {
+            channel.send(DEFAULT_MSG);
+         } catch (IOException e) {
+            fail("Could not send message after credit was granted.", e);
+         }
+      });
+      blocked.start();
+      blocked.join(TIMEOUT);
+      assertTrue(blocked.isAlive(), "Send did not block with an exhausted window.");
+
+      mediumA.release();
+      blocked.join(TIMEOUT);
+      assertTrue(!blocked.isAlive(), "Send still blocked after credit was granted.");
+   }
+
+   @Test
+   public void closeWakesUpASenderWaitingForCredit() throws Exception {
+      multiplexerA.setSendTimeout(-1);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      mediumA.hold();
+      for (int i = 0; i < WINDOW; i++)
+         channel.send(DEFAULT_MSG);
+
+      BlockingQueue<Throwable> failure = new LinkedBlockingQueue<>();
+      Thread blocked = new Thread(() -> {
+         try {
+            channel.send(DEFAULT_MSG);
+            fail("Send succeeded through a closed channel.");
+         } catch (IOException e) {
+            failure.offer(e);
+         }
+      });
+      blocked.start();
+      blocked.join(TIMEOUT);
+      assertTrue(blocked.isAlive(), "Send did not block with an exhausted window.");
+
+      channel.close();
+      blocked.join(TIMEOUT);
+      assertTrue(!blocked.isAlive(), "Send still blocked after the channel was closed.");
+      assertTrue(failure.poll() instanceof ClosedException);
+   }
+
+   @Test
+   public void remoteCloseWakesUpASenderWaitingForCredit() throws Exception {
+      multiplexerA.setSendTimeout(-1);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      mediumA.hold();
+      for (int i = 0; i < WINDOW; i++)
+         channel.send(DEFAULT_MSG);
+
+      BlockingQueue<Throwable> failure = new LinkedBlockingQueue<>();
+      Thread blocked = new Thread(() -> {
+         try {
+            channel.send(DEFAULT_MSG);
+            fail("Send succeeded through a closed channel.");
+         } catch (IOException e) {
+            failure.offer(e);
+         }
+      });
+      blocked.start();
+      blocked.join(TIMEOUT);
+      assertTrue(blocked.isAlive(), "Send did not block with an exhausted window.");
+
+      handlerB.getChannel(channel.getId())
+              .close();
+      blocked.join(TIMEOUT);
+      assertTrue(!blocked.isAlive(), "Send still blocked after the channel was closed by the other side.");
+      assertTrue(failure.poll() instanceof ClosedException);
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      mediumA.release();
+      multiplexerA.close();
+      multiplexerB.close();
+   }
+}
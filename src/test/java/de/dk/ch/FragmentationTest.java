@@ -0,0 +1,154 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class FragmentationTest {
+   private static final int FRAGMENT_SIZE = 1024;
+
+   private final List<Serializable> sentByA = new ArrayList<>();
+   private final List<Object> received = new ArrayList<>();
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+
+   public FragmentationTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      ChannelHandler<Object> handlerB = ChannelHandler.of(Object.class, (channel, initialMsg) -> {
+         channel.addListener(received::add);
+      });
+      this.multiplexerA = new Multiplexer(idGen, m -> {
+         sentByA.add(m);
+         multiplexerB.receive(m);
+      });
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+      multiplexerA.setFragmentSize(FRAGMENT_SIZE);
+   }
+
+   private long fragmentsSent() {
+      return sentByA.stream()
+                    .filter(FragmentPacket.class::isInstance)
+                    .count();
+   }
+
+   @Test
+   public void largePayloadsArriveWhole() throws Exception {
+      Channel<Object> channel = multiplexerA.establishNewChannel(Object.class, TIMEOUT);
+      byte[] bytes = new byte[100_000];
+      Arrays.fill(bytes, (byte) 7);
+      char[] chars = new char[10_000];
+      Arrays.fill(chars, '\u00e4');
+      String string = new String(chars);
+      int[] ints = new int[50_000];
+      Arrays.fill(ints, 42);
+
+      channel.send(bytes);
+      channel.send(string);
+      channel.send(ints);
+
+      assertEquals(3, received.size());
+      assertArrayEquals(bytes, (byte[]) received.get(0));
+      assertEquals(string, received.get(1));
+      assertTrue(Arrays.equals(ints, (int[]) received.get(2)));
+      assertTrue(fragmentsSent() > 100_000 / FRAGMENT_SIZE, "The payloads were not fragmented.");
+   }
+
+   @Test
+   public void smallPayloadsAreNotFragmented() throws Exception {
+      Channel<Object> channel = multiplexerA.establishNewChannel(Object.class, TIMEOUT);
+      channel.send("small");
+      channel.send(new byte[FRAGMENT_SIZE]);
+      channel.send(new int[] {1, 2, 3});
+
+      assertEquals(0, fragmentsSent());
+      assertEquals("small", received.get(0));
+      assertTrue(Arrays.equals(new int[] {1, 2, 3}, (int[]) received.get(2)));
+   }
+
+   @Test
+   public void exceedingTheReassemblyLimitClosesTheChannel() throws Exception {
+      multiplexerB.setMaxReassemblySize(10 * FRAGMENT_SIZE);
+      Channel<Object> channel = multiplexerA.establishNewChannel(Object.class, TIMEOUT);
+
+      assertThrows(ClosedException.class, () -> channel.send(new byte[20 * FRAGMENT_SIZE]));
+      assertTrue(channel.isClosed());
+      assertTrue(received.isEmpty());
+   }
+
+   @Test
+   public void otherChannelsAreSentBetweenTheFragments() throws Exception {
+      List<Serializable> sent = new ArrayList<>();
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      FairScheduler scheduler = new FairScheduler(msg -> {
+         synchronized (sent) {
+            sent.add(msg);
+         }
+         if (blocked.getCount() > 0) {
+            blocked.countDown();
+            try {
+               release.await();
+            } catch (InterruptedException e) {
+               throw new IOException(e);
+            }
+         }
+      });
+      Multiplexer multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(), scheduler);
+      multiplexer.setFragmentSize(FRAGMENT_SIZE);
+      Channel<byte[]> bulk = new Channel<>(1, scheduler, multiplexer);
+      Channel<String> interactive = new Channel<>(2, scheduler, multiplexer);
+      bulk.setState(ChannelState.OPEN);
+      interactive.setState(ChannelState.OPEN);
+
+      // The first packet blocks the scheduler, so the following packets are queued
+      Thread drainer = new Thread(() -> {
+         try {
+            scheduler.send(new PayloadPacket(99, "first"));
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+      drainer.start();
+      assertTrue(blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      bulk.send(new byte[8 * FRAGMENT_SIZE]);
+      interactive.send("ping");
+      release.countDown();
+      drainer.join(TIMEOUT);
+
+      int ping = -1;
+      int lastFragment = -1;
+      synchronized (sent) {
+         for (int i = 0; i < sent.size(); i++) {
+            Serializable msg = sent.get(i);
+            if (msg instanceof PayloadPacket && "ping".equals(((PayloadPacket) msg).getPayload()))
+               ping = i;
+            else if (msg instanceof FragmentPacket && ((FragmentPacket) msg).isLast())
+               lastFragment = i;
+         }
+      }
+      assertTrue(ping >= 0 && ping < lastFragment, "The interactive channel waited for the whole payload.");
+   }
+}
@@ -0,0 +1,83 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class HandlerResolutionTest {
+   private Multiplexer multiplexer;
+
+   public HandlerResolutionTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      this.multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(), msg -> {});
+   }
+
+   @Test
+   public void handlerOfAnInterfaceMatches() {
+      TestChannelHandler<Marker> handler = new TestChannelHandler<>(Marker.class);
+      multiplexer.addHandler(handler);
+
+      assertSame(handler, multiplexer.getHandlerFor(Marked.class));
+      assertSame(handler, multiplexer.getHandlerFor(DeepMarked.class));
+      assertSame(handler, multiplexer.getHandlerFor(SubMarker.class));
+   }
+
+   @Test
+   public void superclassWinsOverInterface() {
+      TestChannelHandler<Marker> markerHandler = new TestChannelHandler<>(Marker.class);
+      TestChannelHandler<Marked> markedHandler = new TestChannelHandler<>(Marked.class);
+      multiplexer.addHandler(markerHandler);
+      multiplexer.addHandler(markedHandler);
+
+      assertSame(markedHandler, multiplexer.getHandlerFor(DeepMarked.class));
+   }
+
+   @Test
+   public void nearerInterfaceWins() {
+      TestChannelHandler<Marker> markerHandler = new TestChannelHandler<>(Marker.class);
+      TestChannelHandler<SubMarker> subMarkerHandler = new TestChannelHandler<>(SubMarker.class);
+      multiplexer.addHandler(markerHandler);
+      multiplexer.addHandler(subMarkerHandler);
+
+      assertSame(subMarkerHandler, multiplexer.getHandlerFor(SubMarked.class));
+   }
+
+   @Test
+   public void objectHandlerIsTheLastResort() {
+      TestChannelHandler<Object> objectHandler = new TestChannelHandler<>(Object.class);
+      multiplexer.addHandler(objectHandler);
+      TestChannelHandler<Marker> markerHandler = new TestChannelHandler<>(Marker.class);
+      multiplexer.addHandler(markerHandler);
+
+      assertSame(markerHandler, multiplexer.getHandlerFor(Marked.class));
+      assertSame(objectHandler, multiplexer.getHandlerFor(String.class));
+   }
+
+   @Test
+   public void changingTheHandlersInvalidatesTheCache() {
+      assertNull(multiplexer.getHandlerFor(DeepMarked.class));
+
+      TestChannelHandler<Marker> handler = new TestChannelHandler<>(Marker.class);
+      multiplexer.addHandler(handler);
+      assertSame(handler, multiplexer.getHandlerFor(DeepMarked.class));
+
+      multiplexer.removeHandler(handler);
+      assertNull(multiplexer.getHandlerFor(DeepMarked.class));
+   }
+
+   public static interface Marker {}
+   public static interface SubMarker extends Marker {}
+   public static class Marked implements Marker {}
+   public static class DeepMarked extends Marked {}
+   public static class SubMarked implements SubMarker {}
+}
@@ -0,0 +1,79 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class HashedWheelTimerTest {
+   private static final long TICK = 5;
+
+   public HashedWheelTimerTest() {
+
+   }
+
+   @Test
+   public void timeoutsExpireNotBeforeTheirDelay() throws Exception {
+      // A small wheel, so the timeouts take several rounds
+      HashedWheelTimer timer = new HashedWheelTimer(TICK, 4);
+      CountDownLatch expired = new CountDownLatch(3);
+      long start = System.nanoTime();
+      long[] delays = {7, 50, 120};
+      long[] elapsed = new long[delays.length];
+      for (int i = 0; i < delays.length; i++) {
+         int index = i;
+         timer.schedule(() -> {
+            elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            expired.countDown();
+         }, delays[i]);
+      }
+
+      assertTrue(expired.await(1, TimeUnit.SECONDS));
+      for (int i = 0; i < delays.length; i++)
+         assertTrue(elapsed[i] >= delays[i], "Timeout of " + delays[i] + " ms expired after " + elapsed[i] + " ms.");
+
+      assertEquals(0, timer.size());
+   }
+
+   @Test
+   public void cancelledTimeoutsNeverRun() throws Exception {
+      HashedWheelTimer timer = new HashedWheelTimer(TICK, 8);
+      AtomicInteger runs = new AtomicInteger();
+      List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+      for (int i = 0; i < 100_000; i++)
+         timeouts.add(timer.schedule(runs::incrementAndGet, 1000));
+
+      for (HashedWheelTimer.Timeout timeout : timeouts)
+         assertTrue(timeout.cancel());
+
+      assertEquals(0, timer.size());
+      assertFalse(timeouts.get(0).cancel());
+      Thread.sleep(60);
+      assertEquals(0, runs.get());
+   }
+
+   @Test
+   public void theWheelTurnsAgainAfterItStopped() throws Exception {
+      HashedWheelTimer timer = new HashedWheelTimer(TICK, 8);
+      CountDownLatch first = new CountDownLatch(1);
+      timer.schedule(first::countDown, 1);
+      assertTrue(first.await(1, TimeUnit.SECONDS));
+      // Give the empty wheel the time to stop
+      Thread.sleep(TICK * 4);
+
+      CountDownLatch second = new CountDownLatch(1);
+      timer.schedule(second::countDown, 1);
+      assertTrue(second.await(1, TimeUnit.SECONDS));
+   }
+}
@@ -0,0 +1,45 @@
+package de.dk.ch;
+
+import java.io.Serializable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * A medium that delivers control packets immediately,
+ * but can hold back payload packets until they are released.
+ *
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class HoldingMedium implements Sender {
+   private final Supplier<Multiplexer> target;
+   private final Queue<Serializable> held = new ConcurrentLinkedQueue<>();
+   private volatile boolean holding = false;
+
+   public HoldingMedium(Supplier<Multiplexer> target) {
+      this.target = target;
+   }
+
+   @Override
+   public void send(Serializable msg) {
+      if (holding && msg instanceof PayloadPacket)
+         held.offer(msg);
+      else
+         target.get().receive(msg);
+   }
+
+   public void hold() {
+      this.holding = true;
+   }
+
+   public void release() {
+      this.holding = false;
+      for (Serializable msg = held.poll(); msg != null; msg = held.poll())
+         target.get().receive(msg);
+   }
+
+   public int getHeldCount() {
+      return held.size();
+   }
+}
@@ -0,0 +1,88 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class IdGeneratorTest {
+   private static final int THREADS = 8;
+   private static final int IDS = 10_000;
+
+   public IdGeneratorTest() {
+
+   }
+
+   private static Set<Long> generateConcurrently(IDGenerator generator) throws InterruptedException {
+      Set<Long> ids = ConcurrentHashMap.newKeySet();
+      CountDownLatch done = new CountDownLatch(THREADS);
+      for (int t = 0; t < THREADS; t++) {
+         new Thread(() -> {
+            for (int i = 0; i < IDS; i++)
+               ids.add(generator.nextId());
+
+            done.countDown();
+         }).start();
+      }
+      assertTrue(done.await(TIMEOUT * 16, TimeUnit.MILLISECONDS));
+      return ids;
+   }
+
+   @Test
+   public void simpleGeneratorIsThreadSafe() throws Exception {
+      assertEquals(THREADS * IDS, generateConcurrently(new SimpleIterativeIdGenerator()).size());
+   }
+
+   @Test
+   public void partitionedGeneratorIsThreadSafe() throws Exception {
+      assertEquals(THREADS * IDS, generateConcurrently(new PartitionedIdGenerator(0, 1, 100)).size());
+   }
+
+   @Test
+   public void partitionsDoNotOverlap() throws Exception {
+      Set<Long> even = generateConcurrently(new PartitionedIdGenerator(false));
+      Set<Long> odd = generateConcurrently(new PartitionedIdGenerator(true));
+
+      assertTrue(even.stream().allMatch(id -> id % 2 == 0));
+      assertTrue(odd.stream().allMatch(id -> id % 2 == 1));
+
+      PartitionedIdGenerator third = new PartitionedIdGenerator(2, 3);
+      for (int i = 0; i < IDS; i++)
+         assertEquals(2, third.nextId() % 3);
+   }
+
+   @Test
+   public void invalidPartitionsAreRejected() {
+      assertThrows(IllegalArgumentException.class, () -> new PartitionedIdGenerator(2, 2));
+      assertThrows(IllegalArgumentException.class, () -> new PartitionedIdGenerator(0, 0));
+      assertThrows(IllegalArgumentException.class, () -> new PartitionedIdGenerator(0, 2, 0));
+   }
+
+   @Test
+   public void requestWithAnIdInUseIsRefused() throws Exception {
+      TestChannelHandler<String> handlerA = new TestChannelHandler<>(String.class);
+      TestChannelHandler<String> handlerB = new TestChannelHandler<>(String.class);
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      // Both sides generate the same ids
+      multiplexers[0] = new Multiplexer(new SimpleIterativeIdGenerator(), m -> multiplexers[1].receive(m), handlerA);
+      multiplexers[1] = new Multiplexer(new SimpleIterativeIdGenerator(), m -> multiplexers[0].receive(m), handlerB);
+
+      Channel<String> first = multiplexers[0].establishNewChannel(String.class, TIMEOUT);
+      Channel<String> second = multiplexers[1].establishNewChannel(String.class, TIMEOUT);
+
+      assertNotEquals(first.getId(), second.getId());
+      assertEquals(ChannelState.OPEN, handlerB.getChannel(first.getId()).getState());
+   }
+}
@@ -0,0 +1,133 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class IdleReaperTest {
+   private static final long IDLE_TIMEOUT = 40;
+
+   private final BlockingQueue<CloseReason> closedA = new LinkedBlockingQueue<>();
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<String> handlerB;
+
+   public IdleReaperTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerA = new Multiplexer(idGen,
+                                          m -> multiplexerB.receive(m),
+                                          ChannelHandler.of(String.class,
+                                                            (c, m) -> { },
+                                                            c -> closedA.add(c.getCloseReason())));
+      this.multiplexerB = new Multiplexer(idGen,
+                                          m -> multiplexerA.receive(m),
+                                          handlerB,
+                                          new TestChannelHandler<>(Foo.class));
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      multiplexerA.close();
+      multiplexerB.close();
+   }
+
+   @Test
+   public void idleChannelsAreClosed() throws Exception {
+      multiplexerA.setIdleTimeout(IDLE_TIMEOUT);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<String> remote = handlerB.getChannel(channel.getId());
+      assertNull(channel.getCloseReason());
+
+      assertEquals(CloseReason.IDLE, closedA.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+      assertTrue(channel.isClosed());
+      assertEquals(CloseReason.IDLE, channel.getCloseReason());
+      assertEquals(CloseReason.REMOTE, remote.getCloseReason());
+      assertEquals(0, multiplexerA.getChannelCount());
+      assertEquals(0, multiplexerB.getChannelCount());
+   }
+
+   @Test
+   public void idleChannelsAreClosedOffTheSchedulerThread() throws Exception {
+      ExecutorService executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "idle-closer"));
+      BlockingQueue<String> closingThreads = new LinkedBlockingQueue<>();
+      multiplexerA.addHandler(ChannelHandler.of(String.class,
+                                                (c, m) -> { },
+                                                c -> closingThreads.add(Thread.currentThread().getName())));
+      multiplexerA.setExecutor(executor);
+      multiplexerA.setIdleTimeout(IDLE_TIMEOUT);
+      multiplexerA.establishNewChannel(String.class, TIMEOUT);
+
+      assertEquals("idle-closer", closingThreads.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+      executor.shutdown();
+   }
+
+   @Test
+   public void activeChannelsStayOpen() throws Exception {
+      multiplexerA.setIdleTimeout(IDLE_TIMEOUT);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      for (int i = 0; i < 20; i++) {
+         channel.send("msg" + i);
+         Thread.sleep(IDLE_TIMEOUT / 4);
+      }
+
+      assertFalse(channel.isClosed());
+      multiplexerA.setIdleTimeout(0);
+      Thread.sleep(IDLE_TIMEOUT * 3);
+      assertFalse(channel.isClosed());
+   }
+
+   @Test
+   public void idleTimeoutsOfTypesOverrideTheGlobalOne() throws Exception {
+      multiplexerA.setIdleTimeout(IDLE_TIMEOUT);
+      multiplexerA.setIdleTimeout(String.class, 0);
+      multiplexerA.setIdleTimeout(Foo.class, IDLE_TIMEOUT / 2);
+      assertEquals(0, multiplexerA.getIdleTimeout(String.class));
+      assertEquals(-1, multiplexerA.getIdleTimeout(Bar.class));
+
+      Channel<String> kept = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<Foo> reaped = multiplexerA.establishNewChannel(Foo.class, TIMEOUT);
+      Thread.sleep(IDLE_TIMEOUT * 4);
+
+      assertFalse(kept.isClosed());
+      assertTrue(reaped.isClosed());
+      assertEquals(CloseReason.IDLE, reaped.getCloseReason());
+   }
+
+   @Test
+   public void closeReasonsAreDistinguished() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<String> remote = handlerB.getChannel(channel.getId());
+      channel.close();
+
+      assertEquals(CloseReason.LOCAL, closedA.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+      assertEquals(CloseReason.REMOTE, remote.getCloseReason());
+
+      handlerB.setAcceptChannelRequests(false);
+      Channel<String> refused = multiplexerA.openPipelined(String.class, "a", null);
+      assertTrue(refused.isClosed());
+      assertEquals(CloseReason.REFUSED, refused.getCloseReason());
+   }
+}
@@ -0,0 +1,82 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class ListenerChainTest {
+   private final List<String> received = new ArrayList<>();
+
+   public ListenerChainTest() {
+
+   }
+
+   @Test
+   public void listenersAreCalledInTheOrderTheyWereAdded() {
+      ListenerChain<String> chain = new ListenerChain<>();
+      chain.add(msg -> received.add("a" + msg));
+      chain.add(msg -> received.add("b" + msg));
+      chain.add(msg -> received.add("c" + msg));
+
+      chain.received("1");
+      assertEquals(Arrays.asList("a1", "b1", "c1"), received);
+   }
+
+   @Test
+   public void removedListenerIsNotCalledAnymore() {
+      ListenerChain<String> chain = new ListenerChain<>();
+      ChannelListener<String> a = msg -> received.add("a" + msg);
+      ChannelListener<String> b = msg -> received.add("b" + msg);
+      chain.add(a);
+      chain.add(b);
+
+      assertTrue(chain.remove(a));
+      assertFalse(chain.remove(a));
+      chain.received("1");
+
+      assertEquals(Arrays.asList("b1"), received);
+      assertEquals(1, chain.size());
+   }
+
+   @Test
+   public void listenerCanRemoveItselfWhileReceiving() {
+      ListenerChain<String> chain = new ListenerChain<>();
+      chain.add(new ChannelListener<String>() {
+         @Override
+         public void received(String msg) {
+            received.add("once" + msg);
+            chain.remove(this);
+         }
+      });
+      chain.add(msg -> received.add("always" + msg));
+
+      chain.received("1");
+      chain.received("2");
+      assertEquals(Arrays.asList("once1", "always1", "always2"), received);
+   }
+
+   @Test
+   @SuppressWarnings("deprecation")
+   public void deprecatedChainIsStillALinkedList() {
+      ChannelListener.ChannelListenerChain<String> chain = new ChannelListener.ChannelListenerChain<>();
+      LinkedList<ChannelListener<String>> list = chain;
+      list.add(msg -> received.add("a" + msg));
+      list.add(msg -> received.add("b" + msg));
+      chain.received("1");
+      list.removeFirst();
+      chain.received("2");
+      assertEquals(Arrays.asList("a1", "b1", "b2"), received);
+   }
+}
@@ -0,0 +1,95 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class LongTableTest {
+   private static final int COUNT = 100_000;
+
+   public LongTableTest() {
+
+   }
+
+   @Test
+   public void entriesCanBePutAndRemoved() {
+      LongTable<String> table = new LongTable<>();
+      assertNull(table.put(Long.MIN_VALUE, "min"));
+      assertNull(table.put(0, "zero"));
+      assertNull(table.put(Long.MAX_VALUE, "max"));
+      assertEquals("zero", table.put(0, "null"));
+
+      assertEquals("min", table.get(Long.MIN_VALUE));
+      assertEquals("null", table.get(0));
+      assertEquals("max", table.get(Long.MAX_VALUE));
+      assertNull(table.get(1));
+      assertEquals(3, table.size());
+
+      assertFalse(table.remove(0, "zero"));
+      assertTrue(table.remove(0, "null"));
+      assertNull(table.get(0));
+      assertEquals("max", table.remove(Long.MAX_VALUE));
+      assertNull(table.remove(Long.MAX_VALUE));
+      assertEquals(1, table.size());
+   }
+
+   @Test
+   public void tableGrowsAndShrinks() {
+      LongTable<Long> table = new LongTable<>();
+      for (long key = 0; key < COUNT; key++)
+         table.put(key * 3, key);
+
+      assertEquals(COUNT, table.size());
+      for (long key = 0; key < COUNT; key++)
+         assertEquals(Long.valueOf(key), table.get(key * 3));
+
+      for (long key = 0; key < COUNT; key += 2)
+         table.remove(key * 3);
+
+      assertEquals(COUNT / 2, table.size());
+      assertEquals(COUNT / 2, table.values().size());
+      for (long key = 0; key < COUNT; key++) {
+         if (key % 2 == 0)
+            assertNull(table.get(key * 3));
+         else
+            assertEquals(Long.valueOf(key), table.get(key * 3));
+      }
+   }
+
+   @Test
+   public void lookupsSeeStableEntriesWhileTheTableChanges() throws Exception {
+      LongTable<Long> table = new LongTable<>();
+      table.put(-1, -1L);
+      AtomicBoolean running = new AtomicBoolean(true);
+      AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread reader = new Thread(() -> {
+         while (running.get()) {
+            if (!Long.valueOf(-1).equals(table.get(-1)))
+               failure.set(new AssertionError("Stable entry was not found."));
+         }
+      });
+      reader.start();
+
+      for (int round = 0; round < 10; round++) {
+         for (long key = 0; key < COUNT / 10; key++)
+            table.put(key, key);
+         for (long key = 0; key < COUNT / 10; key++)
+            table.remove(key);
+      }
+      running.set(false);
+      reader.join();
+
+      assertNull(failure.get());
+      assertEquals(1, table.size());
+   }
+}
@@ -0,0 +1,178 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class MetricsTest {
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<String> handlerB;
+
+   public MetricsTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+      multiplexerA.setChannelMetricsEnabled(true);
+      multiplexerB.setChannelMetricsEnabled(true);
+   }
+
+   @Test
+   public void packetsAreCountedPerTypeAndChannel() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<String> other = handlerB.getChannel(channel.getId());
+      List<String> received = new ArrayList<>();
+      other.addListener(received::add);
+      for (int i = 0; i < 3; i++)
+         channel.send("msg" + i);
+
+      MultiplexerMetrics a = multiplexerA.getMetrics();
+      MultiplexerMetrics b = multiplexerB.getMetrics();
+      assertEquals(Long.valueOf(3), a.getPacketsSentByType().get("PAYLOAD"));
+      assertEquals(Long.valueOf(1), a.getPacketsSentByType().get("NEW"));
+      assertEquals(Long.valueOf(1), a.getPacketsSentByType().get("OK"));
+      assertEquals(5, a.getPacketsSent());
+      assertEquals(Long.valueOf(3), b.getPacketsReceivedByType().get("PAYLOAD"));
+      assertEquals(a.getPacketsSent(), b.getPacketsReceived());
+      assertEquals(b.getPacketsSent(), a.getPacketsReceived());
+
+      assertEquals(3, channel.getMetrics().getPacketsSent());
+      assertEquals(3, other.getMetrics().getPacketsReceived());
+      assertEquals(3, other.getMetrics().getDispatches());
+      assertEquals(3, b.getDispatches());
+      assertEquals(1, a.getChannelsOpened());
+      assertEquals(1, b.getChannelsOpened());
+      assertEquals(1, a.getHandshakes());
+      assertTrue(a.getHandshakeMaxNanos() > 0);
+      assertEquals(0, b.getHandshakes());
+   }
+
+   @Test
+   public void channelsAreCountedPerType() throws Exception {
+      Channel<String> first = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<String> second = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      first.send("a");
+      second.send("b");
+      second.send("c");
+
+      ChannelMetrics sent = multiplexerA.getMetrics()
+                                        .getChannelTypeMetrics()
+                                        .get(String.class.getName());
+      ChannelMetrics received = multiplexerB.getMetrics()
+                                            .getChannelTypeMetrics()
+                                            .get(String.class.getName());
+      assertEquals(3, sent.getPacketsSent());
+      assertEquals(3, received.getPacketsReceived());
+      assertEquals(3, received.getDispatches());
+   }
+
+   @Test
+   public void channelMetricsAreDisabledByDefault() throws Exception {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      TestChannelHandler<String> handler = new TestChannelHandler<>(String.class);
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      multiplexers[0] = new Multiplexer(idGen, m -> multiplexers[1].receive(m));
+      multiplexers[1] = new Multiplexer(idGen, m -> multiplexers[0].receive(m), handler);
+      Channel<String> channel = multiplexers[0].establishNewChannel(String.class, TIMEOUT);
+      Channel<String> other = handler.getChannel(channel.getId());
+      List<String> received = new ArrayList<>();
+      other.addListener(received::add);
+      channel.send("msg");
+
+      assertEquals(1, received.size());
+      assertNull(channel.getMetrics());
+      assertNull(other.getMetrics());
+      assertEquals(0, multiplexers[1].getMetrics().getDispatches());
+      assertTrue(multiplexers[1].getMetrics().getChannelTypeMetrics().isEmpty());
+      assertEquals(Long.valueOf(1), multiplexers[0].getMetrics().getPacketsSentByType().get("PAYLOAD"));
+      assertTrue(multiplexers[0].getMetrics().snapshot().getChannels().isEmpty());
+   }
+
+   @Test
+   public void refusedAndClosedChannelsAreCounted() throws Exception {
+      handlerB.setAcceptChannelRequests(false);
+      assertThrows(ChannelDeclinedException.class, () -> multiplexerA.establishNewChannel(String.class, TIMEOUT));
+      assertEquals(1, multiplexerA.getMetrics().getChannelsRefused());
+      assertEquals(1, multiplexerB.getMetrics().getChannelsDeclined());
+
+      handlerB.setAcceptChannelRequests(true);
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      assertEquals(1, multiplexerA.getMetrics().getOpenChannels());
+      channel.close();
+
+      assertEquals(1, multiplexerA.getMetrics().getChannelsClosed());
+      assertEquals(1, multiplexerB.getMetrics().getChannelsClosed());
+      assertEquals(0, multiplexerA.getMetrics().getOpenChannels());
+      assertEquals(0, multiplexerB.getMetrics().getOpenChannels());
+   }
+
+   @Test
+   public void pendingRequestsAndEarlyDataAreGauged() throws Exception {
+      List<Serializable> held = new ArrayList<>();
+      Multiplexer multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(), held::add);
+      multiplexer.openAsync(String.class, null, Duration.ofMillis(TIMEOUT));
+      Channel<String> pipelined = multiplexer.openPipelined(String.class, null, null);
+      pipelined.send("a");
+      pipelined.send("b");
+
+      assertEquals(2, multiplexer.getMetrics().getPendingRequests());
+      assertEquals(2, multiplexer.getMetrics().getEarlyDataQueued());
+      multiplexer.close();
+      assertEquals(0, multiplexer.getMetrics().getEarlyDataQueued());
+   }
+
+   @Test
+   public void snapshotsDoNotChange() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      channel.send("first");
+      MultiplexerMetrics.Snapshot snapshot = multiplexerA.getMetrics().snapshot();
+      channel.send("second");
+
+      assertEquals(Long.valueOf(1), snapshot.getPacketsSentByType().get("PAYLOAD"));
+      assertEquals(1, snapshot.getChannels().get(channel.getId()).getPacketsSent());
+      assertEquals(2, channel.getMetrics().getPacketsSent());
+      assertEquals(1, snapshot.getOpenChannels());
+   }
+
+   @Test
+   public void metricsAreRegisteredAsMBean() throws Exception {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = multiplexerA.getMetrics().registerMBean("MetricsTest-" + System.nanoTime());
+      multiplexerA.establishNewChannel(String.class, TIMEOUT);
+
+      assertEquals(Long.valueOf(1), server.getAttribute(name, "ChannelsOpened"));
+      TabularData channelTypes = (TabularData) server.getAttribute(name, "ChannelTypeMetrics");
+      CompositeData stringChannels = channelTypes.get(new Object[] {String.class.getName()});
+      assertEquals(0L, ((CompositeData) stringChannels.get("value")).get("packetsSent"));
+      assertThrows(IllegalStateException.class, () -> multiplexerA.getMetrics().registerMBean("again"));
+      multiplexerA.close();
+      assertFalse(server.isRegistered(name));
+   }
+}
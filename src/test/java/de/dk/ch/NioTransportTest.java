@@ -0,0 +1,285 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static de.dk.ch.TestObject.DEFAULT_MSG;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class NioTransportTest {
+   private static final long NIO_TIMEOUT = TIMEOUT * 8;
+
+   private NioEventLoop serverLoop;
+   private NioEventLoop clientLoop;
+   private SocketAddress address;
+
+   private TestChannelHandler<String> serverHandler;
+   private final BlockingQueue<Multiplexer> serverMultiplexers = new LinkedBlockingQueue<>();
+
+   public NioTransportTest() {
+
+   }
+
+   @BeforeEach
+   public void init() throws IOException {
+      this.serverHandler = new TestChannelHandler<>(String.class);
+      this.serverLoop = new NioEventLoop();
+      this.clientLoop = new NioEventLoop();
+      serverLoop.start();
+      clientLoop.start();
+      SocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+      this.address = serverLoop.listen(any, connection -> {
+         Multiplexer multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(false), connection, serverHandler);
+         multiplexer.setChannelMetricsEnabled(true);
+         connection.setByteCounter(multiplexer.getMetrics());
+         serverMultiplexers.offer(multiplexer);
+         return multiplexer;
+      });
+   }
+
+   private Multiplexer connect() throws IOException {
+      return (Multiplexer) clientLoop.connect(address, connection -> {
+         Multiplexer multiplexer = new Multiplexer(new SimpleIterativeIdGenerator(), connection);
+         multiplexer.setChannelMetricsEnabled(true);
+         connection.setByteCounter(multiplexer.getMetrics());
+         return multiplexer;
+      }).getReceiver();
+   }
+
+   @Test
+   public void messagesGoThroughBothDirections() throws Exception {
+      Multiplexer client = connect();
+      Channel<String> clientChannel = client.establishNewChannel(String.class, NIO_TIMEOUT);
+      Channel<String> serverChannel = serverHandler.getChannel(clientChannel.getId());
+      assertNotNull(serverChannel, "Channel on other side not established.");
+
+      TestChannelListener<String> serverListener = new TestChannelListener<>();
+      TestChannelListener<String> clientListener = new TestChannelListener<>();
+      serverChannel.addListener(serverListener);
+      clientChannel.addListener(clientListener);
+
+      clientChannel.send(DEFAULT_MSG);
+      assertEquals(DEFAULT_MSG, serverListener.waitGetAndThrowAwayPacket(NIO_TIMEOUT));
+      serverChannel.send(DEFAULT_MSG);
+      assertEquals(DEFAULT_MSG, clientListener.waitGetAndThrowAwayPacket(NIO_TIMEOUT));
+
+      assertTrue(client.getMetrics().getBytesSent() > 0);
+      assertTrue(client.getMetrics().getBytesReceived() > 0);
+      assertTrue(clientChannel.getMetrics().getBytesSent() > 0);
+      assertTrue(serverChannel.getMetrics().getBytesReceived() > 0);
+      NioConnection connection = (NioConnection) client.getSender();
+      assertEquals(client.getMetrics().getBytesSent(), connection.getBytesSent());
+   }
+
+   @Test
+   public void oneEventLoopServesManyConnections() throws Exception {
+      List<Channel<String>> channels = new ArrayList<>();
+      for (int i = 0; i < 64; i++)
+         channels.add(connect().establishNewChannel(String.class, NIO_TIMEOUT));
+
+      BlockingQueue<String> received = new LinkedBlockingQueue<>();
+      for (Channel<String> channel : channels)
+         serverHandler.getChannel(channel.getId()).addListener(received::offer);
+
+      for (Channel<String> channel : channels)
+         channel.send(DEFAULT_MSG);
+
+      for (int i = 0; i < channels.size(); i++)
+         assertEquals(DEFAULT_MSG, received.poll(NIO_TIMEOUT, TimeUnit.MILLISECONDS));
+   }
+
+   @Test
+   public void closingTheConnectionClosesTheMultiplexerOnTheOtherSide() throws Exception {
+      Multiplexer client = connect();
+      Channel<String> channel = client.establishNewChannel(String.class, NIO_TIMEOUT);
+      Multiplexer server = serverMultiplexers.poll(NIO_TIMEOUT, TimeUnit.MILLISECONDS);
+      assertNotNull(server);
+
+      ((NioConnection) client.getSender()).close();
+      long deadline = System.currentTimeMillis() + NIO_TIMEOUT;
+      // The event loop closes the multiplexer of the client after the socket, the server may notice it earlier
+      while ((!server.isClosed() || !channel.isClosed()) && System.currentTimeMillis() < deadline)
+         Thread.sleep(8);
+
+      assertTrue(server.isClosed(), "Multiplexer of the other side was not closed with the connection.");
+      assertTrue(channel.isClosed(), "Channel was not closed with the connection.");
+   }
+
+   @Test
+   public void sendersWaitForASlowPeer() throws Exception {
+      int frameSize = 64 * 1024;
+      int highWaterMark = 4 * frameSize;
+      clientLoop.setWriteBufferWaterMarks(frameSize, highWaterMark);
+      try (ServerSocketChannel server = ServerSocketChannel.open()) {
+         server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+         NioConnection connection = clientLoop.connect(server.getLocalAddress(), c -> msg -> { });
+         // The peer accepts the connection, but never reads from it
+         try (SocketChannel peer = server.accept()) {
+            BlockingQueue<IOException> failure = new LinkedBlockingQueue<>();
+            Thread sender = new Thread(() -> {
+               try {
+                  for (int i = 0; i < 1024; i++)
+                     connection.send(new PayloadPacket(1, new byte[frameSize]));
+               } catch (IOException e) {
+                  failure.offer(e);
+               }
+            });
+            sender.start();
+            sender.join(NIO_TIMEOUT);
+            assertTrue(sender.isAlive(), "Sender did not wait for the slow peer.");
+            assertTrue(connection.getQueuedBytes() <= highWaterMark + 2 * frameSize,
+                       "Queue exceeded the high water mark: " + connection.getQueuedBytes());
+
+            connection.close();
+            sender.join(NIO_TIMEOUT);
+            assertFalse(sender.isAlive(), "Sender still waiting after the connection was closed.");
+            assertTrue(failure.poll() instanceof ClosedException);
+         }
+      }
+   }
+
+   @Test
+   public void pipelinedSendersDoNotBlockTheAcceptance() throws Exception {
+      int frameSize = 64 * 1024;
+      clientLoop.setWriteBufferWaterMarks(frameSize, 2 * frameSize);
+      SocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+      // The server accepts the channel late, so the sender already waits for the connection, when the acceptance arrives
+      ChannelHandler<byte[]> slowHandler = ChannelHandler.of(byte[].class, (channel, initialMsg) -> {
+         try {
+            Thread.sleep(NIO_TIMEOUT / 2);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      });
+      SocketAddress slowAddress = serverLoop.listen(any, connection -> new Multiplexer(new SimpleIterativeIdGenerator(false),
+                                                                                      connection,
+                                                                                      slowHandler));
+      Multiplexer client = (Multiplexer) clientLoop.connect(slowAddress,
+                                                            connection -> new Multiplexer(new SimpleIterativeIdGenerator(),
+                                                                                          connection))
+                                                   .getReceiver();
+
+      Channel<byte[]> channel = client.openPipelined(byte[].class, null, new ChannelOptions());
+      BlockingQueue<Exception> failure = new LinkedBlockingQueue<>();
+      Thread sender = new Thread(() -> {
+         try {
+            for (int i = 0; i < ChannelOptions.DEFAULT_EARLY_DATA_LIMIT; i++)
+               channel.send(new byte[frameSize]);
+         } catch (Exception e) {
+            failure.offer(e);
+         }
+      });
+      sender.start();
+      sender.join(NIO_TIMEOUT * 8);
+      assertFalse(sender.isAlive(), "Sender and the acceptance of the channel block each other.");
+      assertTrue(failure.isEmpty(), "Sender failed: " + failure.peek());
+      channel.waitToOpen(NIO_TIMEOUT);
+      assertEquals(ChannelState.OPEN, channel.getState());
+   }
+
+   @Test
+   public void fairSchedulerNeverBlocksTheEventLoop() throws Exception {
+      int frameSize = 64 * 1024;
+      assertEventLoopNeverWaits(frameSize,
+                                connection -> new FairScheduler(connection, 4),
+                                scheduler -> assertEquals(4, ((FairScheduler) scheduler).getQueuedCount(),
+                                                          "Queue of the channel did not fill up."),
+                                new PayloadPacket(1, new byte[frameSize]));
+   }
+
+   @Test
+   public void batchingSenderNeverBlocksTheEventLoop() throws Exception {
+      assertEventLoopNeverWaits(64 * 1024,
+                                connection -> new BatchingSender(connection, 4, 0),
+                                sender -> { },
+                                new ChannelPacket(1, ChannelPacketType.CLOSE));
+   }
+
+   /**
+    * Lets two threads send through the given sender in front of a connection, that is never read,
+    * until they wait for the connection. Then the event loop sends the <code>reply</code>,
+    * e.g. a listener replying on the event loop, that must not wait for them.
+    */
+   private void assertEventLoopNeverWaits(int frameSize,
+                                          Function<NioConnection, Sender> senderOf,
+                                          Consumer<Sender> blocked,
+                                          Packet reply) throws Exception {
+      clientLoop.setWriteBufferWaterMarks(frameSize, 2 * frameSize);
+      try (ServerSocketChannel server = ServerSocketChannel.open()) {
+         server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+         NioConnection connection = clientLoop.connect(server.getLocalAddress(), c -> msg -> { });
+         Sender sender = senderOf.apply(connection);
+         try (SocketChannel peer = server.accept()) {
+            List<Thread> senders = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+               Thread thread = new Thread(() -> {
+                  try {
+                     while (true)
+                        sender.send(new PayloadPacket(1, new byte[frameSize]));
+                  } catch (IOException e) {
+                     // The connection has been closed
+                  }
+               });
+               thread.start();
+               senders.add(thread);
+            }
+            // The socket buffers fill up first, then the senders stop
+            long deadline = System.currentTimeMillis() + NIO_TIMEOUT * 8;
+            long sent;
+            do {
+               sent = connection.getBytesSent();
+               Thread.sleep(TIMEOUT / 4);
+            } while (sent != connection.getBytesSent() && System.currentTimeMillis() < deadline);
+            blocked.accept(sender);
+
+            BlockingQueue<Object> replied = new LinkedBlockingQueue<>();
+            clientLoop.execute(() -> {
+               try {
+                  sender.send(reply);
+                  replied.offer(true);
+               } catch (IOException e) {
+                  replied.offer(e);
+               }
+            });
+            assertEquals(true, replied.poll(NIO_TIMEOUT, TimeUnit.MILLISECONDS), "Event loop waited for the senders.");
+
+            connection.close();
+            for (Thread thread : senders) {
+               thread.join(NIO_TIMEOUT);
+               assertFalse(thread.isAlive(), "Sender still waiting after the connection was closed.");
+            }
+         }
+      }
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      clientLoop.close();
+      serverLoop.close();
+   }
+}
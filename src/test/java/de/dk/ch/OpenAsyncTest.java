@@ -0,0 +1,106 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class OpenAsyncTest {
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<String> handlerB;
+
+   public OpenAsyncTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+   }
+
+   private static Throwable causeOf(CompletableFuture<?> future) {
+      ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+      return e.getCause();
+   }
+
+   @Test
+   public void openAsyncCompletesWithAnOpenChannel() throws Exception {
+      CompletableFuture<Channel<String>> future = multiplexerA.openAsync(String.class, "hello", Duration.ofSeconds(1));
+      Channel<String> channel = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+      assertEquals(ChannelState.OPEN, channel.getState());
+      assertNotNull(handlerB.getChannel(channel.getId()));
+   }
+
+   @Test
+   public void refusedRequestCompletesExceptionally() throws Exception {
+      handlerB.setAcceptChannelRequests(false);
+      CompletableFuture<Channel<String>> future = multiplexerA.openAsync(String.class, null, null);
+
+      assertTrue(causeOf(future) instanceof ChannelDeclinedException);
+   }
+
+   @Test
+   public void unansweredRequestTimesOutWithoutWaitingThreads() throws Exception {
+      Multiplexer silent = new Multiplexer(new SimpleIterativeIdGenerator(), msg -> {});
+      int threads = Thread.activeCount();
+      List<CompletableFuture<Channel<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < 1000; i++)
+         futures.add(silent.openAsync(String.class, null, Duration.ofMillis(50)));
+
+      assertTrue(Thread.activeCount() <= threads + 1, "Opening channels asynchronously started threads.");
+      for (CompletableFuture<Channel<String>> future : futures)
+         assertTrue(causeOf(future) instanceof TimeoutException);
+   }
+
+   @Test
+   public void lateAcceptedChannelsAreClosed() throws Exception {
+      Queue<Serializable> held = new ConcurrentLinkedQueue<>();
+      Multiplexer slowB = new Multiplexer(new SimpleIterativeIdGenerator(), held::offer, handlerB);
+      Multiplexer requester = new Multiplexer(new SimpleIterativeIdGenerator(), slowB::receive);
+      CompletableFuture<Channel<String>> future = requester.openAsync(String.class, null, Duration.ofMillis(20));
+
+      assertTrue(causeOf(future) instanceof TimeoutException);
+      assertEquals(0, requester.getMetrics().getPendingRequests());
+      ChannelAcceptedPacket accepted = (ChannelAcceptedPacket) held.poll();
+      Channel<String> acceptedChannel = handlerB.getChannel(accepted.channelId);
+      assertEquals(ChannelState.OPENING, acceptedChannel.getState());
+
+      requester.receive(accepted);
+      assertTrue(acceptedChannel.isClosed());
+      assertNull(requester.getChannel(accepted.channelId));
+   }
+
+   @Test
+   public void closingTheMultiplexerFailsPendingRequests() throws Exception {
+      Multiplexer silent = new Multiplexer(new SimpleIterativeIdGenerator(), msg -> {});
+      CompletableFuture<Channel<String>> future = silent.openAsync(String.class, null, null);
+      silent.close();
+
+      assertTrue(causeOf(future) instanceof ClosedException);
+   }
+}
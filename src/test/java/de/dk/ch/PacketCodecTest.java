@@ -0,0 +1,209 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class PacketCodecTest {
+   private final PacketCodec binary = new BinaryPacketCodec();
+   private final PacketCodec serializing = new SerializingPacketCodec();
+
+   public PacketCodecTest() {
+
+   }
+
+   private static Packet roundTrip(PacketCodec codec, Packet packet) throws IOException {
+      ByteBuffer frame = codec.encode(packet);
+      Packet decoded = codec.decode(frame);
+      assertFalse(frame.hasRemaining(), "The frame was not read completely.");
+      assertEquals(packet.getClass(), decoded.getClass());
+      assertEquals(packet.channelId, decoded.channelId);
+      return decoded;
+   }
+
+   @Test
+   public void payloadPacketsSurviveTheRoundTrip() throws IOException {
+      for (PacketCodec codec : new PacketCodec[] {binary, serializing}) {
+         PayloadPacket string = (PayloadPacket) roundTrip(codec, new PayloadPacket(42, "Hello"));
+         assertEquals("Hello", string.getPayload());
+
+         byte[] bytes = {1, 2, 3};
+         PayloadPacket array = (PayloadPacket) roundTrip(codec, new PayloadPacket(-7, bytes));
+         assertArrayEquals(bytes, (byte[]) array.getPayload());
+
+         PayloadPacket object = (PayloadPacket) roundTrip(codec, new PayloadPacket(Long.MIN_VALUE, new Message("obj")));
+         assertEquals(new Message("obj"), object.getPayload());
+
+         PayloadPacket empty = (PayloadPacket) roundTrip(codec, new PayloadPacket(Long.MAX_VALUE, null));
+         assertNull(empty.getPayload());
+
+         FragmentPacket fragment = (FragmentPacket) roundTrip(codec, new FragmentPacket(11, FragmentPacket.ENCODING_STRING, true, bytes));
+         assertEquals(FragmentPacket.ENCODING_STRING, fragment.getEncoding());
+         assertTrue(fragment.isLast());
+         assertArrayEquals(bytes, fragment.getData());
+         assertFalse(fragment.isCompressed());
+
+         FragmentPacket compressed = (FragmentPacket) roundTrip(codec, new FragmentPacket(12, FragmentPacket.ENCODING_BYTES, false, true, bytes));
+         assertFalse(compressed.isLast());
+         assertTrue(compressed.isCompressed());
+      }
+   }
+
+   @Test
+   public void alreadySerializedPayloadsAreNotSerializedAgain() throws IOException {
+      int[] serializations = {0};
+      PayloadSerializer counting = new JavaPayloadSerializer() {
+         @Override
+         public byte[] serialize(Object payload) throws IOException {
+            serializations[0]++;
+            return super.serialize(payload);
+         }
+      };
+      PacketCodec codec = new BinaryPacketCodec(counting);
+      byte[] serialized = counting.serialize(new Message("obj"));
+
+      PayloadPacket packet = (PayloadPacket) roundTrip(codec, new PayloadPacket(1, new Message("obj"), counting, serialized));
+      assertEquals(new Message("obj"), packet.getPayload());
+      assertEquals(1, serializations[0]);
+
+      // The bytes of another serializer are not trusted
+      byte[] foreign = new JavaPayloadSerializer().serialize(new Message("obj"));
+      roundTrip(codec, new PayloadPacket(2, new Message("obj"), new JavaPayloadSerializer(), foreign));
+      assertEquals(2, serializations[0]);
+   }
+
+   @Test
+   public void controlPacketsSurviveTheRoundTrip() throws IOException {
+      for (PacketCodec codec : new PacketCodec[] {binary, serializing}) {
+         NewChannelRequestPacket request = (NewChannelRequestPacket) roundTrip(codec, new NewChannelRequestPacket(1, String.class, "init"));
+         assertEquals(String.class, request.getType());
+         assertEquals("init", request.getInitialMessage().get());
+
+         ChannelPacket ok = (ChannelPacket) roundTrip(codec, new ChannelPacket(2, ChannelPacketType.OK));
+         assertEquals(ChannelPacketType.OK, ok.getPacketType());
+
+         ChannelPacket close = (ChannelPacket) roundTrip(codec, new ChannelPacket(3, ChannelPacketType.CLOSE));
+         assertEquals(ChannelPacketType.CLOSE, close.getPacketType());
+
+         ChannelPacket reset = (ChannelPacket) roundTrip(codec, new ChannelPacket(10, ChannelPacketType.RESET));
+         assertEquals(ChannelPacketType.RESET, reset.getPacketType());
+
+         PingPacket ping = (PingPacket) roundTrip(codec, new PingPacket(ChannelPacketType.PING, -42L));
+         assertEquals(ChannelPacketType.PING, ping.getPacketType());
+         assertEquals(-42L, ping.getTimestamp());
+
+         PingPacket pong = (PingPacket) roundTrip(codec, new PingPacket(ChannelPacketType.PONG, Long.MAX_VALUE));
+         assertEquals(ChannelPacketType.PONG, pong.getPacketType());
+         assertEquals(Long.MAX_VALUE, pong.getTimestamp());
+
+         CloseChannelPacket closeMsg = (CloseChannelPacket) roundTrip(codec, new CloseChannelPacket(4, "bye"));
+         assertEquals("bye", closeMsg.getMsg());
+
+         ChannelAcceptedPacket accepted = (ChannelAcceptedPacket) roundTrip(codec, new ChannelAcceptedPacket(6, 64));
+         assertEquals(64, accepted.getWindow());
+         assertNull(accepted.getCompression());
+
+         ChannelAcceptedPacket deflate = (ChannelAcceptedPacket) roundTrip(codec, new ChannelAcceptedPacket(6, 64, DeflateCompression.NAME));
+         assertEquals(DeflateCompression.NAME, deflate.getCompression());
+
+         WindowUpdatePacket update = (WindowUpdatePacket) roundTrip(codec, new WindowUpdatePacket(7, 32));
+         assertEquals(32, update.getCredit());
+
+         NewChannelRequestPacket windowed = (NewChannelRequestPacket) roundTrip(codec, new NewChannelRequestPacket(8, String.class, null, 16, 3));
+         assertEquals(16, windowed.getWindow());
+         assertEquals(3, windowed.getWeight());
+         assertFalse(windowed.isPipelined());
+
+         NewChannelRequestPacket pipelined = (NewChannelRequestPacket) roundTrip(codec, new NewChannelRequestPacket(9, String.class, "early", 16, 1, true));
+         assertTrue(pipelined.isPipelined());
+         assertEquals("early", pipelined.getInitialMessage().get());
+
+         List<String> compressions = Arrays.asList("zstd", DeflateCompression.NAME);
+         NewChannelRequestPacket compressing = (NewChannelRequestPacket) roundTrip(codec, new NewChannelRequestPacket(11, String.class, "init", 16, 1, false, compressions));
+         assertEquals(compressions, compressing.getCompressions());
+         assertEquals("init", compressing.getInitialMessage().get());
+
+         ChannelDeclinedException declined = new ChannelDeclinedException("no");
+         ChannelRefusedPacket refused = (ChannelRefusedPacket) roundTrip(codec, new ChannelRefusedPacket(5, "refused", declined));
+         assertEquals("refused", refused.getMsg());
+         assertTrue(refused.getException() instanceof ChannelDeclinedException);
+         assertEquals("no", refused.getException().getMessage());
+      }
+   }
+
+   @Test
+   public void batchesSurviveTheRoundTrip() throws IOException {
+      PacketBatch batch = new PacketBatch(new PayloadPacket(1, "a"),
+                                          new ChannelPacket(2, ChannelPacketType.CLOSE),
+                                          new PayloadPacket(3, "b"));
+      for (PacketCodec codec : new PacketCodec[] {binary, serializing}) {
+         PacketBatch decoded = (PacketBatch) roundTrip(codec, batch);
+         assertEquals(3, decoded.size());
+         assertEquals("a", ((PayloadPacket) decoded.getPackets().get(0)).getPayload());
+         assertEquals(2, decoded.getPackets().get(1).channelId);
+         assertEquals("b", ((PayloadPacket) decoded.getPackets().get(2)).getPayload());
+      }
+   }
+
+   @Test
+   public void controlPacketsAreOnlyAFewBytes() throws IOException {
+      assertEquals(3, binary.encode(new ChannelPacket(1, ChannelPacketType.OK)).remaining());
+      assertEquals(3, binary.encode(new ChannelPacket(-1, ChannelPacketType.CLOSE)).remaining());
+   }
+
+   @Test
+   public void incompleteFramesAreNotDecoded() throws IOException {
+      ByteBuffer frame = binary.encode(new PayloadPacket(300, "Hello"));
+      ByteBuffer stream = ByteBuffer.allocate(frame.remaining() * 2);
+      stream.put(frame.duplicate());
+      stream.put(frame.duplicate());
+
+      for (int length = 0; length < frame.remaining(); length++) {
+         ByteBuffer partial = (ByteBuffer) stream.duplicate().flip();
+         partial.limit(length);
+         assertNull(binary.decode(partial));
+         assertEquals(0, partial.position(), "The position moved while decoding an incomplete frame.");
+      }
+
+      stream.flip();
+      assertEquals("Hello", ((PayloadPacket) binary.decode(stream)).getPayload());
+      assertEquals("Hello", ((PayloadPacket) binary.decode(stream)).getPayload());
+      assertNull(binary.decode(stream));
+   }
+
+   private static class Message implements Serializable {
+      private static final long serialVersionUID = 1L;
+
+      private final String text;
+
+      Message(String text) {
+         this.text = text;
+      }
+
+      @Override
+      public int hashCode() {
+         return text.hashCode();
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         return obj instanceof Message && ((Message) obj).text.equals(text);
+      }
+   }
+}
@@ -0,0 +1,142 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.ChannelPacket.ChannelPacketType;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class PingTest {
+   private static final long PING_INTERVAL = 10;
+
+   private volatile boolean answering = true;
+   private volatile boolean blocking = false;
+   private final CountDownLatch unblocked = new CountDownLatch(1);
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+
+   public PingTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      // A peer, that does not read anymore, is faked by blocking the sender of A
+      this.multiplexerA = new Multiplexer(idGen, m -> {
+         if (blocking)
+            awaitUnblocked();
+
+         multiplexerB.receive(m);
+      });
+      // A dead peer is faked by dropping the pongs of B
+      this.multiplexerB = new Multiplexer(idGen, m -> {
+         if (answering || !(m instanceof PingPacket))
+            multiplexerA.receive(m);
+      }, new TestChannelHandler<>(String.class));
+   }
+
+   private void awaitUnblocked() throws InterruptedIOException {
+      try {
+         unblocked.await();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException();
+      }
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      unblocked.countDown();
+      multiplexerA.close();
+      multiplexerB.close();
+   }
+
+   private static void awaitClosed(Multiplexer multiplexer, Channel<?> channel, long timeout) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + timeout;
+      // The multiplexer is closed on a worker thread, it is marked closed before its channels are closed
+      while (!(multiplexer.isClosed() && channel.isClosed()) && System.currentTimeMillis() < deadline)
+         Thread.sleep(1);
+   }
+
+   @Test
+   public void pingMeasuresTheRoundTripTime() throws Exception {
+      assertEquals(0, multiplexerA.getSmoothedRttNanos());
+      multiplexerA.ping();
+
+      assertTrue(multiplexerA.getSmoothedRttNanos() > 0);
+      assertTrue(multiplexerA.getRttTimeoutNanos() >= multiplexerA.getSmoothedRttNanos());
+      assertEquals(0, multiplexerB.getSmoothedRttNanos());
+      assertEquals(Long.valueOf(1), multiplexerB.getMetrics().getPacketsSentByType().get("PONG"));
+   }
+
+   @Test
+   public void rttIsSmoothedAsSpecifiedInRfc6298() {
+      RttEstimator rtt = new RttEstimator();
+      rtt.sample(800);
+      assertEquals(800, rtt.getSmoothed());
+      assertEquals(400, rtt.getVariation());
+
+      rtt.sample(1600);
+      // RTTVAR = 3/4 * 400 + 1/4 * |800 - 1600|, SRTT = 7/8 * 800 + 1/8 * 1600
+      assertEquals(500, rtt.getVariation());
+      assertEquals(900, rtt.getSmoothed());
+      assertEquals(900 + 4 * 500, rtt.getTimeout());
+   }
+
+   @Test
+   public void answeredPingsKeepTheChannelsOpen() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      multiplexerA.setMaxMissedPongs(2);
+      multiplexerA.setPingInterval(PING_INTERVAL);
+      Thread.sleep(PING_INTERVAL * 10);
+
+      assertFalse(multiplexerA.isClosed());
+      assertFalse(channel.isClosed());
+      assertTrue(multiplexerA.getSmoothedRttNanos() > 0);
+   }
+
+   @Test
+   public void missedPongsCloseAllChannels() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      answering = false;
+      multiplexerA.setMaxMissedPongs(2);
+      multiplexerA.setPingInterval(PING_INTERVAL);
+      awaitClosed(multiplexerA, channel, TIMEOUT * 4);
+
+      assertTrue(multiplexerA.isClosed());
+      assertTrue(channel.isClosed());
+   }
+
+   @Test
+   public void blockedPingsCloseAllChannels() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      blocking = true;
+      multiplexerA.setMaxMissedPongs(2);
+      multiplexerA.setPingInterval(PING_INTERVAL);
+      awaitClosed(multiplexerA, channel, TIMEOUT * 4);
+
+      assertTrue(multiplexerA.isClosed(), "The multiplexer was not closed, while its pings were blocked.");
+      assertTrue(channel.isClosed());
+   }
+
+   @Test
+   public void invalidSettingsAreRejected() {
+      assertThrows(IllegalArgumentException.class, () -> multiplexerA.setMaxMissedPongs(0));
+      assertThrows(IllegalArgumentException.class, () -> new PingPacket(ChannelPacketType.OK, 0));
+   }
+}
@@ -0,0 +1,203 @@
+package de.dk.ch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class PipelinedOpenTest {
+   private final Queue<Serializable> toA = new ConcurrentLinkedQueue<>();
+   private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+   private volatile boolean accept = true;
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+
+   public PipelinedOpenTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      ChannelHandler<String> handlerB = ChannelHandler.of(String.class, (channel, initialMsg) -> {
+         if (!accept)
+            throw new ChannelDeclinedException("Not accepting channels right now");
+
+         channel.addListener(received::add);
+      });
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      // The answers of B are held back, until the test delivers them
+      this.multiplexerB = new Multiplexer(idGen, toA::offer, handlerB);
+   }
+
+   private void deliverToA(int count) {
+      for (int i = 0; i < count && !toA.isEmpty(); i++)
+         multiplexerA.receive(toA.poll());
+   }
+
+   @Test
+   public void acceptingSideIsNotLimitedWhileOpening() throws Exception {
+      int count = ChannelOptions.DEFAULT_EARLY_DATA_LIMIT * 2;
+      Multiplexer[] multiplexers = new Multiplexer[2];
+      // The accepting handler sends on the receiving thread, before its channel is open
+      ChannelHandler<String> handler = ChannelHandler.of(String.class, (channel, initialMsg) -> {
+         try {
+            for (int i = 0; i < count; i++)
+               channel.send("msg" + i);
+         } catch (IOException e) {
+            throw new ChannelDeclinedException(e.toString());
+         }
+      });
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      multiplexers[0] = new Multiplexer(idGen, m -> multiplexers[1].receive(m));
+      multiplexers[1] = new Multiplexer(idGen, m -> multiplexers[0].receive(m), handler);
+
+      Thread opener = new Thread(() -> {
+         try {
+            multiplexers[0].establishNewChannel(String.class, SimpleChannelTest.TIMEOUT);
+         } catch (Exception e) {
+            throw new RuntimeException(e);
+         }
+      });
+      opener.start();
+      opener.join(SimpleChannelTest.TIMEOUT * 4);
+      assertFalse(opener.isAlive(), "The accepting side waited for its own channel to open.");
+      multiplexers[0].close();
+      multiplexers[1].close();
+   }
+
+   @Test
+   public void messagesArriveBeforeTheChannelIsAccepted() throws Exception {
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, null);
+      channel.send("a");
+      channel.send("b");
+
+      assertEquals(ChannelState.OPENING, channel.getState());
+      assertEquals(Arrays.asList("a", "b"), received);
+
+      deliverToA(Integer.MAX_VALUE);
+      assertEquals(ChannelState.OPEN, channel.getState());
+      channel.send("c");
+      assertEquals(Arrays.asList("a", "b", "c"), received);
+   }
+
+   @Test
+   public void refusedChannelHandsBackItsMessages() throws Exception {
+      accept = false;
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, null);
+      channel.send("a");
+      channel.send("b");
+
+      deliverToA(Integer.MAX_VALUE);
+      assertTrue(channel.isClosed());
+      ChannelRefusedException e = assertThrows(ChannelRefusedException.class, () -> channel.send("c"));
+      assertEquals(Arrays.asList("a", "b"), e.getUndelivered());
+      assertTrue(e.getCause() instanceof ChannelDeclinedException);
+      assertTrue(received.isEmpty());
+   }
+
+   @Test
+   public void earlyDataIsBounded() throws Exception {
+      multiplexerA.setSendTimeout(0);
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, new ChannelOptions().setEarlyDataLimit(2));
+      channel.send("a");
+      channel.send("b");
+
+      assertThrows(FlowControlException.class, () -> channel.send("c"));
+      deliverToA(Integer.MAX_VALUE);
+      channel.send("c");
+      assertEquals(Arrays.asList("a", "b", "c"), received);
+   }
+
+   @Test
+   public void earlyDataCostsItsCredit() throws Exception {
+      multiplexerB.setInitialWindow(4);
+      multiplexerA.setSendTimeout(0);
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, null);
+      channel.send("a");
+      channel.send("b");
+      channel.send("c");
+
+      // Only the answer, not the credit granted for the consumed messages
+      deliverToA(1);
+      channel.send("d");
+      assertThrows(FlowControlException.class, () -> channel.send("e"));
+   }
+
+   @Test
+   public void senderWaitsForCreditWhenTheChannelOpensWhileItWaits() throws Exception {
+      multiplexerB.setInitialWindow(1);
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, new ChannelOptions().setEarlyDataLimit(1));
+      channel.send("a");
+      // The early data is full, the sender waits for the channel to open
+      Thread blocked = new Thread(() -> {
+         try {
+            channel.send("b");
+         } catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      });
+      blocked.start();
+      blocked.join(SimpleChannelTest.TIMEOUT / 2);
+      assertTrue(blocked.isAlive(), "Send did not wait with full early data.");
+
+      // Only the answer, the early data takes the whole window
+      deliverToA(1);
+      blocked.join(SimpleChannelTest.TIMEOUT / 2);
+      assertTrue(blocked.isAlive(), "Send did not wait for credit after the channel opened.");
+      assertEquals(Arrays.asList("a"), received);
+
+      deliverToA(Integer.MAX_VALUE);
+      blocked.join(SimpleChannelTest.TIMEOUT);
+      assertFalse(blocked.isAlive(), "Send still waiting after credit was granted.");
+      assertEquals(Arrays.asList("a", "b"), received);
+   }
+
+   @Test
+   public void acceptingSideKeepsItsEarlyDataWithinTheWindow() throws Exception {
+      int window = 4;
+      List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+      // The accepting handler sends on the receiving thread, before its channel is open
+      multiplexerB.addHandler(ChannelHandler.of(Integer.class, (channel, initialMsg) -> {
+         try {
+            for (int i = 0; i <= window; i++)
+               channel.send(i);
+         } catch (IOException e) {
+            failures.add(e);
+         }
+      }));
+      multiplexerA.setInitialWindow(window);
+      multiplexerA.openPipelined(Integer.class, null, null);
+
+      assertEquals(1, failures.size());
+      assertTrue(failures.get(0) instanceof FlowControlException);
+   }
+
+   @Test
+   public void closingAnOpeningChannelWithdrawsTheRequest() throws Exception {
+      Channel<String> channel = multiplexerA.openPipelined(String.class, null, null);
+      channel.close();
+
+      assertTrue(channel.isClosed());
+      deliverToA(Integer.MAX_VALUE);
+      assertTrue(channel.isClosed());
+      assertEquals(null, multiplexerA.getChannel(channel.getId()));
+   }
+}
@@ -0,0 +1,145 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.dk.ch.StripedMultiplexer.Striping;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class StripedMultiplexerTest {
+   private static final int STRIPES = 3;
+
+   private StripedMultiplexer multiplexerA;
+   private StripedMultiplexer multiplexerB;
+   private TestChannelHandler<String> handlerB;
+
+   public StripedMultiplexerTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      List<Sender> sendersA = new ArrayList<>();
+      List<Sender> sendersB = new ArrayList<>();
+      for (int i = 0; i < STRIPES; i++) {
+         int stripe = i;
+         sendersA.add(m -> multiplexerB.getStripe(stripe).receive(m));
+         sendersB.add(m -> multiplexerA.getStripe(stripe).receive(m));
+      }
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerA = new StripedMultiplexer(new PartitionedIdGenerator(false), sendersA);
+      this.multiplexerB = new StripedMultiplexer(new PartitionedIdGenerator(true), sendersB, handlerB);
+   }
+
+   @AfterEach
+   public void cleanUp() {
+      multiplexerA.close();
+      multiplexerB.close();
+   }
+
+   private static int stripeOf(StripedMultiplexer multiplexer, Channel<?> channel) {
+      for (int i = 0; i < multiplexer.getStripeCount(); i++) {
+         if (multiplexer.getStripe(i).getChannel(channel.getId()) == channel)
+            return i;
+      }
+      return -1;
+   }
+
+   @Test
+   public void channelsAreSpreadOverAllStripes() throws Exception {
+      Set<Long> ids = new HashSet<>();
+      int[] channelsPerStripe = new int[STRIPES];
+      for (int i = 0; i < 60; i++) {
+         Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+         assertTrue(ids.add(channel.getId()));
+         assertSame(channel, multiplexerA.getChannel(channel.getId()));
+         channelsPerStripe[stripeOf(multiplexerA, channel)]++;
+      }
+
+      for (int count : channelsPerStripe)
+         assertTrue(count > 0, "A stripe got no channel.");
+
+      assertEquals(60, multiplexerA.getChannelCount());
+      assertEquals(60, multiplexerB.getChannelCount());
+   }
+
+   @Test
+   public void messagesOfAChannelKeepTheirOrder() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      Channel<String> remote = handlerB.getChannel(channel.getId());
+      assertEquals(stripeOf(multiplexerA, channel), stripeOf(multiplexerB, remote));
+
+      List<String> received = new ArrayList<>();
+      remote.addListener(received::add);
+      for (int i = 0; i < 100; i++)
+         channel.send("msg" + i);
+
+      assertEquals(100, received.size());
+      for (int i = 0; i < 100; i++)
+         assertEquals("msg" + i, received.get(i));
+   }
+
+   @Test
+   public void requestsForIdsInUseOnAnotherStripeAreRefused() throws Exception {
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      int stripe = stripeOf(multiplexerB, handlerB.getChannel(channel.getId()));
+      int other = (stripe + 1) % STRIPES;
+      multiplexerB.getStripe(other)
+                  .receive(new NewChannelRequestPacket(channel.getId(), String.class, null, 0, 1, false, null));
+
+      assertEquals(1, multiplexerB.getChannelCount());
+      assertNull(multiplexerB.getChannel(other, channel.getId()));
+      assertSame(handlerB.getChannel(channel.getId()), multiplexerB.getChannel(stripe, channel.getId()));
+   }
+
+   @Test
+   public void leastLoadedStripeGetsTheNewChannel() throws Exception {
+      multiplexerA.setStriping(Striping.LEAST_LOADED);
+      List<Channel<String>> channels = new ArrayList<>();
+      for (int i = 0; i < STRIPES * 2; i++)
+         channels.add(multiplexerA.establishNewChannel(String.class, TIMEOUT));
+
+      for (int i = 0; i < STRIPES; i++)
+         assertEquals(2, multiplexerA.getStripe(i).getChannelCount());
+
+      Channel<String> closed = channels.get(0);
+      int stripe = stripeOf(multiplexerA, closed);
+      closed.close();
+      Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+      assertEquals(stripe, stripeOf(multiplexerA, channel));
+   }
+
+   @Test
+   public void handlersAndClosingApplyToAllStripes() throws Exception {
+      multiplexerA.addHandler(new TestChannelHandler<>(Foo.class));
+      for (int i = 0; i < STRIPES * 4; i++)
+         multiplexerB.establishNewChannel(Foo.class, TIMEOUT);
+
+      multiplexerA.removeHandler(Foo.class);
+      // Without a handler the request is refused
+      assertThrows(IOException.class, () -> multiplexerB.establishNewChannel(Foo.class, TIMEOUT));
+
+      multiplexerA.close();
+      assertTrue(multiplexerA.isClosed());
+      assertEquals(0, multiplexerB.getChannelCount());
+      assertThrows(IllegalArgumentException.class, () -> new StripedMultiplexer(new SimpleIterativeIdGenerator(),
+                                                                                new ArrayList<Sender>()));
+   }
+}
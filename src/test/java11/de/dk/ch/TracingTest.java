@@ -0,0 +1,109 @@
+package de.dk.ch;
+
+import static de.dk.ch.SimpleChannelTest.TIMEOUT;
+import static de.dk.ch.Tracer.TRACER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author David Koettlitz
+ * <br>Erstellt am 17.10.2026
+ */
+public class TracingTest {
+   private static final String[] EVENTS = {"de.dk.ch.ChannelOpen",
+                                           "de.dk.ch.ChannelRequest",
+                                           "de.dk.ch.ChannelClosed",
+                                           "de.dk.ch.PacketSent",
+                                           "de.dk.ch.PacketReceived",
+                                           "de.dk.ch.SlowListener"};
+
+   private Multiplexer multiplexerA;
+   private Multiplexer multiplexerB;
+   private TestChannelHandler<String> handlerB;
+
+   public TracingTest() {
+
+   }
+
+   @BeforeEach
+   public void init() {
+      IDGenerator idGen = new SimpleIterativeIdGenerator();
+      this.handlerB = new TestChannelHandler<>(String.class);
+      this.multiplexerA = new Multiplexer(idGen, m -> multiplexerB.receive(m));
+      this.multiplexerB = new Multiplexer(idGen, m -> multiplexerA.receive(m), handlerB);
+   }
+
+   private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+      return events.stream()
+                   .filter(e -> e.getEventType().getName().equals(name))
+                   .collect(Collectors.toList());
+   }
+
+   @Test
+   public void eventsAreRecordedWhileEnabled() throws Exception {
+      assertTrue(TRACER instanceof JfrTracer, "The flight recorder tracer was not loaded.");
+      List<RecordedEvent> events;
+      try (Recording recording = new Recording()) {
+         for (String name : EVENTS)
+            recording.enable(name).withThreshold(Duration.ZERO);
+
+         recording.start();
+         handlerB.setAcceptChannelRequests(false);
+         assertThrows(ChannelDeclinedException.class, () -> multiplexerA.establishNewChannel(String.class, TIMEOUT));
+         handlerB.setAcceptChannelRequests(true);
+         Channel<String> channel = multiplexerA.establishNewChannel(String.class, TIMEOUT);
+         handlerB.getChannel(channel.getId())
+                 .addListener(msg -> { });
+         // The packets are sampled
+         for (int i = 0; i < 500; i++)
+            channel.send("msg" + i);
+
+         channel.close();
+         recording.stop();
+
+         Path file = Files.createTempFile("multiplexer", ".jfr");
+         try {
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+         } finally {
+            Files.delete(file);
+         }
+      }
+
+      List<RecordedEvent> opened = eventsNamed(events, "de.dk.ch.ChannelOpen");
+      assertEquals(2, opened.size());
+      assertEquals("declined", opened.get(0).getString("outcome"));
+      assertEquals("accepted", opened.get(1).getString("outcome"));
+      assertEquals(String.class.getName(), opened.get(1).getString("type"));
+      assertEquals(2, eventsNamed(events, "de.dk.ch.ChannelRequest").size());
+      // Both sides close the channel
+      assertEquals(2, eventsNamed(events, "de.dk.ch.ChannelClosed").size());
+      assertEquals(500, eventsNamed(events, "de.dk.ch.SlowListener").size());
+      assertTrue(!eventsNamed(events, "de.dk.ch.PacketSent").isEmpty());
+      assertTrue(!eventsNamed(events, "de.dk.ch.PacketReceived").isEmpty());
+   }
+
+   @Test
+   public void nothingIsTracedWhileDisabled() {
+      assertNull(TRACER.openStarted());
+      assertNull(TRACER.requestStarted());
+      assertNull(TRACER.sendStarted());
+      assertNull(TRACER.receiveStarted());
+      assertNull(TRACER.listenerStarted());
+   }
+}